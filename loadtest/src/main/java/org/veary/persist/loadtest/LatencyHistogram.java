@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest;
+
+/**
+ * <b>Purpose:</b> records latencies, in nanoseconds, with a relative error of less than 2%.
+ *
+ * <p><b>Responsibility:</b> values below 128 are counted exactly. Larger values are counted in
+ * log-linear buckets: each power of two is split into 64 buckets. Values above about 18
+ * minutes are counted as 18 minutes. A histogram is not thread-safe; each worker records into
+ * its own and they are merged with {@link #add(LatencyHistogram)} when the run ends.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR = SUB_BUCKETS * 2;
+    private static final int MAX_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    private final long[] counts = new long[LINEAR + (MAX_BITS - SUB_BITS) * SUB_BUCKETS];
+    private long count;
+    private long errors;
+    private long max;
+    private double sum;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency
+     */
+    public void record(long nanos) {
+        final long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        this.counts[index(value)]++;
+        this.count++;
+        this.sum += value;
+        this.max = Math.max(this.max, value);
+    }
+
+    /**
+     * Records a failed operation. Its latency is recorded separately.
+     */
+    public void recordError() {
+        this.errors++;
+    }
+
+    /**
+     * Adds the designated histogram to this one.
+     *
+     * @param other {@code LatencyHistogram}
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < this.counts.length; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.count += other.count;
+        this.errors += other.errors;
+        this.sum += other.sum;
+        this.max = Math.max(this.max, other.max);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return long
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * Returns the number of failed operations.
+     *
+     * @return long
+     */
+    public long getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * Returns the largest recorded latency.
+     *
+     * @return long
+     */
+    public long getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     *
+     * @return double, or 0 if nothing has been recorded
+     */
+    public double getMean() {
+        return this.count == 0 ? 0 : this.sum / this.count;
+    }
+
+    /**
+     * Returns the latency at the designated percentile: the upper bound of the bucket holding
+     * it, but no more than {@link #getMax()}.
+     *
+     * @param percentile between 0 and 100
+     * @return long, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100.");
+        }
+        if (this.count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), this.max);
+            }
+        }
+        return this.max;
+    }
+
+    private static int index(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long upperBound(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        final int offset = index - LINEAR;
+        final int shift = offset / SUB_BUCKETS + 1;
+        final long mantissa = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.tomcat.dbcp.dbcp2.BasicDataSource;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.QueryManager;
+
+/**
+ * <b>Purpose:</b> drives a weighted mix of {@link Workload} operations from concurrent
+ * threads against a pooled database, and reports throughput and latency percentiles per
+ * operation.
+ *
+ * <p><b>Responsibility:</b> with a target rate the test is <em>open-loop</em>: each thread
+ * follows a fixed schedule of start times, and an operation's latency is measured from the
+ * time it <em>should</em> have started. A stall therefore counts against every operation
+ * queued behind it, instead of silently slowing the load (coordinated omission). Without a
+ * target rate the test is closed-loop: each thread starts its next operation as soon as the
+ * previous one ends, which finds the throughput plateau but understates latency under
+ * saturation.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * mvn -q compile exec:java -Dexec.args="--threads=16 --rate=4000 --duration=30 --pool=8
+ *     --mix=query=50,find=30,transaction=20"
+ * </pre>
+ *
+ * <p>Options: {@code --threads} (default 8), {@code --rate} in operations per second, 0 for
+ * closed-loop (default 0), {@code --duration} and {@code --warmup} in seconds (30 and 5),
+ * {@code --pool} maximum connections (8), {@code --rows} accounts (10000), {@code --mix}
+ * operation weights (query=50,find=30,transaction=20) and {@code --url} the JDBC URL (an
+ * in-memory H2 database).
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class LoadTest {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private int threads = 8;
+    private double rate;
+    private int durationSeconds = 30;
+    private int warmupSeconds = 5;
+    private int poolSize = 8;
+    private int rows = 10_000;
+    private String mix = "query=50,find=30,transaction=20";
+    private String url = "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1";
+
+    /**
+     * Runs a load test configured by {@code --name=value} arguments and prints its report.
+     *
+     * @param args the options
+     */
+    public static void main(String[] args) {
+        final LoadTest test = new LoadTest();
+        for (String arg : args) {
+            final int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            test.set(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        test.run().print(System.out);
+    }
+
+    /**
+     * Sets the number of worker threads.
+     *
+     * @param threads must be greater than 0
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setThreads(int threads) {
+        this.threads = positive(threads, "threads");
+        return this;
+    }
+
+    /**
+     * Sets the target rate, across all threads, in operations per second.
+     *
+     * @param rate the rate, or 0 to run closed-loop
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setRate(double rate) {
+        if (rate < 0) {
+            throw new IllegalArgumentException("Rate cannot be negative.");
+        }
+        this.rate = rate;
+        return this;
+    }
+
+    /**
+     * Sets the measured duration of the test.
+     *
+     * @param seconds must be greater than 0
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setDuration(int seconds) {
+        this.durationSeconds = positive(seconds, "duration");
+        return this;
+    }
+
+    /**
+     * Sets the unmeasured warm-up which precedes the measured duration.
+     *
+     * @param seconds 0 or more
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setWarmup(int seconds) {
+        if (seconds < 0) {
+            throw new IllegalArgumentException("Warm-up cannot be negative.");
+        }
+        this.warmupSeconds = seconds;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pooled connections.
+     *
+     * @param poolSize must be greater than 0
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setPoolSize(int poolSize) {
+        this.poolSize = positive(poolSize, "pool");
+        return this;
+    }
+
+    /**
+     * Sets the number of accounts created by the {@link Workload}.
+     *
+     * @param rows the number of rows
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setRows(int rows) {
+        this.rows = rows;
+        return this;
+    }
+
+    /**
+     * Sets the operation mix, as comma-separated {@code name=weight} pairs.
+     *
+     * @param mix for example {@code query=50,find=30,transaction=20}
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setMix(String mix) {
+        this.mix = Objects.requireNonNull(mix, "Mix cannot be null.");
+        return this;
+    }
+
+    /**
+     * Sets the JDBC URL of the database under test.
+     *
+     * @param url the URL
+     * @return the value of the {@code LoadTest} itself
+     */
+    public LoadTest setUrl(String url) {
+        this.url = Objects.requireNonNull(url, "URL cannot be null.");
+        return this;
+    }
+
+    /**
+     * Runs the test.
+     *
+     * @return {@link LoadTestReport}
+     */
+    public LoadTestReport run() {
+        final Workload workload = new Workload(this.rows);
+        final Map<String, Integer> weights = parseMix(this.mix, workload);
+        final String[] names = weights.keySet().toArray(new String[0]);
+        final Operation[] operations = new Operation[names.length];
+        final int[] cumulative = new int[names.length];
+        int total = 0;
+        for (int i = 0; i < names.length; i++) {
+            operations[i] = workload.getOperations().get(names[i]);
+            total += weights.get(names[i]).intValue();
+            cumulative[i] = total;
+        }
+
+        try (BasicDataSource ds = new BasicDataSource()) {
+            ds.setUrl(this.url);
+            ds.setMaxTotal(this.poolSize);
+            ds.setMaxIdle(this.poolSize);
+            ds.setInitialSize(this.poolSize);
+            final PersistenceManagerFactory factory = new PersistenceManagerFactory(ds);
+            workload.setUp(factory);
+
+            final long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+            final long measureStart = start + this.warmupSeconds * NANOS_PER_SECOND;
+            final long end = measureStart + this.durationSeconds * NANOS_PER_SECOND;
+            final long interval = this.rate == 0 ? 0
+                : (long) (this.threads * NANOS_PER_SECOND / this.rate);
+
+            final List<Worker> workers = new ArrayList<>(this.threads);
+            for (int i = 0; i < this.threads; i++) {
+                final long first = start + interval * i / this.threads;
+                workers.add(new Worker(factory, operations, cumulative, first, interval,
+                    measureStart, end, i));
+            }
+            for (Worker worker : workers) {
+                worker.start();
+            }
+
+            final Map<String, LatencyHistogram> results = new LinkedHashMap<>();
+            for (String name : names) {
+                results.put(name, new LatencyHistogram());
+            }
+            for (Worker worker : workers) {
+                worker.join();
+                for (int i = 0; i < names.length; i++) {
+                    results.get(names[i]).add(worker.histograms[i]);
+                }
+            }
+            return new LoadTestReport(results, this.durationSeconds, this.threads, this.rate,
+                this.poolSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workers.", e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Closing the pool failed.", e);
+        }
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "threads":
+                setThreads(Integer.parseInt(value));
+                break;
+            case "rate":
+                setRate(Double.parseDouble(value));
+                break;
+            case "duration":
+                setDuration(Integer.parseInt(value));
+                break;
+            case "warmup":
+                setWarmup(Integer.parseInt(value));
+                break;
+            case "pool":
+                setPoolSize(Integer.parseInt(value));
+                break;
+            case "rows":
+                setRows(Integer.parseInt(value));
+                break;
+            case "mix":
+                setMix(value);
+                break;
+            case "url":
+                setUrl(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+
+    private static Map<String, Integer> parseMix(String mix, Workload workload) {
+        final Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String pair : mix.split(",")) {
+            final String[] parts = pair.trim().split("=");
+            if (parts.length != 2 || !workload.getOperations().containsKey(parts[0])) {
+                throw new IllegalArgumentException(String.format(
+                    "Invalid mix entry '%s': expected name=weight, where name is one of %s",
+                    pair, workload.getOperations().keySet()));
+            }
+            final int weight = Integer.parseInt(parts[1]);
+            if (weight > 0) {
+                weights.put(parts[0], Integer.valueOf(weight));
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix must have a positive weight.");
+        }
+        return weights;
+    }
+
+    private static int positive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be greater than 0.");
+        }
+        return value;
+    }
+
+    /**
+     * A thread which executes operations until the end of the test, recording the latency of
+     * each one which was due to start after the warm-up.
+     */
+    private static final class Worker extends Thread {
+
+        private final PersistenceManagerFactory factory;
+        private final Operation[] operations;
+        private final int[] cumulative;
+        private final long first;
+        private final long interval;
+        private final long measureStart;
+        private final long end;
+        private final LatencyHistogram[] histograms;
+        private final Random random;
+
+        Worker(PersistenceManagerFactory factory, Operation[] operations, int[] cumulative,
+            long first, long interval, long measureStart, long end, int index) {
+            super("loadtest-worker-" + index);
+            setDaemon(true);
+            this.factory = factory;
+            this.operations = operations;
+            this.cumulative = cumulative;
+            this.first = first;
+            this.interval = interval;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.histograms = new LatencyHistogram[operations.length];
+            for (int i = 0; i < operations.length; i++) {
+                this.histograms[i] = new LatencyHistogram();
+            }
+            this.random = new Random(new SplittableRandom().nextLong() ^ index);
+        }
+
+        @Override
+        public void run() {
+            final QueryManager queries = this.factory.createQueryManager();
+            long intended = this.first;
+            while (true) {
+                long now = System.nanoTime();
+                if (this.interval == 0) {
+                    intended = Math.max(now, this.first);
+                }
+                if (intended >= this.end) {
+                    return;
+                }
+                while (now < intended) {
+                    LockSupport.parkNanos(intended - now);
+                    now = System.nanoTime();
+                }
+
+                final int op = pick();
+                boolean failed = false;
+                try {
+                    this.operations[op].execute(this.factory, queries, this.random);
+                } catch (RuntimeException e) {
+                    failed = true;
+                }
+                if (intended >= this.measureStart) {
+                    this.histograms[op].record(System.nanoTime() - intended);
+                    if (failed) {
+                        this.histograms[op].recordError();
+                    }
+                }
+                intended += this.interval;
+            }
+        }
+
+        private int pick() {
+            final int value = this.random.nextInt(this.cumulative[this.cumulative.length - 1]);
+            int i = 0;
+            while (this.cumulative[i] <= value) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest;
+
+import java.io.PrintStream;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * <b>Purpose:</b> the throughput and latency percentiles of each operation of a
+ * {@link LoadTest} run.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class LoadTestReport {
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+    private static final String ROW = "%-12s %10d %8d %10.1f %9.3f %9.3f %9.3f %9.3f%n";
+
+    private final Map<String, LatencyHistogram> operations;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final int durationSeconds;
+    private final int threads;
+    private final double rate;
+    private final int poolSize;
+
+    /**
+     * Constructor.
+     *
+     * @param operations the merged histogram of each operation
+     * @param durationSeconds the measured duration
+     * @param threads the number of worker threads
+     * @param rate the target rate, or 0 if the run was closed-loop
+     * @param poolSize the maximum number of pooled connections
+     */
+    LoadTestReport(Map<String, LatencyHistogram> operations, int durationSeconds, int threads,
+        double rate, int poolSize) {
+        this.operations = Collections.unmodifiableMap(operations);
+        for (LatencyHistogram histogram : operations.values()) {
+            this.total.add(histogram);
+        }
+        this.durationSeconds = durationSeconds;
+        this.threads = threads;
+        this.rate = rate;
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Returns the latencies of each operation, in nanoseconds.
+     *
+     * @return unmodifiable {@code Map<String, LatencyHistogram>}
+     */
+    public Map<String, LatencyHistogram> getOperations() {
+        return this.operations;
+    }
+
+    /**
+     * Returns the latencies of all operations, in nanoseconds.
+     *
+     * @return {@link LatencyHistogram}
+     */
+    public LatencyHistogram getTotal() {
+        return this.total;
+    }
+
+    /**
+     * Returns the number of operations completed per second of the measured duration.
+     *
+     * @param histogram one of the histograms of this report
+     * @return double
+     */
+    public double getThroughput(LatencyHistogram histogram) {
+        return (double) histogram.getCount() / this.durationSeconds;
+    }
+
+    /**
+     * Prints the report as a table, in milliseconds.
+     *
+     * @param out the destination
+     */
+    public void print(PrintStream out) {
+        out.printf("threads=%d pool=%d duration=%ds mode=%s%n", this.threads, this.poolSize,
+            this.durationSeconds,
+            this.rate == 0 ? "closed-loop" : String.format("open-loop at %.0f/s", this.rate));
+        out.printf("%-12s %10s %8s %10s %9s %9s %9s %9s%n", "operation", "count", "errors",
+            "ops/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<String, LatencyHistogram> entry : this.operations.entrySet()) {
+            printRow(out, entry.getKey(), entry.getValue());
+        }
+        printRow(out, "total", this.total);
+    }
+
+    private void printRow(PrintStream out, String name, LatencyHistogram histogram) {
+        out.printf(ROW, name, histogram.getCount(), histogram.getErrors(),
+            getThroughput(histogram),
+            histogram.getPercentile(50) / NANOS_PER_MILLI,
+            histogram.getPercentile(99) / NANOS_PER_MILLI,
+            histogram.getPercentile(99.9) / NANOS_PER_MILLI,
+            histogram.getMax() / NANOS_PER_MILLI);
+    }
+}
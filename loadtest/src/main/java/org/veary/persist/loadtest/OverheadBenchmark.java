@@ -0,0 +1,236 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.QueryManager;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.loadtest.stub.StubDataSource;
+
+/**
+ * <b>Purpose:</b> measures the time the persistence library adds to plain JDBC, by running
+ * the same query and transaction through both against a zero-latency {@link StubDataSource}.
+ *
+ * <p><b>Responsibility:</b> the stub does no I/O, so the JDBC figures are the cost of the
+ * stub itself, and the difference between the two columns is the library's overhead:
+ * parameter binding, result processing and entity mapping for the query; connection
+ * handling and statement preparation for the transaction. Run it under a profiler to see
+ * where that time goes.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * mvn -q compile exec:java -Dexec.mainClass=org.veary.persist.loadtest.OverheadBenchmark
+ *     -Dexec.args="--rows=100 --iterations=200000"
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class OverheadBenchmark {
+
+    private static final String QUERY = "SELECT * FROM stub WHERE id > ?";
+    private static final String UPDATE = "UPDATE stub SET name = ? WHERE id = ?";
+
+    private final StubDataSource ds;
+    private final PersistenceManagerFactory factory;
+    private long blackhole;
+
+    /**
+     * Constructor.
+     *
+     * @param rows the number of rows returned by the query
+     */
+    public OverheadBenchmark(int rows) {
+        this.ds = new StubDataSource()
+            .addColumn("ID", Types.BIGINT)
+            .addColumn("NAME", Types.VARCHAR)
+            .addColumn("AMOUNT", Types.DECIMAL)
+            .addColumn("CREATED", Types.TIMESTAMP)
+            .addColumn("ACTIVE", Types.BOOLEAN)
+            .setRowCount(rows);
+        this.factory = new PersistenceManagerFactory(this.ds);
+    }
+
+    /**
+     * Runs the benchmark with {@code --rows} (default 100), {@code --iterations} (200,000) and
+     * {@code --warmup} iterations (50,000), and prints nanoseconds per operation.
+     *
+     * @param args the options
+     * @throws SQLException if the stub fails, which it does not unless configured to
+     */
+    public static void main(String[] args) throws SQLException {
+        int rows = 100;
+        int iterations = 200_000;
+        int warmup = 50_000;
+        for (String arg : args) {
+            final String[] parts = arg.split("=", 2);
+            switch (parts[0]) {
+                case "--rows":
+                    rows = Integer.parseInt(parts[1]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(parts[1]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(parts[1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+
+        final OverheadBenchmark benchmark = new OverheadBenchmark(rows);
+        benchmark.measure(warmup);
+        final long[] nanos = benchmark.measure(iterations);
+        System.out.printf("%-12s %12s %12s %12s%n", "operation", "jdbc ns/op", "persist ns/op",
+            "overhead");
+        System.out.printf("%-12s %12d %12d %12d%n", "query", nanos[0], nanos[1],
+            nanos[1] - nanos[0]);
+        System.out.printf("%-12s %12d %12d %12d%n", "transaction", nanos[2], nanos[3],
+            nanos[3] - nanos[2]);
+    }
+
+    /**
+     * Runs each operation the designated number of times.
+     *
+     * @param iterations the number of times
+     * @return the mean nanoseconds per operation of the JDBC query, the library query, the
+     *     JDBC transaction and the library transaction
+     * @throws SQLException if the stub fails
+     */
+    public long[] measure(int iterations) throws SQLException {
+        final long[] nanos = new long[4];
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            jdbcQuery(i);
+        }
+        nanos[0] = (System.nanoTime() - start) / iterations;
+
+        final QueryManager manager = this.factory.createQueryManager();
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            persistQuery(manager, i);
+        }
+        nanos[1] = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            jdbcTransaction(i);
+        }
+        nanos[2] = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            persistTransaction(i);
+        }
+        nanos[3] = (System.nanoTime() - start) / iterations;
+        return nanos;
+    }
+
+    /**
+     * Returns a value derived from every row read, so that the work cannot be eliminated.
+     *
+     * @return long
+     */
+    public long getBlackhole() {
+        return this.blackhole;
+    }
+
+    private void jdbcQuery(int i) throws SQLException {
+        try (Connection conn = this.ds.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(QUERY)) {
+            stmt.setObject(1, Long.valueOf(i));
+            try (ResultSet rset = stmt.executeQuery()) {
+                final int columns = rset.getMetaData().getColumnCount();
+                while (rset.next()) {
+                    for (int c = 1; c <= columns; c++) {
+                        this.blackhole += rset.getObject(c).hashCode();
+                    }
+                }
+            }
+        }
+    }
+
+    private void persistQuery(QueryManager manager, int i) {
+        final List<Object> rows = manager.createQuery(
+            SqlStatement.newInstance(QUERY).setParameter(1, Long.valueOf(i)), Row.class)
+            .execute().getResultList();
+        for (Object row : rows) {
+            this.blackhole += ((Row) row).values().hashCode();
+        }
+    }
+
+    private void jdbcTransaction(int i) throws SQLException {
+        try (Connection conn = this.ds.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(UPDATE,
+                PreparedStatement.RETURN_GENERATED_KEYS)) {
+                stmt.setObject(1, "name");
+                stmt.setObject(2, Long.valueOf(i));
+                this.blackhole += stmt.executeUpdate();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void persistTransaction(int i) {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(UPDATE)
+                .setParameter(1, "name").setParameter(2, Long.valueOf(i)));
+            txManager.commit();
+            this.blackhole += txManager.getRowCount();
+        }
+    }
+
+    /**
+     * A row of the stub's result, holding the {@code Map} passed to it.
+     */
+    public interface Row {
+
+        Map<String, Object> values();
+
+        /**
+         * Static factory method called by the persistence library.
+         *
+         * @param dataMap the row
+         * @return {@code Row}
+         */
+        static Row newInstance(Map<String, Object> dataMap) {
+            return () -> dataMap;
+        }
+    }
+}
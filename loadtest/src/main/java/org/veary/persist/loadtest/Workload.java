@@ -0,0 +1,196 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+/**
+ * <b>Purpose:</b> the schema and the named operations which a load test mixes.
+ *
+ * <p><b>Responsibility:</b> {@link #setUp(PersistenceManagerFactory)} creates the
+ * {@code loadtest.account} table with the configured number of rows, and an empty
+ * {@code loadtest.ledger} table. The operations are:
+ *
+ * <ul>
+ * <li><b>query</b>: a range of 20 accounts, mapped to entities</li>
+ * <li><b>find</b>: a single account by key</li>
+ * <li><b>count</b>: a scalar aggregate over the accounts</li>
+ * <li><b>transaction</b>: a transfer between two accounts, with two ledger rows</li>
+ * <li><b>batch</b>: 50 ledger rows written by {@code persistAll}</li>
+ * </ul>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class Workload {
+
+    private static final int RANGE = 20;
+    private static final int BATCH = 50;
+
+    private final int rows;
+    private final Map<String, Operation> operations = new LinkedHashMap<>();
+
+    /**
+     * Constructor.
+     *
+     * @param rows the number of accounts, which must be greater than {@value #RANGE}
+     */
+    public Workload(int rows) {
+        if (rows <= RANGE) {
+            throw new IllegalArgumentException("Rows must be greater than " + RANGE + ".");
+        }
+        this.rows = rows;
+
+        final SqlStatement range = SqlStatement.newInstance(
+            "SELECT id, balance FROM loadtest.account WHERE id BETWEEN ? AND ?");
+        this.operations.put("query", (factory, queries, random) -> {
+            final long first = key(random);
+            final long last = Math.min(first + RANGE - 1, rows);
+            queries.createQuery(SqlStatement.newInstance(range.toString())
+                .setParameter(1, Long.valueOf(first))
+                .setParameter(2, Long.valueOf(last)), Account.class)
+                .execute().getResultList().size();
+        });
+
+        final SqlStatement byId = SqlStatement.newInstance(
+            "SELECT id, balance FROM loadtest.account WHERE id = ?");
+        this.operations.put("find", (factory, queries, random) -> queries.find(Account.class,
+            byId, Long.valueOf(key(random))));
+
+        final String count = "SELECT COUNT(*) FROM loadtest.account WHERE balance > ?";
+        this.operations.put("count", (factory, queries, random) -> queries.createQuery(
+            SqlStatement.newInstance(count).setParameter(1, Long.valueOf(0)))
+            .getSingleLong());
+
+        final String update = "UPDATE loadtest.account SET balance = balance + ? WHERE id = ?";
+        final String ledger = "INSERT INTO loadtest.ledger(account_id, amount) VALUES(?, ?)";
+        this.operations.put("transaction", (factory, queries, random) -> {
+            final Long from = Long.valueOf(key(random));
+            final Long to = Long.valueOf(key(random));
+            final Long amount = Long.valueOf(random.nextInt(100) + 1);
+            try (TransactionManager txManager = factory.createTransactionManager()) {
+                txManager.begin();
+                txManager.persist(SqlStatement.newInstance(update)
+                    .setParameter(1, Long.valueOf(-amount.longValue())).setParameter(2, from));
+                txManager.persist(SqlStatement.newInstance(update)
+                    .setParameter(1, amount).setParameter(2, to));
+                txManager.persistAll(SqlStatement.newInstance(ledger), List.of(
+                    new Object[] { from, Long.valueOf(-amount.longValue()) },
+                    new Object[] { to, amount }));
+                txManager.commit();
+            }
+        });
+
+        this.operations.put("batch", (factory, queries, random) -> {
+            final List<Object[]> entries = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                entries.add(new Object[] { Long.valueOf(key(random)),
+                    Long.valueOf(random.nextInt(100)) });
+            }
+            try (TransactionManager txManager = factory.createTransactionManager()) {
+                txManager.begin();
+                txManager.persistAll(SqlStatement.newInstance(ledger), entries);
+                txManager.commit();
+            }
+        });
+    }
+
+    /**
+     * Creates and populates the tables, replacing any which already exist.
+     *
+     * @param factory the factory under test
+     */
+    public void setUp(PersistenceManagerFactory factory) {
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance("CREATE SCHEMA IF NOT EXISTS loadtest"));
+            txManager.persist(SqlStatement.newInstance("DROP TABLE IF EXISTS loadtest.ledger"));
+            txManager.persist(SqlStatement.newInstance("DROP TABLE IF EXISTS loadtest.account"));
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE loadtest.account(id BIGINT PRIMARY KEY, balance BIGINT NOT NULL)"));
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE loadtest.ledger(id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "account_id BIGINT NOT NULL, amount BIGINT NOT NULL)"));
+            txManager.persist(SqlStatement.newInstance(
+                "INSERT INTO loadtest.account SELECT X, 1000 FROM SYSTEM_RANGE(1, ?)")
+                .setParameter(1, Long.valueOf(this.rows)));
+            txManager.commit();
+        }
+    }
+
+    /**
+     * Returns the named operations.
+     *
+     * @return unmodifiable {@code Map<String, Operation>}, in the order listed above
+     */
+    public Map<String, Operation> getOperations() {
+        return Collections.unmodifiableMap(this.operations);
+    }
+
+    private long key(Random random) {
+        return random.nextInt(this.rows) + 1L;
+    }
+
+    /**
+     * A row of {@code loadtest.account}.
+     */
+    public interface Account {
+
+        long getId();
+
+        long getBalance();
+
+        /**
+         * Static factory method called by the persistence library.
+         *
+         * @param dataMap the row
+         * @return {@code Account}
+         */
+        static Account newInstance(Map<String, Object> dataMap) {
+            final long id = ((Number) dataMap.get("ID")).longValue();
+            final long balance = ((Number) dataMap.get("BALANCE")).longValue();
+            return new Account() {
+                @Override
+                public long getId() {
+                    return id;
+                }
+
+                @Override
+                public long getBalance() {
+                    return balance;
+                }
+            };
+        }
+    }
+}
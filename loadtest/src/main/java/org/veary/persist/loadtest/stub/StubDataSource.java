@@ -0,0 +1,385 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest.stub;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * <b>Purpose:</b> an in-process {@code DataSource} which never touches a database, so that
+ * the overhead of the persistence library can be profiled and benchmarked in isolation.
+ *
+ * <p><b>Responsibility:</b> every query returns the same synthetic rows, whose columns are
+ * declared with {@link #addColumn(String, int)}. The values are generated once, when the
+ * shape changes, so reading them costs no more than an array access. Every update reports
+ * {@link #setUpdateCount(int)} rows. Latency can be added to acquiring a connection, to
+ * executing a statement and to commits, and a proportion of executions and commits can be
+ * made to fail. A statement's query timeout is honoured: if the execute latency exceeds it,
+ * the execution waits for the timeout and throws {@code SQLTimeoutException}.
+ *
+ * <p>Counters of the calls made are kept so that tests can check, for example, that every
+ * connection was closed.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * StubDataSource ds = new StubDataSource()
+ *     .addColumn("ID", Types.BIGINT)
+ *     .addColumn("NAME", Types.VARCHAR)
+ *     .setRowCount(100)
+ *     .setExecuteLatency(200, TimeUnit.MICROSECONDS)
+ *     .setFailureRate(0.01, "40001");
+ * QueryManager manager = new PersistenceManagerFactory(ds).createQueryManager();
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class StubDataSource implements DataSource {
+
+    private static final long SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final List<String> labels = new ArrayList<>();
+    private final List<Integer> types = new ArrayList<>();
+    private final AtomicLong keys = new AtomicLong();
+    private final LongAdder connectionsOpened = new LongAdder();
+    private final LongAdder connectionsClosed = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder rollbacks = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private volatile StubShape shape = new StubShape(new String[0], new int[0], 0);
+    private volatile int rowCount;
+    private volatile int updateCount = 1;
+    private volatile long connectNanos;
+    private volatile long executeNanos;
+    private volatile long commitNanos;
+    private volatile double failureRate;
+    private volatile String failureState = "08006";
+
+    /**
+     * Adds a column to the rows returned by queries.
+     *
+     * @param label the column label
+     * @param sqlType one of {@code Types.BIGINT}, {@code INTEGER}, {@code VARCHAR},
+     *     {@code DOUBLE}, {@code DECIMAL}, {@code BOOLEAN}, {@code DATE} or {@code TIMESTAMP}
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public synchronized StubDataSource addColumn(String label, int sqlType) {
+        if (!StubShape.isSupported(sqlType)) {
+            throw new IllegalArgumentException("Unsupported SQL type: " + sqlType);
+        }
+        this.labels.add(label.toUpperCase());
+        this.types.add(Integer.valueOf(sqlType));
+        reshape();
+        return this;
+    }
+
+    /**
+     * Sets the number of rows returned by queries. Defaults to 0.
+     *
+     * @param rowCount 0 or more
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public synchronized StubDataSource setRowCount(int rowCount) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Row count cannot be negative.");
+        }
+        this.rowCount = rowCount;
+        reshape();
+        return this;
+    }
+
+    /**
+     * Sets the number of rows reported by each update. Defaults to 1.
+     *
+     * @param updateCount the count
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public StubDataSource setUpdateCount(int updateCount) {
+        this.updateCount = updateCount;
+        return this;
+    }
+
+    /**
+     * Sets the latency of {@code getConnection()}.
+     *
+     * @param latency the latency
+     * @param unit the unit of {@code latency}
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public StubDataSource setConnectLatency(long latency, TimeUnit unit) {
+        this.connectNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * Sets the latency of executing a statement or a batch.
+     *
+     * @param latency the latency
+     * @param unit the unit of {@code latency}
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public StubDataSource setExecuteLatency(long latency, TimeUnit unit) {
+        this.executeNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * Sets the latency of {@code Connection.commit()}.
+     *
+     * @param latency the latency
+     * @param unit the unit of {@code latency}
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public StubDataSource setCommitLatency(long latency, TimeUnit unit) {
+        this.commitNanos = unit.toNanos(latency);
+        return this;
+    }
+
+    /**
+     * Sets the probability that an execution or a commit fails with an {@code SQLException}.
+     *
+     * @param rate between 0 (the default) and 1
+     * @param sqlState the SQL state of the exception, for example {@code 40001} for a
+     *     serialization failure or {@code 08006} for a lost connection
+     * @return the value of the {@code StubDataSource} itself
+     */
+    public StubDataSource setFailureRate(double rate, String sqlState) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Failure rate must be between 0 and 1.");
+        }
+        this.failureRate = rate;
+        this.failureState = sqlState;
+        return this;
+    }
+
+    /**
+     * Returns the number of connections which have been obtained and not yet closed.
+     *
+     * @return long
+     */
+    public long getOpenConnections() {
+        return this.connectionsOpened.sum() - this.connectionsClosed.sum();
+    }
+
+    /**
+     * Returns the number of connections which have been obtained.
+     *
+     * @return long
+     */
+    public long getConnectionsOpened() {
+        return this.connectionsOpened.sum();
+    }
+
+    /**
+     * Returns the number of statements and batches which have been executed, including those
+     * which failed.
+     *
+     * @return long
+     */
+    public long getExecutions() {
+        return this.executions.sum();
+    }
+
+    /**
+     * Returns the number of commits, including those which failed.
+     *
+     * @return long
+     */
+    public long getCommits() {
+        return this.commits.sum();
+    }
+
+    /**
+     * Returns the number of rollbacks.
+     *
+     * @return long
+     */
+    public long getRollbacks() {
+        return this.rollbacks.sum();
+    }
+
+    /**
+     * Returns the number of injected failures.
+     *
+     * @return long
+     */
+    public long getFailures() {
+        return this.failures.sum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        pause(this.connectNanos);
+        this.connectionsOpened.increment();
+        return StubJdbc.connection(this);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Nothing is logged
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        // Connections are never refused
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    StubShape getShape() {
+        return this.shape;
+    }
+
+    int getUpdateCount() {
+        return this.updateCount;
+    }
+
+    long nextKey() {
+        return this.keys.incrementAndGet();
+    }
+
+    void closed() {
+        this.connectionsClosed.increment();
+    }
+
+    void rolledBack() {
+        this.rollbacks.increment();
+    }
+
+    /**
+     * Waits for the execute latency, or the query timeout if that is shorter, and may then
+     * inject a failure.
+     *
+     * @param timeoutSeconds the statement's query timeout, or 0 if none
+     * @throws SQLException if a failure is injected or the timeout expires
+     */
+    void execute(int timeoutSeconds) throws SQLException {
+        this.executions.increment();
+        final long timeout = TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        if (timeout > 0 && this.executeNanos > timeout) {
+            pause(timeout);
+            this.failures.increment();
+            throw new SQLTimeoutException("Query timed out.", "57014");
+        }
+        pause(this.executeNanos);
+        maybeFail();
+    }
+
+    /**
+     * Waits for the commit latency and may then inject a failure.
+     *
+     * @throws SQLException if a failure is injected
+     */
+    void commit() throws SQLException {
+        this.commits.increment();
+        pause(this.commitNanos);
+        maybeFail();
+    }
+
+    private void maybeFail() throws SQLException {
+        final double rate = this.failureRate;
+        if (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate) {
+            this.failures.increment();
+            throw new SQLException("Injected failure.", this.failureState);
+        }
+    }
+
+    private void reshape() {
+        final int[] sqlTypes = new int[this.types.size()];
+        for (int i = 0; i < sqlTypes.length; i++) {
+            sqlTypes[i] = this.types.get(i).intValue();
+        }
+        this.shape = new StubShape(this.labels.toArray(new String[0]), sqlTypes,
+            this.rowCount);
+    }
+
+    /**
+     * Spins for latencies under 100 microseconds, which {@code parkNanos} cannot honour
+     * accurately, and parks for longer ones.
+     */
+    private static void pause(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        final long end = System.nanoTime() + nanos;
+        if (nanos < SPIN_THRESHOLD) {
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return;
+        }
+        long remaining = nanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = end - System.nanoTime();
+        }
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest.stub;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * The JDBC objects of a {@link StubDataSource}, implemented as dynamic proxies.
+ *
+ * <p>Setters which are not otherwise handled are accepted and ignored, so parameters may be
+ * bound with any {@code setXxx} method. Any other method which is not handled throws
+ * {@code SQLFeatureNotSupportedException}. Calling a method of a closed connection, statement
+ * or result set throws {@code SQLException}, as a driver would.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class StubJdbc {
+
+    private static final Object UNHANDLED = new Object();
+
+    private StubJdbc() {
+    }
+
+    static Connection connection(StubDataSource ds) {
+        return proxy(Connection.class, new ConnectionHandler(ds));
+    }
+
+    private static <T> T proxy(Class<T> iface, Handler handler) {
+        final T proxy = iface.cast(Proxy.newProxyInstance(StubJdbc.class.getClassLoader(),
+            new Class<?>[] { iface }, handler));
+        handler.self = proxy;
+        return proxy;
+    }
+
+    private static boolean isQuery(String sql) {
+        final String trimmed = sql.stripLeading();
+        return trimmed.regionMatches(true, 0, "SELECT", 0, 6)
+            || trimmed.regionMatches(true, 0, "WITH", 0, 4)
+            || trimmed.regionMatches(true, 0, "VALUES", 0, 6);
+    }
+
+    /**
+     * Handles the methods common to every proxy, and rejects calls once closed.
+     */
+    private abstract static class Handler implements InvocationHandler {
+
+        Object self;
+        boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String name = method.getName();
+            switch (name) {
+                case "toString":
+                    return getClass().getSimpleName() + '@'
+                        + Integer.toHexString(System.identityHashCode(proxy));
+                case "hashCode":
+                    return Integer.valueOf(System.identityHashCode(proxy));
+                case "equals":
+                    return Boolean.valueOf(proxy == args[0]);
+                case "isClosed":
+                    return Boolean.valueOf(this.closed);
+                case "isWrapperFor":
+                    return Boolean.valueOf(((Class<?>) args[0]).isInstance(proxy));
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new SQLException("Not a wrapper for " + args[0]);
+                case "getWarnings":
+                    return null;
+                case "clearWarnings":
+                    return null;
+                default:
+                    break;
+            }
+            if (this.closed && !"close".equals(name)) {
+                throw new SQLException(getClass().getSimpleName() + " is closed.", "08003");
+            }
+
+            final Object result = handle(name, args == null ? new Object[0] : args);
+            if (result != UNHANDLED) {
+                return result;
+            }
+            if (method.getReturnType() == void.class && name.startsWith("set")) {
+                return null;
+            }
+            throw new SQLFeatureNotSupportedException(
+                method.getDeclaringClass().getSimpleName() + '.' + name);
+        }
+
+        abstract Object handle(String name, Object[] args) throws SQLException;
+    }
+
+    private static final class ConnectionHandler extends Handler {
+
+        private final StubDataSource ds;
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private int isolation = Connection.TRANSACTION_READ_COMMITTED;
+
+        ConnectionHandler(StubDataSource ds) {
+            this.ds = ds;
+        }
+
+        @Override
+        Object handle(String name, Object[] args) throws SQLException {
+            switch (name) {
+                case "prepareStatement":
+                case "createStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(this.ds,
+                        (Connection) this.self, args.length == 0 ? null : (String) args[0]));
+                case "setAutoCommit":
+                    this.autoCommit = ((Boolean) args[0]).booleanValue();
+                    return null;
+                case "getAutoCommit":
+                    return Boolean.valueOf(this.autoCommit);
+                case "commit":
+                    this.ds.commit();
+                    return null;
+                case "rollback":
+                    this.ds.rolledBack();
+                    return null;
+                case "setSavepoint":
+                    return proxy(Savepoint.class, new SavepointHandler());
+                case "releaseSavepoint":
+                    return null;
+                case "setTransactionIsolation":
+                    this.isolation = ((Integer) args[0]).intValue();
+                    return null;
+                case "getTransactionIsolation":
+                    return Integer.valueOf(this.isolation);
+                case "setReadOnly":
+                    this.readOnly = ((Boolean) args[0]).booleanValue();
+                    return null;
+                case "isReadOnly":
+                    return Boolean.valueOf(this.readOnly);
+                case "isValid":
+                    return Boolean.TRUE;
+                case "getMetaData":
+                    return proxy(DatabaseMetaData.class,
+                        new DatabaseMetaDataHandler((Connection) this.self));
+                case "nativeSQL":
+                    return args[0];
+                case "getHoldability":
+                    return Integer.valueOf(ResultSet.HOLD_CURSORS_OVER_COMMIT);
+                case "close":
+                    if (!this.closed) {
+                        this.closed = true;
+                        this.ds.closed();
+                    }
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+    }
+
+    private static final class StatementHandler extends Handler {
+
+        private final StubDataSource ds;
+        private final Connection conn;
+        private final String sql;
+        private int queryTimeout;
+        private int maxRows;
+        private int fetchSize;
+        private int batched;
+        private int updateCount = -1;
+        private ResultSet current;
+
+        StatementHandler(StubDataSource ds, Connection conn, String sql) {
+            this.ds = ds;
+            this.conn = conn;
+            this.sql = sql;
+        }
+
+        @Override
+        Object handle(String name, Object[] args) throws SQLException {
+            switch (name) {
+                case "executeQuery":
+                    this.ds.execute(this.queryTimeout);
+                    return query();
+                case "executeUpdate":
+                    this.ds.execute(this.queryTimeout);
+                    return Integer.valueOf(update());
+                case "executeLargeUpdate":
+                    this.ds.execute(this.queryTimeout);
+                    return Long.valueOf(update());
+                case "execute":
+                    this.ds.execute(this.queryTimeout);
+                    if (isQuery(args.length == 0 ? this.sql : (String) args[0])) {
+                        this.current = query();
+                        this.updateCount = -1;
+                        return Boolean.TRUE;
+                    }
+                    update();
+                    return Boolean.FALSE;
+                case "getResultSet":
+                    return this.current;
+                case "getUpdateCount":
+                    return Integer.valueOf(this.updateCount);
+                case "getMoreResults":
+                    this.current = null;
+                    this.updateCount = -1;
+                    return Boolean.FALSE;
+                case "addBatch":
+                    this.batched++;
+                    return null;
+                case "clearBatch":
+                    this.batched = 0;
+                    return null;
+                case "executeBatch":
+                    this.ds.execute(this.queryTimeout);
+                    final int[] counts = new int[this.batched];
+                    Arrays.fill(counts, this.ds.getUpdateCount());
+                    this.batched = 0;
+                    return counts;
+                case "getGeneratedKeys":
+                    return proxy(ResultSet.class, new ResultSetHandler(
+                        new StubShape("ID", this.ds.nextKey()), this.self, 0));
+                case "getParameterMetaData":
+                    return proxy(ParameterMetaData.class, new ParameterMetaDataHandler(
+                        this.sql == null ? 0 : (int) this.sql.chars().filter(c -> c == '?')
+                            .count()));
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class,
+                        new ResultSetMetaDataHandler(this.ds.getShape()));
+                case "setQueryTimeout":
+                    this.queryTimeout = ((Integer) args[0]).intValue();
+                    return null;
+                case "getQueryTimeout":
+                    return Integer.valueOf(this.queryTimeout);
+                case "setMaxRows":
+                    this.maxRows = ((Integer) args[0]).intValue();
+                    return null;
+                case "getMaxRows":
+                    return Integer.valueOf(this.maxRows);
+                case "setFetchSize":
+                    this.fetchSize = ((Integer) args[0]).intValue();
+                    return null;
+                case "getFetchSize":
+                    return Integer.valueOf(this.fetchSize);
+                case "getConnection":
+                    return this.conn;
+                case "close":
+                    this.closed = true;
+                    if (this.current != null) {
+                        this.current.close();
+                        this.current = null;
+                    }
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        private ResultSet query() {
+            return proxy(ResultSet.class,
+                new ResultSetHandler(this.ds.getShape(), this.self, this.maxRows));
+        }
+
+        private int update() {
+            this.updateCount = this.ds.getUpdateCount();
+            return this.updateCount;
+        }
+    }
+
+    private static final class ResultSetHandler extends Handler {
+
+        private final StubShape shape;
+        private final Object statement;
+        private final int limit;
+        private int row = -1;
+        private int fetchSize;
+        private boolean wasNull;
+
+        ResultSetHandler(StubShape shape, Object statement, int maxRows) {
+            this.shape = shape;
+            this.statement = statement;
+            this.limit = maxRows > 0 ? Math.min(maxRows, shape.getRowCount())
+                : shape.getRowCount();
+        }
+
+        @Override
+        Object handle(String name, Object[] args) throws SQLException {
+            switch (name) {
+                case "next":
+                    if (this.row < this.limit) {
+                        this.row++;
+                    }
+                    return Boolean.valueOf(this.row < this.limit);
+                case "isBeforeFirst":
+                    return Boolean.valueOf(this.row == -1 && this.limit > 0);
+                case "isAfterLast":
+                    return Boolean.valueOf(this.row >= this.limit && this.limit > 0);
+                case "getRow":
+                    return Integer.valueOf(this.row >= 0 && this.row < this.limit
+                        ? this.row + 1 : 0);
+                case "getObject":
+                    return args.length == 1 ? value(args[0])
+                        : convert(value(args[0]), (Class<?>) args[1]);
+                case "getLong":
+                    return Long.valueOf(number(args[0]).longValue());
+                case "getInt":
+                    return Integer.valueOf(number(args[0]).intValue());
+                case "getShort":
+                    return Short.valueOf(number(args[0]).shortValue());
+                case "getDouble":
+                    return Double.valueOf(number(args[0]).doubleValue());
+                case "getFloat":
+                    return Float.valueOf(number(args[0]).floatValue());
+                case "getBigDecimal":
+                    final Object decimal = value(args[0]);
+                    return decimal == null || decimal instanceof BigDecimal ? decimal
+                        : new BigDecimal(decimal.toString());
+                case "getBoolean":
+                    final Object bool = value(args[0]);
+                    return Boolean.valueOf(bool instanceof Boolean ? (Boolean) bool
+                        : bool != null && number(args[0]).longValue() != 0);
+                case "getString":
+                    final Object string = value(args[0]);
+                    return string == null ? null : string.toString();
+                case "getDate":
+                case "getTimestamp":
+                    return value(args[0]);
+                case "wasNull":
+                    return Boolean.valueOf(this.wasNull);
+                case "findColumn":
+                    return Integer.valueOf(column(args[0]) + 1);
+                case "getMetaData":
+                    return proxy(ResultSetMetaData.class,
+                        new ResultSetMetaDataHandler(this.shape));
+                case "setFetchSize":
+                    this.fetchSize = ((Integer) args[0]).intValue();
+                    return null;
+                case "getFetchSize":
+                    return Integer.valueOf(this.fetchSize);
+                case "getType":
+                    return Integer.valueOf(ResultSet.TYPE_FORWARD_ONLY);
+                case "getConcurrency":
+                    return Integer.valueOf(ResultSet.CONCUR_READ_ONLY);
+                case "getStatement":
+                    return this.statement;
+                case "close":
+                    this.closed = true;
+                    return null;
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        private Object value(Object column) throws SQLException {
+            if (this.row < 0 || this.row >= this.limit) {
+                throw new SQLException("The cursor is not on a row.", "24000");
+            }
+            final Object value = this.shape.getValue(this.row, column(column));
+            this.wasNull = value == null;
+            return value;
+        }
+
+        private static Object convert(Object value, Class<?> type) throws SQLException {
+            if (value == null || type.isInstance(value)) {
+                return value;
+            }
+            if (type == LocalDateTime.class && value instanceof Timestamp) {
+                return ((Timestamp) value).toLocalDateTime();
+            }
+            if (type == LocalDate.class && value instanceof Date) {
+                return ((Date) value).toLocalDate();
+            }
+            throw new SQLException("Cannot convert " + value.getClass().getName() + " to "
+                + type.getName(), "22018");
+        }
+
+        private Number number(Object column) throws SQLException {
+            final Object value = value(column);
+            if (value == null) {
+                return Integer.valueOf(0);
+            }
+            if (value instanceof Number) {
+                return (Number) value;
+            }
+            if (value instanceof Boolean) {
+                return Integer.valueOf(((Boolean) value).booleanValue() ? 1 : 0);
+            }
+            try {
+                return new BigDecimal(value.toString());
+            } catch (NumberFormatException e) {
+                throw new SQLException("Not a number: " + value, "22018", e);
+            }
+        }
+
+        private int column(Object column) throws SQLException {
+            final int index = column instanceof Integer ? ((Integer) column).intValue() - 1
+                : this.shape.indexOf((String) column);
+            if (index < 0 || index >= this.shape.getColumnCount()) {
+                throw new SQLException("Invalid column: " + column, "42S22");
+            }
+            return index;
+        }
+    }
+
+    private static final class ResultSetMetaDataHandler extends Handler {
+
+        private final StubShape shape;
+
+        ResultSetMetaDataHandler(StubShape shape) {
+            this.shape = shape;
+        }
+
+        @Override
+        Object handle(String name, Object[] args) throws SQLException {
+            if ("getColumnCount".equals(name)) {
+                return Integer.valueOf(this.shape.getColumnCount());
+            }
+            final int column = ((Integer) args[0]).intValue() - 1;
+            if (column < 0 || column >= this.shape.getColumnCount()) {
+                throw new SQLException("Invalid column index: " + args[0], "42S22");
+            }
+            final int type = this.shape.getType(column);
+            switch (name) {
+                case "getColumnLabel":
+                case "getColumnName":
+                    return this.shape.getLabel(column);
+                case "getColumnType":
+                    return Integer.valueOf(type);
+                case "getColumnTypeName":
+                    return StubShape.typeName(type);
+                case "getColumnClassName":
+                    return StubShape.javaType(type).getName();
+                case "getPrecision":
+                    return Integer.valueOf(precision(type));
+                case "getScale":
+                    return Integer.valueOf(type == Types.DECIMAL ? 2 : 0);
+                case "isNullable":
+                    return Integer.valueOf(ResultSetMetaData.columnNoNulls);
+                case "isSigned":
+                    return Boolean.valueOf(Number.class
+                        .isAssignableFrom(StubShape.javaType(type)));
+                case "isAutoIncrement":
+                case "isCaseSensitive":
+                case "isCurrency":
+                    return Boolean.FALSE;
+                case "getTableName":
+                    return "STUB";
+                case "getSchemaName":
+                case "getCatalogName":
+                    return "";
+                default:
+                    return UNHANDLED;
+            }
+        }
+
+        private static int precision(int type) {
+            switch (type) {
+                case Types.BIGINT:
+                case Types.DECIMAL:
+                    return 19;
+                case Types.INTEGER:
+                    return 10;
+                case Types.DOUBLE:
+                    return 17;
+                case Types.VARCHAR:
+                    return 255;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    private static final class ParameterMetaDataHandler extends Handler {
+
+        private final int count;
+
+        ParameterMetaDataHandler(int count) {
+            this.count = count;
+        }
+
+        @Override
+        Object handle(String name, Object[] args) {
+            return "getParameterCount".equals(name) ? Integer.valueOf(this.count) : UNHANDLED;
+        }
+    }
+
+    private static final class DatabaseMetaDataHandler extends Handler {
+
+        private final Connection conn;
+
+        DatabaseMetaDataHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        Object handle(String name, Object[] args) {
+            switch (name) {
+                case "getDatabaseProductName":
+                    return "Stub";
+                case "getDatabaseProductVersion":
+                case "getDriverVersion":
+                    return "1.0";
+                case "getDriverName":
+                    return "persist-stub";
+                case "getURL":
+                    return "jdbc:stub:";
+                case "getJDBCMajorVersion":
+                    return Integer.valueOf(4);
+                case "getJDBCMinorVersion":
+                    return Integer.valueOf(2);
+                case "getDefaultTransactionIsolation":
+                    return Integer.valueOf(Connection.TRANSACTION_READ_COMMITTED);
+                case "supportsBatchUpdates":
+                case "supportsGetGeneratedKeys":
+                case "supportsTransactions":
+                case "supportsTransactionIsolationLevel":
+                case "supportsSavepoints":
+                    return Boolean.TRUE;
+                case "supportsMultipleResultSets":
+                    return Boolean.FALSE;
+                case "getConnection":
+                    return this.conn;
+                default:
+                    return UNHANDLED;
+            }
+        }
+    }
+
+    private static final class SavepointHandler extends Handler {
+
+        @Override
+        Object handle(String name, Object[] args) {
+            switch (name) {
+                case "getSavepointId":
+                    return Integer.valueOf(1);
+                case "getSavepointName":
+                    return "stub";
+                default:
+                    return UNHANDLED;
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest.stub;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * The columns and the pre-generated rows returned by the queries of a {@link StubDataSource}.
+ *
+ * <p>Row {@code r} (from 0) holds: {@code r + 1} in a {@code BIGINT} column, {@code r % 1000}
+ * in an {@code INTEGER}, the lower-case label followed by {@code -(r + 1)} in a
+ * {@code VARCHAR}, {@code r / 2.0} in a {@code DOUBLE}, {@code r / 100} in a {@code DECIMAL},
+ * {@code r} is even in a {@code BOOLEAN}, and 1 January 2020 plus {@code r} days or seconds in
+ * a {@code DATE} or {@code TIMESTAMP}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class StubShape {
+
+    private static final LocalDate EPOCH = LocalDate.of(2020, 1, 1);
+    private static final long EPOCH_MILLIS = Timestamp.valueOf(EPOCH.atStartOfDay()).getTime();
+
+    private final String[] labels;
+    private final int[] types;
+    private final Object[][] rows;
+
+    /**
+     * Constructor.
+     *
+     * @param labels the upper-case column labels
+     * @param types the {@code java.sql.Types} of the columns
+     * @param rowCount the number of rows to generate
+     */
+    StubShape(String[] labels, int[] types, int rowCount) {
+        this.labels = labels;
+        this.types = types;
+        this.rows = new Object[rowCount][];
+        for (int r = 0; r < rowCount; r++) {
+            final Object[] row = new Object[types.length];
+            for (int c = 0; c < types.length; c++) {
+                row[c] = value(labels[c], types[c], r);
+            }
+            this.rows[r] = row;
+        }
+    }
+
+    /**
+     * Constructor for a single {@code BIGINT} row, such as a generated key.
+     *
+     * @param label the column label
+     * @param value the value
+     */
+    StubShape(String label, long value) {
+        this.labels = new String[] { label };
+        this.types = new int[] { Types.BIGINT };
+        this.rows = new Object[][] { { Long.valueOf(value) } };
+    }
+
+    static boolean isSupported(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.VARCHAR:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.BOOLEAN:
+            case Types.DATE:
+            case Types.TIMESTAMP:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    int getColumnCount() {
+        return this.labels.length;
+    }
+
+    String getLabel(int column) {
+        return this.labels[column];
+    }
+
+    int getType(int column) {
+        return this.types[column];
+    }
+
+    int getRowCount() {
+        return this.rows.length;
+    }
+
+    Object getValue(int row, int column) {
+        return this.rows[row][column];
+    }
+
+    /**
+     * Returns the 0-based index of the labelled column.
+     *
+     * @param label the column label, in any case
+     * @return int, or -1 if there is no such column
+     */
+    int indexOf(String label) {
+        for (int i = 0; i < this.labels.length; i++) {
+            if (this.labels[i].equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static String typeName(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+                return "BIGINT";
+            case Types.INTEGER:
+                return "INTEGER";
+            case Types.VARCHAR:
+                return "VARCHAR";
+            case Types.DOUBLE:
+                return "DOUBLE";
+            case Types.DECIMAL:
+                return "DECIMAL";
+            case Types.BOOLEAN:
+                return "BOOLEAN";
+            case Types.DATE:
+                return "DATE";
+            default:
+                return "TIMESTAMP";
+        }
+    }
+
+    static Class<?> javaType(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+                return Long.class;
+            case Types.INTEGER:
+                return Integer.class;
+            case Types.VARCHAR:
+                return String.class;
+            case Types.DOUBLE:
+                return Double.class;
+            case Types.DECIMAL:
+                return BigDecimal.class;
+            case Types.BOOLEAN:
+                return Boolean.class;
+            case Types.DATE:
+                return Date.class;
+            default:
+                return Timestamp.class;
+        }
+    }
+
+    private static Object value(String label, int sqlType, int row) {
+        switch (sqlType) {
+            case Types.BIGINT:
+                return Long.valueOf(row + 1L);
+            case Types.INTEGER:
+                return Integer.valueOf(row % 1000);
+            case Types.VARCHAR:
+                return label.toLowerCase() + '-' + (row + 1);
+            case Types.DOUBLE:
+                return Double.valueOf(row / 2.0);
+            case Types.DECIMAL:
+                return BigDecimal.valueOf(row, 2);
+            case Types.BOOLEAN:
+                return Boolean.valueOf(row % 2 == 0);
+            case Types.DATE:
+                return Date.valueOf(EPOCH.plusDays(row));
+            default:
+                return new Timestamp(EPOCH_MILLIS + row * 1000L);
+        }
+    }
+}
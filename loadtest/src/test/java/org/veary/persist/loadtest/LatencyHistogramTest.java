@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        Assert.assertEquals(histogram.getCount(), 100_000L);
+        Assert.assertEquals(histogram.getMax(), 100_000_000L);
+        assertClose(histogram.getPercentile(50), 50_000_000L);
+        assertClose(histogram.getPercentile(99), 99_000_000L);
+        assertClose(histogram.getPercentile(99.9), 99_900_000L);
+        Assert.assertEquals(histogram.getPercentile(100), 100_000_000L);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 100; value++) {
+            histogram.record(value);
+        }
+        Assert.assertEquals(histogram.getPercentile(50), 49L);
+        Assert.assertEquals(histogram.getPercentile(0), 0L);
+    }
+
+    @Test
+    public void addMergesCountsAndErrors() {
+        final LatencyHistogram first = new LatencyHistogram();
+        final LatencyHistogram second = new LatencyHistogram();
+        first.record(1_000);
+        second.record(5_000_000);
+        second.recordError();
+        first.add(second);
+        Assert.assertEquals(first.getCount(), 2L);
+        Assert.assertEquals(first.getErrors(), 1L);
+        Assert.assertEquals(first.getMax(), 5_000_000L);
+        Assert.assertEquals(first.getPercentile(50), 1_000L, 16.0);
+    }
+
+    @Test
+    public void loadTestRunsClosedAndOpenLoop() {
+        final LoadTestReport closed = new LoadTest().setThreads(2).setDuration(1).setWarmup(0)
+            .setPoolSize(2).setRows(100).setMix("query=1,find=1,count=1,transaction=1,batch=1")
+            .setUrl("jdbc:h2:mem:closed;DB_CLOSE_DELAY=-1").run();
+        Assert.assertTrue(closed.getTotal().getCount() > 0);
+        Assert.assertEquals(closed.getTotal().getErrors(), 0L);
+        Assert.assertEquals(closed.getOperations().size(), 5);
+
+        final LoadTestReport open = new LoadTest().setThreads(2).setRate(200).setDuration(1)
+            .setWarmup(0).setPoolSize(2).setRows(100).setMix("find=1")
+            .setUrl("jdbc:h2:mem:open;DB_CLOSE_DELAY=-1").run();
+        Assert.assertEquals(open.getTotal().getCount(), 200L, 2.0);
+        Assert.assertEquals(open.getTotal().getErrors(), 0L);
+    }
+
+    private static void assertClose(long actual, long expected) {
+        Assert.assertEquals(actual, expected, expected * 0.02);
+    }
+}
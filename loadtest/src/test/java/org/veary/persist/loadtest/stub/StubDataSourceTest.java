@@ -0,0 +1,99 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.loadtest.stub;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Types;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.PersistenceException;
+import org.veary.persist.loadtest.OverheadBenchmark;
+
+public class StubDataSourceTest {
+
+    private static final SqlStatement QUERY = SqlStatement.newInstance("SELECT * FROM stub");
+
+    @Test
+    public void queryReturnsSyntheticRows() {
+        final StubDataSource ds = new StubDataSource().addColumn("ID", Types.BIGINT)
+            .addColumn("NAME", Types.VARCHAR).setRowCount(3);
+        final List<Object> rows = new PersistenceManagerFactory(ds).createQueryManager()
+            .createQuery(QUERY, OverheadBenchmark.Row.class).execute().getResultList();
+
+        Assert.assertEquals(rows.size(), 3);
+        final OverheadBenchmark.Row last = (OverheadBenchmark.Row) rows.get(2);
+        Assert.assertEquals(last.values().get("ID"), Long.valueOf(3));
+        Assert.assertEquals(last.values().get("NAME"), "name-3");
+        Assert.assertEquals(ds.getExecutions(), 1L);
+        Assert.assertEquals(ds.getOpenConnections(), 0L);
+    }
+
+    @Test
+    public void injectedFailureReleasesConnection() {
+        final StubDataSource ds = new StubDataSource().setFailureRate(1, "40001");
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(ds);
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            Assert.assertThrows(PersistenceException.class, () -> txManager.persist(
+                SqlStatement.newInstance("UPDATE stub SET name = 'x'")));
+        }
+        Assert.assertEquals(ds.getFailures(), 1L);
+        Assert.assertEquals(ds.getRollbacks(), 1L);
+        Assert.assertEquals(ds.getOpenConnections(), 0L);
+    }
+
+    @Test
+    public void queryTimeoutIsHonoured() throws SQLException {
+        final StubDataSource ds = new StubDataSource().addColumn("ID", Types.BIGINT)
+            .setExecuteLatency(5, TimeUnit.SECONDS);
+        try (Connection conn = ds.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(QUERY.toString())) {
+            stmt.setQueryTimeout(1);
+            final long start = System.nanoTime();
+            final SQLTimeoutException e = Assert.expectThrows(SQLTimeoutException.class,
+                stmt::executeQuery);
+            Assert.assertEquals(e.getSQLState(), "57014");
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(3));
+        }
+    }
+
+    @Test
+    public void closedConnectionRejectsCalls() throws SQLException {
+        final Connection conn = new StubDataSource().getConnection();
+        conn.close();
+        Assert.assertTrue(conn.isClosed());
+        Assert.assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+    }
+}
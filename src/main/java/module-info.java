@@ -24,10 +24,13 @@
 
 module org.veary.persist {
     exports org.veary.persist;
+    exports org.veary.persist.columnar;
     exports org.veary.persist.exceptions;
+    exports org.veary.persist.mapping;
 
     requires javax.inject;
     requires org.apache.logging.log4j;
+    requires jdk.jfr;
 
     requires transitive java.sql;
     requires java.naming;
@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+import java.util.List;
+
+/**
+ * The outcome of a {@link BulkLoader#load} operation.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface BulkLoadResult {
+
+    /**
+     * Returns the number of rows which were inserted and committed.
+     *
+     * @return long
+     */
+    long getRowsLoaded();
+
+    /**
+     * Returns the rows which were not loaded, ordered by line number.
+     *
+     * @return unmodifiable {@link List}. Cannot be {@code null}
+     */
+    List<RejectedRow> getRejectedRows();
+
+    /**
+     * Returns the total wall-clock time of the load in milliseconds.
+     *
+     * @return long
+     */
+    long getElapsedMillis();
+
+    /**
+     * A single row which was rejected by the parser or the database.
+     */
+    interface RejectedRow {
+
+        /**
+         * Returns the line number of the row within the file. The first line is 1.
+         *
+         * @return long
+         */
+        long getLineNumber();
+
+        /**
+         * Returns the raw content of the line.
+         *
+         * @return {@code String}
+         */
+        String getLine();
+
+        /**
+         * Returns the reason the row was rejected.
+         *
+         * @return {@code String}
+         */
+        String getReason();
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+import java.nio.file.Path;
+
+/**
+ * <b>Purpose:</b> loads delimited (CSV) files into a table using parallel, batched inserts.
+ *
+ * <p><b>Responsibility:</b> the input file is memory-mapped and split on record boundaries
+ * into one chunk per partition. Each partition is parsed on its own fork-join worker and
+ * written through its own {@code Connection} in JDBC batches, committing every
+ * {@link #setCommitInterval(int)} rows. Rows which cannot be parsed, or which the database
+ * rejects, are reported in the {@link BulkLoadResult} rather than failing the load.
+ *
+ * <p><b>Note:</b> records must not contain embedded line breaks, even within quoted fields.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * BulkLoadResult result = factory.createBulkLoader()
+ *     .setPartitions(4)
+ *     .setBatchSize(500)
+ *     .setCommitInterval(10000)
+ *     .load(Paths.get("accounts.csv"),
+ *         SqlStatement.newInstance("INSERT INTO debs.account(id, name) VALUES(?, ?)"));
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface BulkLoader {
+
+    /**
+     * Sets the number of partitions loaded concurrently, each on its own connection. Defaults
+     * to the number of available processors.
+     *
+     * @param partitions must be greater than 0
+     * @return the value of the {@code BulkLoader} itself
+     */
+    BulkLoader setPartitions(int partitions);
+
+    /**
+     * Sets the number of rows sent to the database in each JDBC batch. Defaults to 500.
+     *
+     * @param batchSize must be greater than 0
+     * @return the value of the {@code BulkLoader} itself
+     */
+    BulkLoader setBatchSize(int batchSize);
+
+    /**
+     * Sets the number of rows after which each partition commits its transaction. Defaults to
+     * 10,000.
+     *
+     * @param commitInterval must be greater than 0
+     * @return the value of the {@code BulkLoader} itself
+     */
+    BulkLoader setCommitInterval(int commitInterval);
+
+    /**
+     * Sets the field delimiter. Defaults to a comma.
+     *
+     * @param delimiter must be a single-byte (ASCII) character other than a quote or line
+     *     break
+     * @return the value of the {@code BulkLoader} itself
+     */
+    BulkLoader setDelimiter(char delimiter);
+
+    /**
+     * Sets whether the first line of the file is a header which should not be loaded.
+     * Defaults to {@code false}.
+     *
+     * @param skipHeader {@code true} to skip the first line
+     * @return the value of the {@code BulkLoader} itself
+     */
+    BulkLoader setSkipHeader(boolean skipHeader);
+
+    /**
+     * Sets the class of work done by the loader's connections, which decides their share of
+     * connections when {@link PersistenceManagerFactory#setBulkheadCapacity(int, long)
+     * bulkheads} are enabled. Defaults to {@link WorkloadClass#BATCH}.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @return the value of the {@code BulkLoader} itself
+     */
+    BulkLoader setWorkloadClass(WorkloadClass workloadClass);
+
+    /**
+     * Loads the designated file. The fields of each record are bound, in order, to the IN
+     * parameters of the given statement. An empty, unquoted field is bound as SQL
+     * {@code NULL}.
+     *
+     * @param file the UTF-8 encoded file to load
+     * @param statement an INSERT (or other DML) statement with one '?' per field. Any
+     *     parameters already set on it are ignored.
+     * @return {@link BulkLoadResult}. Cannot be {@code null}.
+     */
+    BulkLoadResult load(Path file, SqlStatement statement);
+}
@@ -0,0 +1,50 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+/**
+ * <b>Purpose:</b> is told about each transaction committed by the {@link TransactionManager}s
+ * of a {@link PersistenceManagerFactory}.
+ *
+ * <p><b>Responsibility:</b> listeners are called after the commit has completed, on the
+ * factory's single dispatch thread, in commit order. A slow listener delays the others, and
+ * once the factory's buffer is full either delays committing threads or loses events,
+ * depending on the {@link OverflowPolicy}. An exception thrown by a listener is logged and
+ * does not affect the other listeners.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ * @see PersistenceManagerFactory#addCommitListener(CommitListener)
+ */
+@FunctionalInterface
+public interface CommitListener {
+
+    /**
+     * Called after a transaction which wrote to the database has been committed.
+     *
+     * @param transaction {@link CommittedTransaction}
+     */
+    void onCommit(CommittedTransaction transaction);
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A record of the writes made by a committed transaction, delivered to each
+ * {@link CommitListener}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface CommittedTransaction {
+
+    /**
+     * Returns the tables written to. If the table of any write could not be determined, this
+     * set is incomplete: see {@link #isComplete()}.
+     *
+     * @return unmodifiable {@code Set<String>} of upper-case, possibly schema-qualified, table
+     *     names
+     */
+    Set<String> getTables();
+
+    /**
+     * Returns {@code true} if the table of every write is known, so that {@link #getTables()}
+     * names every table which may have changed.
+     *
+     * @return boolean
+     */
+    boolean isComplete();
+
+    /**
+     * Returns the writes of the transaction, in the order they were made.
+     *
+     * @return unmodifiable {@code List<Write>}
+     */
+    List<Write> getWrites();
+
+    /**
+     * Returns the time of the commit, in milliseconds since the epoch.
+     *
+     * @return long
+     */
+    long getCommitTimeMillis();
+
+    /**
+     * A single write: a statement, a batch or an entity.
+     */
+    interface Write {
+
+        /**
+         * Returns the leading keyword of the statement, such as {@code INSERT},
+         * {@code UPDATE}, {@code DELETE} or {@code MERGE}.
+         *
+         * @return {@code String}
+         */
+        String getKind();
+
+        /**
+         * Returns the table written to.
+         *
+         * @return the upper-case, possibly schema-qualified, table name, or {@code null} if it
+         *     could not be determined
+         */
+        String getTable();
+
+        /**
+         * Returns the row count reported by the driver.
+         *
+         * @return int
+         */
+        int getRowCount();
+
+        /**
+         * Returns the key generated by the write.
+         *
+         * @return {@code Long} the generated key, otherwise 0
+         */
+        Long getGeneratedKey();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+/**
+ * <b>Purpose:</b> a second-level cache of entities shared by all of the managers of a
+ * {@link PersistenceManagerFactory}.
+ *
+ * <p><b>Responsibility:</b> holds mapped entities keyed by entity interface and key, so that a
+ * hit skips both the database and the entity's {@code newInstance} method. It is populated
+ * and read by {@link QueryManager#find} and {@link TransactionManager#find}; entities must
+ * therefore be immutable.
+ *
+ * <p>The cache is bounded in size. New entries are first held in a small LRU window, and only
+ * admitted to the main region if they have been requested more often than the entry they
+ * would replace (W-TinyLFU). The entries of a table are invalidated when a transaction which
+ * wrote to it commits. The cache is disabled until {@link #setMaximumSize(long)} is called.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * factory.getEntityCache()
+ *     .setMaximumSize(10000)
+ *     .setTimeToLive(Currency.class, 3600000);
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface EntityCache {
+
+    /**
+     * Sets the maximum number of entities held. Defaults to 0, which disables the cache.
+     *
+     * @param maximumSize must not be negative
+     * @return the value of the {@code EntityCache} itself
+     */
+    EntityCache setMaximumSize(long maximumSize);
+
+    /**
+     * Sets the time, in milliseconds, for which entities of the designated type remain valid
+     * after they are loaded. By default entities do not expire.
+     *
+     * @param entityInterface the interface of the entity
+     * @param millis the time to live, or 0 for no expiry
+     * @return the value of the {@code EntityCache} itself
+     */
+    EntityCache setTimeToLive(Class<?> entityInterface, long millis);
+
+    /**
+     * Removes the designated entity, whichever column it was looked up by.
+     *
+     * @param entityInterface the interface of the entity
+     * @param key the key of the entity
+     */
+    void evict(Class<?> entityInterface, Object key);
+
+    /**
+     * Removes all of the entities of the designated type.
+     *
+     * @param entityInterface the interface of the entity
+     */
+    void evictAll(Class<?> entityInterface);
+
+    /**
+     * Removes all of the entities.
+     */
+    void clear();
+
+    /**
+     * Returns the number of entities held.
+     *
+     * @return long
+     */
+    long size();
+
+    /**
+     * Returns the number of lookups which were answered by the cache.
+     *
+     * @return long
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups which were not answered by the cache.
+     *
+     * @return long
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of entities removed to keep the cache within its maximum size.
+     *
+     * @return long
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the ratio of hits to lookups.
+     *
+     * @return a value between 0 and 1, or 0 if there have been no lookups
+     */
+    double getHitRatio();
+}
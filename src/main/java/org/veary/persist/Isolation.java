@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+import java.sql.Connection;
+
+/**
+ * <b>Purpose:</b> the transaction isolation levels which may be requested when a transaction
+ * is begun.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ * @see TransactionManager#begin(Isolation, boolean)
+ */
+public enum Isolation {
+
+    /**
+     * Leaves the connection at whatever level it already has.
+     */
+    DEFAULT(-1),
+
+    /**
+     * {@link Connection#TRANSACTION_READ_UNCOMMITTED}.
+     */
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+
+    /**
+     * {@link Connection#TRANSACTION_READ_COMMITTED}.
+     */
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+
+    /**
+     * {@link Connection#TRANSACTION_REPEATABLE_READ}.
+     */
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+
+    /**
+     * {@link Connection#TRANSACTION_SERIALIZABLE}.
+     */
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    private final int level;
+
+    Isolation(int level) {
+        this.level = level;
+    }
+
+    /**
+     * Returns the JDBC isolation level constant.
+     *
+     * @return int, or -1 for {@link #DEFAULT}
+     */
+    public int getLevel() {
+        return this.level;
+    }
+}
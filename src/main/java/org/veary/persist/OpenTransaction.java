@@ -0,0 +1,60 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+/**
+ * <b>Purpose:</b> a snapshot of a transaction which has been begun, but not yet committed or
+ * rolled back.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ * @see PersistenceManagerFactory#getOpenTransactions()
+ */
+public interface OpenTransaction {
+
+    /**
+     * Returns the time, in milliseconds, since {@link TransactionManager#begin()} was called.
+     *
+     * @return long
+     */
+    long getAgeMillis();
+
+    /**
+     * Returns the name of the thread which began the transaction.
+     *
+     * @return {@code String}
+     */
+    String getThreadName();
+
+    /**
+     * Returns the stack trace of the call to {@link TransactionManager#begin()}. The stack is
+     * only recorded while leak detection is enabled.
+     *
+     * @return {@code StackTraceElement[]}, empty if it was not recorded. Cannot be
+     *     {@code null}.
+     * @see PersistenceManagerFactory#setLeakDetectionThreshold(long)
+     */
+    StackTraceElement[] getStackTrace();
+}
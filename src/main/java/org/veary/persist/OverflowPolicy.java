@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+/**
+ * <b>Purpose:</b> what happens to a commit event when the buffer of events waiting for the
+ * {@link CommitListener}s is full.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ * @see PersistenceManagerFactory#setCommitEventBuffer(int, OverflowPolicy)
+ */
+public enum OverflowPolicy {
+
+    /**
+     * The event is discarded and counted, and the committing thread continues.
+     */
+    DROP,
+
+    /**
+     * The committing thread waits until there is room for the event, or until the factory is
+     * closed. A commit made by a listener, on the dispatch thread, is treated as {@link #DROP}
+     * instead, since that thread would otherwise wait for itself.
+     */
+    BLOCK
+}
@@ -0,0 +1,124 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * A SELECT query which is split into partitions that are executed concurrently, each on its
+ * own pooled connection.
+ *
+ * <p>The statement is wrapped as a derived table and each partition adds a predicate on the
+ * designated (numeric) partitioning column, either a half-open range or a hash bucket. The
+ * partitions are disjoint. Hash partitions together return exactly the rows of the original
+ * statement; range partitions return those of its rows which fall within the range.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * PartitionedQuery query = manager.createPartitionedQuery(statement, Account.class);
+ * List&lt;Object&gt; accounts = query.byRange("ID", 0, 1_000_000, 8)
+ *     .orderBy("ID")
+ *     .execute()
+ *     .getResultList(Comparator.comparing(o -&gt; ((Account) o).getId()));
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface PartitionedQuery {
+
+    /**
+     * Partitions the query into equal ranges of the designated column over
+     * {@code [from, to)}. Rows outside of this range, including those where the column is
+     * {@code NULL}, are not returned.
+     *
+     * @param column the name of a numeric column in the result of the statement
+     * @param from the inclusive lower bound
+     * @param to the exclusive upper bound
+     * @param partitions the number of partitions
+     * @return the current {@code PartitionedQuery} object
+     */
+    PartitionedQuery byRange(String column, long from, long to, int partitions);
+
+    /**
+     * Partitions the query into {@code buckets} partitions by the value of the designated
+     * column modulo {@code buckets}. Rows where the column is {@code NULL} are returned by
+     * the first bucket.
+     *
+     * @param column the name of an integral column in the result of the statement
+     * @param buckets the number of partitions
+     * @return the current {@code PartitionedQuery} object
+     */
+    PartitionedQuery byHash(String column, int buckets);
+
+    /**
+     * Sets the order in which each partition returns its rows, so that
+     * {@link #getResultList(Comparator)} only has to merge them. The order must agree with the
+     * {@code Comparator} given to that method.
+     *
+     * @param columns the names of columns in the result of the statement, each optionally
+     *     followed by {@code ASC} or {@code DESC}
+     * @return the current {@code PartitionedQuery} object
+     */
+    PartitionedQuery orderBy(String... columns);
+
+    /**
+     * Sets the {@code Executor} on which the partitions are run. By default a thread pool is
+     * created for, and shut down after, each execution.
+     *
+     * @param executor {@link Executor}
+     * @return the current {@code PartitionedQuery} object
+     */
+    PartitionedQuery setExecutor(Executor executor);
+
+    /**
+     * Starts executing the partitions. This method does not wait for them to complete.
+     *
+     * @return the current {@code PartitionedQuery} object
+     */
+    PartitionedQuery execute();
+
+    /**
+     * Returns the results, in no particular order. The results of each partition are
+     * delivered as soon as that partition completes.
+     *
+     * @return {@link Stream}. Cannot be {@code null}
+     */
+    Stream<Object> getResultStream();
+
+    /**
+     * Waits for all of the partitions and returns their results merged into the order defined
+     * by the given {@code Comparator}. If no order was set with {@link #orderBy(String...)},
+     * each partition is first sorted in memory.
+     *
+     * @param comparator defines the order of the entities
+     * @return unmodifiable {@link List}. Cannot be {@code null}
+     */
+    List<Object> getResultList(Comparator<Object> comparator);
+}
@@ -24,12 +24,23 @@
 
 package org.veary.persist;
 
+import java.util.List;
+
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import javax.sql.DataSource;
 
+import org.veary.persist.internal.BatchSizeTuner;
+import org.veary.persist.internal.BulkLoaderImpl;
+import org.veary.persist.internal.Bulkheads;
+import org.veary.persist.internal.CommitDispatcher;
+import org.veary.persist.internal.ConcurrencyLimiter;
+import org.veary.persist.internal.EntityCacheImpl;
+import org.veary.persist.internal.LimitedDataSource;
 import org.veary.persist.internal.QueryManagerImpl;
 import org.veary.persist.internal.TransactionManagerImpl;
+import org.veary.persist.internal.TransactionRegistry;
+import org.veary.persist.internal.WarmUpImpl;
 
 /**
  * <b>Purpose:</b> factory for all the manager classes.
@@ -41,11 +52,20 @@ import org.veary.persist.internal.TransactionManagerImpl;
  * @see QueryManager
  * @see TransactionManager
  * @see CallableManager
+ * @see BulkLoader
  */
 @Singleton
 public final class PersistenceManagerFactory {
 
     private final DataSource ds;
+    private final DataSource limited;
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter();
+    private final Bulkheads bulkheads = new Bulkheads();
+    private final TransactionRegistry registry = new TransactionRegistry();
+    private final EntityCacheImpl cache = new EntityCacheImpl();
+    private final BatchSizeTuner tuner = new BatchSizeTuner();
+    private final CommitDispatcher dispatcher = new CommitDispatcher();
+    private volatile boolean warmedUp;
 
     /**
      * Constructor.
@@ -55,6 +75,7 @@ public final class PersistenceManagerFactory {
     @Inject
     public PersistenceManagerFactory(DataSource ds) {
         this.ds = ds;
+        this.limited = new LimitedDataSource(ds, this.limiter);
     }
 
     /**
@@ -63,7 +84,7 @@ public final class PersistenceManagerFactory {
      * @return new instance of {@link QueryManager}
      */
     public QueryManager createQueryManager() {
-        return new QueryManagerImpl(this.ds);
+        return new QueryManagerImpl(this.limited, this.cache, this.bulkheads);
     }
 
     /**
@@ -72,7 +93,242 @@ public final class PersistenceManagerFactory {
      * @return new instance of {@link TransactionManager}
      */
     public TransactionManager createTransactionManager() {
-        return new TransactionManagerImpl(this.ds);
+        return new TransactionManagerImpl(this.limited, this.registry, this.cache, this.tuner,
+            this.dispatcher, this.bulkheads);
+    }
+
+    /**
+     * Sets the age, in milliseconds, after which a transaction which has not been committed or
+     * rolled back is logged as a possible connection leak, together with the stack trace of
+     * its {@code begin()}. Recording the stack trace has a cost, so this is disabled by
+     * default.
+     *
+     * @param millis the threshold, or 0 to disable leak detection
+     */
+    public void setLeakDetectionThreshold(long millis) {
+        this.registry.setLeakDetectionThreshold(millis);
+    }
+
+    /**
+     * Sets the age, in milliseconds, after which a transaction which has not been committed or
+     * rolled back is rolled back and its connection is closed. Subsequent calls on its
+     * {@link TransactionManager} throw an {@code IllegalStateException}. Disabled by default.
+     *
+     * @param millis the maximum duration, or 0 to disable
+     */
+    public void setMaxTransactionDuration(long millis) {
+        this.registry.setMaxTransactionDuration(millis);
+    }
+
+    /**
+     * Returns the transactions begun by {@link TransactionManager}s of this factory which have
+     * not yet been committed or rolled back, oldest first.
+     *
+     * @return {@code List<OpenTransaction>}. Cannot be {@code null}.
+     */
+    public List<OpenTransaction> getOpenTransactions() {
+        return this.registry.getOpenTransactions();
+    }
+
+    /**
+     * Returns the {@link EntityCache} shared by the managers of this factory. It is disabled
+     * until its maximum size is set.
+     *
+     * @return {@link EntityCache}
+     */
+    public EntityCache getEntityCache() {
+        return this.cache;
+    }
+
+    /**
+     * Enables auto-tuning of the JDBC batch size used by
+     * {@link TransactionManager#persistAll(SqlStatement, List)} and
+     * {@link TransactionManager#upsert(String, List, List)}. Each statement starts with a batch
+     * of 500 rows, clamped to the range, which grows while the execution time per row holds
+     * steady and is halved when a batch fails or slows down. Disabled by default, in which
+     * case every batch has 500 rows.
+     *
+     * @param min the smallest batch size, or 0 to disable
+     * @param max the largest batch size, or 0 to disable
+     */
+    public void setBatchSizeRange(int min, int max) {
+        this.tuner.setRange(min, max);
+    }
+
+    /**
+     * Returns the batch sizes chosen by auto-tuning, one per statement.
+     *
+     * @return {@code List<BatchTuning>}. Cannot be {@code null}.
+     */
+    public List<BatchTuning> getBatchTunings() {
+        return this.tuner.getTunings();
+    }
+
+    /**
+     * Limits the number of queries and transactions of this factory's managers which hold a
+     * connection at the same time. The limit starts at 20, clamped to the range, and adapts
+     * to the time connections are held outside a transaction (a transaction's hold time
+     * includes the caller's own work, so it is not sampled): it shrinks while that time rises
+     * well above its long-term average, and grows while it holds steady and the limit is in
+     * use. An operation which would exceed the limit waits for at most {@code maxWaitMillis}
+     * and is then refused with a {@link org.veary.persist.exceptions.SaturatedException}.
+     * Queries which run on the connection of an active transaction are not limited again.
+     * Disabled by default.
+     *
+     * @param min the smallest limit, or 0 to disable
+     * @param max the largest limit, or 0 to disable
+     * @param maxWaitMillis the longest time an operation waits for capacity, or 0 to fail
+     *     immediately
+     */
+    public void setConcurrencyLimit(int min, int max, long maxWaitMillis) {
+        this.limiter.setLimits(min, max, maxWaitMillis);
+    }
+
+    /**
+     * Returns the current concurrency limit, or 0 if it is disabled.
+     *
+     * @return int
+     */
+    public int getConcurrencyLimit() {
+        return this.limiter.getLimit();
+    }
+
+    /**
+     * Returns the number of operations refused because the concurrency limit was reached.
+     *
+     * @return long
+     */
+    public long getRejectedOperations() {
+        return this.limiter.getRejected();
+    }
+
+    /**
+     * Enables bulkheads, which divide the designated number of connections between the
+     * {@link WorkloadClass}es of this factory's query and transaction managers. Each class
+     * holds at most its ceiling of connections, and may only borrow the connections reserved
+     * for other classes while they do not need them; see
+     * {@link #setBulkhead(WorkloadClass, int, int)}. When connections are contended, they are
+     * handed to the waiting operations of the highest priority class first. An operation
+     * which cannot get a connection within {@code maxWaitMillis} is refused with a
+     * {@link org.veary.persist.exceptions.SaturatedException}. The capacity should not exceed
+     * the size of the connection pool. Disabled by default.
+     *
+     * @param connections the number of connections, or 0 to disable
+     * @param maxWaitMillis the longest time an operation waits for a connection
+     */
+    public void setBulkheadCapacity(int connections, long maxWaitMillis) {
+        this.bulkheads.setCapacity(connections, maxWaitMillis);
+    }
+
+    /**
+     * Sets the share of the bulkhead capacity of a {@link WorkloadClass}. By default a class
+     * has no reserved connections and no ceiling.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @param reserved the number of connections kept for this class, which must not take the
+     *     total reserved by all classes above the capacity
+     * @param max the most connections this class may hold; must be greater than 0 and not
+     *     less than {@code reserved}
+     */
+    public void setBulkhead(WorkloadClass workloadClass, int reserved, int max) {
+        this.bulkheads.setShare(workloadClass, reserved, max);
+    }
+
+    /**
+     * Returns the number of connections currently held by a {@link WorkloadClass} while
+     * bulkheads are enabled.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @return int
+     */
+    public int getConnectionsInUse(WorkloadClass workloadClass) {
+        return this.bulkheads.getInUse(workloadClass);
+    }
+
+    /**
+     * Adds a listener which is told, asynchronously, of every transaction committed by the
+     * {@link TransactionManager}s of this factory which wrote to the database. Transactions
+     * begun before the first listener is added may not be reported.
+     *
+     * @param listener {@link CommitListener}
+     */
+    public void addCommitListener(CommitListener listener) {
+        this.dispatcher.addListener(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addCommitListener(CommitListener)}.
+     *
+     * @param listener {@link CommitListener}
+     */
+    public void removeCommitListener(CommitListener listener) {
+        this.dispatcher.removeListener(listener);
+    }
+
+    /**
+     * Sets the number of committed transactions which may wait to be delivered to the
+     * listeners, and what a committing thread does when that many are waiting. Defaults to
+     * 1,024 and {@link OverflowPolicy#DROP}. Must be called before the first listener is
+     * added.
+     *
+     * @param capacity must be greater than 0
+     * @param policy {@link OverflowPolicy}
+     */
+    public void setCommitEventBuffer(int capacity, OverflowPolicy policy) {
+        this.dispatcher.setBuffer(capacity, policy);
+    }
+
+    /**
+     * Returns the number of committed transactions which were not delivered to the listeners
+     * because the buffer was full.
+     *
+     * @return long
+     */
+    public long getDroppedCommitEvents() {
+        return this.dispatcher.getDropped();
+    }
+
+    /**
+     * Returns a new instance of the {@link BulkLoader}. Its connections are subject to the
+     * concurrency limit and, unless it is given another class, to the
+     * {@link WorkloadClass#BATCH} bulkhead.
+     *
+     * @return new instance of {@link BulkLoader}
+     */
+    public BulkLoader createBulkLoader() {
+        return new BulkLoaderImpl(this.limited, this.bulkheads);
+    }
+
+    /**
+     * Returns a new {@link WarmUp}, which is used to prepare this factory for traffic at
+     * startup.
+     *
+     * @return new instance of {@link WarmUp}
+     */
+    public WarmUp createWarmUp() {
+        return new WarmUpImpl(this.ds,
+            new QueryManagerImpl(this.limited, this.cache, this.bulkheads),
+            () -> this.warmedUp = true);
+    }
+
+    /**
+     * Tests if a {@link WarmUp} created by this factory has completed.
+     *
+     * @return {@code true} if this factory has been warmed up, otherwise {@code false}
+     */
+    public boolean isWarmedUp() {
+        return this.warmedUp;
+    }
+
+    /**
+     * Stops the background threads of this factory: the transaction reaper started by
+     * {@link #setLeakDetectionThreshold(long)} or {@link #setMaxTransactionDuration(long)},
+     * whose thresholds are reset to 0, and the dispatch thread of the commit listeners, which
+     * are removed. Open transactions are left as they are. The factory may still be used.
+     */
+    public void close() {
+        this.registry.close();
+        this.dispatcher.close();
     }
 
     /**
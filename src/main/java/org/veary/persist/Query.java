@@ -25,6 +25,11 @@
 package org.veary.persist;
 
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.LongStream;
+
+import org.veary.persist.columnar.ColumnarResult;
 
 /**
  * Handles SQL statement which return 0 or more results..
@@ -48,14 +53,141 @@ public interface Query {
      * <p><b>Note:</b> the actual type of {@code Object} returned is an implementation of
      * interface passed to the constructor implementing this interface.
      *
+     * <p>{@link #execute()} fetches every row before this method can check that there is only
+     * one; {@link #executeSingleResult()} stops after the second row.
+     *
      * @return {@link Object}
      */
     Object getSingleResult();
 
     /**
-     * Returns the query's results as a List.
+     * Executes this SELECT query, which must return a single row, and returns its result as
+     * {@link #getSingleResult()} would. At most two rows are fetched, so a query which matches
+     * many rows fails as soon as the second is read. This method does not require, nor affect,
+     * {@link #execute()}.
+     *
+     * @return {@link Object}
+     * @throws org.veary.persist.exceptions.NoResultException if the query returns no rows
+     * @throws org.veary.persist.exceptions.NonUniqueResultException if the query returns more
+     *     than one row
+     */
+    Object executeSingleResult();
+
+    /**
+     * Executes this SELECT query and tests whether it returns at least one row. Only the first
+     * row is fetched. This method does not require, nor affect, {@link #execute()}.
+     *
+     * @return {@code true} if the query returns one or more rows, otherwise {@code false}
+     */
+    boolean exists();
+
+    /**
+     * Returns the query's results as a List. Each entity is created from its row the first
+     * time it is accessed, so reading part of a large result only pays for that part.
      *
      * @return unmodifiable {@link List}. Cannot be {@code null}
      */
     List<Object> getResultList();
+
+    /**
+     * Executes this SELECT query and returns all of its rows in columnar form. Numeric columns
+     * are read with primitive getters into primitive arrays, without creating an entity or
+     * {@code Map} per row.
+     *
+     * <p>This method does not require, nor affect, {@link #execute()}. An empty result is
+     * returned as a {@code ColumnarResult} with no rows.
+     *
+     * @return {@link ColumnarResult}. Cannot be {@code null}
+     */
+    ColumnarResult executeColumnar();
+
+    /**
+     * Executes this SELECT query, which must return a single row, and returns its first column
+     * as a {@code long}.
+     *
+     * <p>This, and the other scalar and single-column methods, read the first column by index
+     * with the primitive JDBC getter; no {@code Map} or entity is created. They do not require,
+     * nor affect, {@link #execute()}. At most two rows are fetched.
+     *
+     * @return the value, or 0 if the value is SQL {@code NULL}
+     * @throws org.veary.persist.exceptions.NoResultException if the query returns no rows
+     * @throws org.veary.persist.exceptions.NonUniqueResultException if the query returns more
+     *     than one row
+     */
+    long getSingleLong();
+
+    /**
+     * Executes this SELECT query, which must return a single row, and returns its first column
+     * as an {@code int}.
+     *
+     * @return the value, or 0 if the value is SQL {@code NULL}
+     * @throws org.veary.persist.exceptions.NoResultException if the query returns no rows
+     * @throws org.veary.persist.exceptions.NonUniqueResultException if the query returns more
+     *     than one row
+     * @see #getSingleLong()
+     */
+    int getSingleInt();
+
+    /**
+     * Executes this SELECT query, which must return a single row, and returns its first column
+     * as a {@code String}.
+     *
+     * @return the value, or {@code null} if the value is SQL {@code NULL}
+     * @throws org.veary.persist.exceptions.NoResultException if the query returns no rows
+     * @throws org.veary.persist.exceptions.NonUniqueResultException if the query returns more
+     *     than one row
+     * @see #getSingleLong()
+     */
+    String getSingleString();
+
+    /**
+     * Executes this SELECT query and returns the first column of every row as a {@code long}.
+     * SQL {@code NULL} values are returned as 0.
+     *
+     * @return {@code long[]}, empty if the query returns no rows. Cannot be {@code null}
+     * @see #getSingleLong()
+     */
+    long[] getLongArray();
+
+    /**
+     * Executes this SELECT query and returns the first column of every row as a
+     * {@code LongStream}. SQL {@code NULL} values are returned as 0.
+     *
+     * @return {@link LongStream}, empty if the query returns no rows. Cannot be {@code null}
+     * @see #getSingleLong()
+     */
+    LongStream getLongStream();
+
+    /**
+     * Executes this SELECT query and returns the first column of every row as a
+     * {@code String}.
+     *
+     * @return unmodifiable {@link List}, empty if the query returns no rows. Cannot be
+     *     {@code null}
+     * @see #getSingleLong()
+     */
+    List<String> getStringList();
+
+    /**
+     * Returns a {@code Flow.Publisher} which executes this SELECT query for each subscriber
+     * and emits its rows, mapped to entities one at a time, as the subscriber requests them.
+     * Rows are fetched from the database in chunks of at most the outstanding demand, so a
+     * slow subscriber throttles the read. Cancelling the subscription closes the statement and
+     * releases the connection. This method does not require, nor affect, {@link #execute()}.
+     *
+     * <p>The query is executed, and the subscriber is signalled, on a shared pool of daemon
+     * threads.
+     *
+     * @return {@link Flow.Publisher}. Cannot be {@code null}.
+     */
+    Flow.Publisher<Object> getResultPublisher();
+
+    /**
+     * Returns a {@code Flow.Publisher} as {@link #getResultPublisher()}, which executes the
+     * query, and signals the subscriber, on the designated {@code Executor}.
+     *
+     * @param executor the {@link Executor}
+     * @return {@link Flow.Publisher}. Cannot be {@code null}.
+     */
+    Flow.Publisher<Object> getResultPublisher(Executor executor);
 }
@@ -0,0 +1,85 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+import java.util.List;
+
+/**
+ * <b>Purpose:</b> executes several independent queries on a single connection.
+ *
+ * <p><b>Responsibility:</b> where the driver reports support for multiple result sets and
+ * the connection is not taking part in a transaction, the queries are sent together as one
+ * multi-statement execution and their results are read with {@code getMoreResults()}, which
+ * costs a single round-trip. Otherwise, or if the driver rejects the combined statement, they
+ * are executed one after another on the same connection, which still saves a connection
+ * checkout per query.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * QueryBatch batch = manager.createQueryBatch()
+ *     .add(SqlStatement.newInstance("SELECT * FROM debs.account"), Account.class)
+ *     .add(SqlStatement.newInstance("SELECT * FROM debs.currency"), Currency.class)
+ *     .execute();
+ * List&lt;Object&gt; accounts = batch.getResultList(0);
+ * List&lt;Object&gt; currencies = batch.getResultList(1);
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface QueryBatch {
+
+    /**
+     * Adds a query to the batch.
+     *
+     * @param statement a {@code SELECT} statement
+     * @param entityInterface the interface of the entity to be returned
+     * @return the value of the {@code QueryBatch} itself
+     */
+    QueryBatch add(SqlStatement statement, Class<?> entityInterface);
+
+    /**
+     * Returns the number of queries in the batch.
+     *
+     * @return int
+     */
+    int size();
+
+    /**
+     * Executes all of the queries in the batch.
+     *
+     * @return the value of the {@code QueryBatch} itself
+     */
+    QueryBatch execute();
+
+    /**
+     * Returns the result of the designated query.
+     *
+     * @param index the position in which the query was added. The first query is 0.
+     * @return {@code List<Object>} of entities. Cannot be {@code null}.
+     */
+    List<Object> getResultList(int index);
+}
@@ -26,6 +26,28 @@ package org.veary.persist;
 
 public interface QueryManager {
 
+    /**
+     * Sets whether the connections used by the queries created by this manager are
+     * read-only. A read-only connection is restored to its previous state before it is
+     * released. Defaults to {@code false}, which leaves each connection as it is.
+     * A query executed within an active transaction on the same thread uses that
+     * transaction's connection, whose access mode is left unchanged.
+     *
+     * @param readOnly {@code true} for read-only connections
+     * @return the value of the {@code QueryManager} itself
+     */
+    QueryManager setReadOnly(boolean readOnly);
+
+    /**
+     * Sets the class of work done by the queries created by this manager, which decides their
+     * share of connections when {@link PersistenceManagerFactory#setBulkheadCapacity(int, long)
+     * bulkheads} are enabled. Defaults to {@link WorkloadClass#STANDARD}.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @return the value of the {@code QueryManager} itself
+     */
+    QueryManager setWorkloadClass(WorkloadClass workloadClass);
+
     /**
      * Creates a {@code Query}.
      *
@@ -36,4 +58,39 @@ public interface QueryManager {
     Query createQuery(SqlStatement statement, Class<?> entityInterface);
 
     Query createQuery(SqlStatement statement);
+
+    /**
+     * Creates a {@code PartitionedQuery}, whose partitions are executed concurrently.
+     *
+     * @param statement       {@link SqlStatement}
+     * @param entityInterface the interface of the entity to be returned
+     * @return an instance of a {@link PartitionedQuery} object
+     */
+    PartitionedQuery createPartitionedQuery(SqlStatement statement, Class<?> entityInterface);
+
+    /**
+     * Creates an empty {@code QueryBatch}, whose queries are executed on a single connection.
+     *
+     * @return an instance of a {@link QueryBatch} object
+     */
+    QueryBatch createQueryBatch();
+
+    /**
+     * Loads an entity by key. If the factory's {@link EntityCache} is enabled, it is consulted
+     * first and populated on a miss, so that a hit skips both the database and the entity's
+     * {@code newInstance} method. While the calling thread has an active transaction, the
+     * lookup goes through that transaction instead, which can see its uncommitted writes, and
+     * the shared cache is not used.
+     *
+     * @param entityInterface the interface of the entity, which must declare a static
+     *     {@code newInstance(Map)} method
+     * @param lookup a {@code SELECT} from a single table with exactly one IN parameter, to
+     *     which {@code key} is bound. Any parameters already set on it are ignored.
+     * @param key the key of the entity
+     * @return the entity, or {@code null} if there is no row with the given key
+     * @throws org.veary.persist.exceptions.NonUniqueResultException if more than one row is
+     *     found
+     * @see TransactionManager#find(Class, SqlStatement, Object)
+     */
+    Object find(Class<?> entityInterface, SqlStatement lookup, Object key);
 }
@@ -26,13 +26,32 @@ package org.veary.persist;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.Collection;
 import java.util.Objects;
 
+import org.veary.persist.internal.SqlBuilderImpl;
+
 /**
- * Currently, the prupose of this interface is as a variable binding mechanism for SQL
- * statements.
+ * <b>Purpose:</b> builds SQL statements, either from a {@code String} or fluently.
+ *
+ * <p><b>Responsibility:</b> the fluent builders collect the values of their IN parameters as
+ * they go, and {@link #toStatement()} returns an {@link SqlStatement} with them bound. The
+ * SQL generated for a recently used shape of statement is cached, so equal shapes share a
+ * single {@code String}. An IN list is padded, by repeating its last value, to the next of
+ * the sizes 1, 2, 4, 8, ..., 1024, so that lists of different lengths share a small number
+ * of prepared statements. Parameter values must not be {@code null}; SQL {@code NULL} is
+ * written into the statement instead, as in {@code where("closed IS NULL")}.
  *
- * <p>In the future, this could be expanded to provide a basic query building framework.
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * SqlStatement statement = SqlBuilder.select("id", "name")
+ *     .from("debs.account")
+ *     .where("name LIKE ?", "C%")
+ *     .whereIn("id", ids)
+ *     .orderBy("id")
+ *     .toStatement();
+ * </pre>
  *
  * @author Marc L. Veary
  * @since 1.0
@@ -59,6 +78,56 @@ public interface SqlBuilder {
         };
     }
 
+    /**
+     * Starts a {@code SELECT} of the designated columns.
+     *
+     * @param columns the columns, or expressions, to be selected
+     * @return {@link Select}
+     */
+    static Select select(String... columns) {
+        return SqlBuilderImpl.select(columns);
+    }
+
+    /**
+     * Starts an {@code INSERT} into the designated table.
+     *
+     * @param table the table
+     * @return {@link Insert}
+     */
+    static Insert insertInto(String table) {
+        return SqlBuilderImpl.insertInto(table);
+    }
+
+    /**
+     * Starts an {@code UPDATE} of the designated table.
+     *
+     * @param table the table
+     * @return {@link Update}
+     */
+    static Update update(String table) {
+        return SqlBuilderImpl.update(table);
+    }
+
+    /**
+     * Starts a {@code DELETE} from the designated table.
+     *
+     * @param table the table
+     * @return {@link Delete}
+     */
+    static Delete deleteFrom(String table) {
+        return SqlBuilderImpl.deleteFrom(table);
+    }
+
+    /**
+     * Returns a new {@link SqlStatement} for the SQL built by this builder, with any values
+     * given to the builder bound to its IN parameters.
+     *
+     * @return {@link SqlStatement}
+     */
+    default SqlStatement toStatement() {
+        return SqlStatement.newInstance(toString());
+    }
+
     /**
      * Returns a string representation of an SQL statement built by this builder. This can be
      * passed into methods such as {@link SqlStatement}, {@link Statement} or
@@ -68,4 +137,91 @@ public interface SqlBuilder {
      */
     @Override
     String toString();
+
+    /**
+     * The {@code WHERE} clause common to {@code SELECT}, {@code UPDATE} and {@code DELETE}.
+     * Conditions are joined by {@code AND}.
+     *
+     * @param <T> the type of the builder
+     */
+    interface Where<T extends Where<T>> extends SqlBuilder {
+
+        /**
+         * Adds a condition.
+         *
+         * @param condition an SQL condition with one '?' per value
+         * @param values the values of the condition's IN parameters, none of which may be
+         *     {@code null}
+         * @return the value of the builder itself
+         */
+        T where(String condition, Object... values);
+
+        /**
+         * Adds an {@code IN} condition. The list is padded to the next bucketed size.
+         *
+         * @param column the column
+         * @param values at most 1024 non-null values. An empty collection yields a condition
+         *     which is always false.
+         * @return the value of the builder itself
+         */
+        T whereIn(String column, Collection<?> values);
+    }
+
+    /**
+     * A {@code SELECT} statement.
+     */
+    interface Select extends Where<Select> {
+
+        /**
+         * Sets the table, or join, to select from.
+         *
+         * @param table the table
+         * @return the value of the {@code Select} itself
+         */
+        Select from(String table);
+
+        /**
+         * Sets the {@code ORDER BY} clause.
+         *
+         * @param columns the columns, each optionally followed by {@code ASC} or {@code DESC}
+         * @return the value of the {@code Select} itself
+         */
+        Select orderBy(String... columns);
+    }
+
+    /**
+     * An {@code INSERT} statement.
+     */
+    interface Insert extends SqlBuilder {
+
+        /**
+         * Adds a column and its value.
+         *
+         * @param column the column
+         * @param value the value, which may not be {@code null}
+         * @return the value of the {@code Insert} itself
+         */
+        Insert value(String column, Object value);
+    }
+
+    /**
+     * An {@code UPDATE} statement.
+     */
+    interface Update extends Where<Update> {
+
+        /**
+         * Adds a column and its new value.
+         *
+         * @param column the column
+         * @param value the value, which may not be {@code null}
+         * @return the value of the {@code Update} itself
+         */
+        Update set(String column, Object value);
+    }
+
+    /**
+     * A {@code DELETE} statement.
+     */
+    interface Delete extends Where<Delete> {
+    }
 }
@@ -24,24 +24,75 @@
 
 package org.veary.persist;
 
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /**
  * <b>Purpose:</b> defines the methods for using JDBC transactions.
  *
+ * <p>A {@code TransactionManager} may be used in a try-with-resources statement, in which
+ * case a transaction which has not been committed is rolled back when the block exits:
+ *
+ * <pre>
+ * try (TransactionManager manager = factory.createTransactionManager()) {
+ *     manager.begin();
+ *     manager.persist(statement);
+ *     manager.commit();
+ * }
+ * </pre>
+ *
  * @author Marc L. Veary
  * @since 1.0
  */
-public interface TransactionManager {
+public interface TransactionManager extends Closeable {
+
+    /**
+     * Sets the class of work done by the transactions of this manager, which decides their
+     * share of connections when {@link PersistenceManagerFactory#setBulkheadCapacity(int, long)
+     * bulkheads} are enabled. Defaults to {@link WorkloadClass#STANDARD}.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @return the value of the {@code TransactionManager} itself
+     * @throws IllegalStateException if a transaction is active
+     */
+    TransactionManager setWorkloadClass(WorkloadClass workloadClass);
 
     /**
      * Mark the start of a transaction.
+     *
+     * <p>Until the transaction ends, queries created by a {@link QueryManager} of the same
+     * factory and executed on the thread which called {@code begin} run on the transaction's
+     * connection, and so see its uncommitted writes.
      */
     void begin();
 
     /**
-     * Commits all the persisted sql statements.
+     * Mark the start of a transaction with the designated isolation level and access mode.
+     * Each setting is only applied if it differs from the connection's current state, and is
+     * restored before the connection is released.
+     *
+     * @param isolation the isolation level, or {@link Isolation#DEFAULT} to leave the
+     *     connection's level unchanged
+     * @param readOnly {@code true} to hint to the database that the transaction will not
+     *     write, which may allow it to skip locking and undo work
+     */
+    void begin(Isolation isolation, boolean readOnly);
+
+    /**
+     * Commits all the persisted sql statements. A read-only transaction may be committed
+     * without having persisted anything, which ends it as a rollback would.
+     *
+     * @throws IllegalStateException if nothing has been persisted in a read-write transaction
      */
     void commit();
 
+    /**
+     * Rolls back all the persisted sql statements and releases the connection.
+     */
+    void rollback();
+
     /**
      * Persists the designated {@code SqlStatement} to the JDBC driver.
      *
@@ -50,6 +101,108 @@ public interface TransactionManager {
      */
     Long persist(SqlStatement statement);
 
+    /**
+     * Executes the designated statement once for each row, within the active transaction, in
+     * JDBC batches. The values of each row are bound, in order, to the IN parameters of the
+     * statement; any parameters already set on it are ignored.
+     *
+     * @param statement an INSERT, UPDATE or DELETE statement
+     * @param rows the parameter values of each execution
+     * @return the total row count reported by the driver
+     * @see PersistenceManagerFactory#setBatchSizeRange(int, int)
+     */
+    int persistAll(SqlStatement statement, List<Object[]> rows);
+
+    /**
+     * Inserts the designated entity, whose interface is mapped to a table with the annotations
+     * of {@link org.veary.persist.mapping}. The {@code INSERT} statement is generated once per
+     * entity interface.
+     *
+     * @param entity an instance of an interface annotated with
+     *     {@link org.veary.persist.mapping.Table}
+     * @return {@code Long} the value of the generated key if the interface's
+     *     {@link org.veary.persist.mapping.Id} is generated, otherwise 0
+     */
+    Long insert(Object entity);
+
+    /**
+     * Updates every column but the key of the row of the designated entity.
+     *
+     * @param entity an instance of an interface annotated with
+     *     {@link org.veary.persist.mapping.Table}, which must have an
+     *     {@link org.veary.persist.mapping.Id}
+     * @return the row count reported by the driver
+     */
+    int update(Object entity);
+
+    /**
+     * Inserts the designated entities. They are grouped by entity interface, and each group
+     * is written in JDBC batches; within a group, the entities are inserted in the order
+     * given. Generated keys are not returned.
+     *
+     * @param entities instances of interfaces annotated with
+     *     {@link org.veary.persist.mapping.Table}
+     * @return the total row count reported by the driver
+     * @see PersistenceManagerFactory#setBatchSizeRange(int, int)
+     */
+    int insertAll(Collection<?> entities);
+
+    /**
+     * Updates the designated entities, grouped and batched as {@link #insertAll(Collection)}.
+     *
+     * @param entities instances of interfaces annotated with
+     *     {@link org.veary.persist.mapping.Table}, which must have an
+     *     {@link org.veary.persist.mapping.Id}
+     * @return the total row count reported by the driver
+     */
+    int updateAll(Collection<?> entities);
+
+    /**
+     * Inserts the designated rows, or updates those which already exist, within the active
+     * transaction. A single dialect-specific statement ({@code MERGE}, {@code INSERT ... ON
+     * CONFLICT} or {@code INSERT ... ON DUPLICATE KEY UPDATE}) is generated for the
+     * database and executed in JDBC batches, replacing a query and an insert or update per
+     * row.
+     *
+     * <pre>
+     * Map&lt;String, Object&gt; row = new HashMap&lt;&gt;();
+     * row.put("id", Long.valueOf(1));
+     * row.put("name", "CASH");
+     * manager.upsert("debs.account", List.of("id"), List.of(row));
+     * </pre>
+     *
+     * @param table the table, optionally qualified by its schema
+     * @param keyColumns the columns which identify a row. On PostgreSQL and MySQL they must
+     *     form a primary key or unique index.
+     * @param rows the rows to be written, keyed by column name. Every row must have the same
+     *     columns, which must include the key columns.
+     * @return the total row count reported by the driver
+     */
+    int upsert(String table, List<String> keyColumns, List<Map<String, Object>> rows);
+
+    /**
+     * Loads an entity by key within the active transaction. The entity is kept in a
+     * transaction-scoped identity map, so that looking up the same key again returns the same
+     * instance without a round-trip to the database. The map is discarded when the
+     * transaction ends, and the entities of a table are evicted when an {@code UPDATE},
+     * {@code DELETE} or {@code MERGE} on that table is persisted.
+     *
+     * <pre>
+     * SqlStatement byId = SqlStatement.newInstance("SELECT * FROM debs.account WHERE id = ?");
+     * Account account = (Account) manager.find(Account.class, byId, Long.valueOf(1));
+     * </pre>
+     *
+     * @param entityInterface the interface of the entity, which must declare a static
+     *     {@code newInstance(Map)} method
+     * @param lookup a {@code SELECT} from a single table with exactly one IN parameter, to
+     *     which {@code key} is bound. Any parameters already set on it are ignored.
+     * @param key the key of the entity
+     * @return the entity, or {@code null} if there is no row with the given key
+     * @throws org.veary.persist.exceptions.NonUniqueResultException if more than one row is
+     *     found
+     */
+    Object find(Class<?> entityInterface, SqlStatement lookup, Object key);
+
     /**
      * Returns the row count for SQL Data Manipulation Language (DML) statements, or 0 for SQL
      * statements that return nothing.
@@ -64,4 +217,11 @@ public interface TransactionManager {
      * @return {@code true} if there is a currently active transaction, otherwise {@code false}
      */
     boolean isActive();
+
+    /**
+     * Rolls back the active transaction, if there is one, and releases its connection.
+     * Calling this method when there is no active transaction has no effect.
+     */
+    @Override
+    void close();
 }
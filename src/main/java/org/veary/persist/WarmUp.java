@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+/**
+ * <b>Purpose:</b> prepares the {@link PersistenceManagerFactory} for traffic at startup.
+ *
+ * <p><b>Responsibility:</b> runs the following stages, in order, and reports how long each
+ * took:
+ *
+ * <ol>
+ *
+ * <li>{@link Stage#CONNECTIONS}: opens the configured number of connections at the same time,
+ * so that the pool creates them and the driver is loaded. They are obtained directly from
+ * the pool, so that neither the concurrency limit nor the bulkheads refuse them.</li>
+ *
+ * <li>{@link Stage#STATEMENTS}: prepares and describes every registered statement on each of
+ * those connections, so that the database parses it and a pool with statement pooling enabled
+ * caches it, and then once more on a probe connection obtained through the same path as
+ * queries.</li>
+ *
+ * <li>{@link Stage#ENTITIES}: resolves the static factory method of every registered entity
+ * interface.</li>
+ *
+ * <li>{@link Stage#EXECUTIONS}: executes every registered SELECT statement the configured number
+ * of times, mapping the results, so that the query and mapping path is compiled.</li>
+ *
+ * </ol>
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * WarmUp.Report report = factory.createWarmUp()
+ *     .setConnections(8)
+ *     .addStatement(findAccount, Account.class)
+ *     .addStatement(insertAccount)
+ *     .setSyntheticExecutions(200)
+ *     .run();
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface WarmUp {
+
+    /**
+     * The stages of a warm-up.
+     */
+    enum Stage {
+        CONNECTIONS, STATEMENTS, ENTITIES, EXECUTIONS
+    }
+
+    /**
+     * Sets the number of connections to open. Defaults to 1.
+     *
+     * @param connections must be greater than 0
+     * @return the value of the {@code WarmUp} itself
+     */
+    WarmUp setConnections(int connections);
+
+    /**
+     * Sets the number of times each registered SELECT statement is executed. Defaults to 0, in
+     * which case the {@link Stage#EXECUTIONS} stage is skipped.
+     *
+     * @param executions must not be negative
+     * @return the value of the {@code WarmUp} itself
+     */
+    WarmUp setSyntheticExecutions(int executions);
+
+    /**
+     * Registers a statement to be prepared. The statement is only executed if it is a SELECT,
+     * using the parameters already set on it.
+     *
+     * @param statement {@link SqlStatement}
+     * @return the value of the {@code WarmUp} itself
+     */
+    WarmUp addStatement(SqlStatement statement);
+
+    /**
+     * Registers a SELECT statement to be prepared and executed, mapping its results to the
+     * designated entity interface. The entity interface is also registered.
+     *
+     * @param statement {@link SqlStatement}
+     * @param entityInterface the interface of the entity returned by the statement
+     * @return the value of the {@code WarmUp} itself
+     */
+    WarmUp addStatement(SqlStatement statement, Class<?> entityInterface);
+
+    /**
+     * Registers an entity interface whose static factory method is to be resolved.
+     *
+     * @param entityInterface the interface of an entity
+     * @return the value of the {@code WarmUp} itself
+     */
+    WarmUp addEntity(Class<?> entityInterface);
+
+    /**
+     * Runs the warm-up. This method blocks until all of the stages have completed.
+     *
+     * @return {@link Report}. Cannot be {@code null}
+     */
+    Report run();
+
+    /**
+     * The time taken by each stage of a warm-up.
+     */
+    interface Report {
+
+        /**
+         * Returns the time taken by the designated stage, in milliseconds.
+         *
+         * @param stage {@link Stage}
+         * @return long, 0 if the stage had nothing to do
+         */
+        long getMillis(Stage stage);
+
+        /**
+         * Returns the time taken by the whole warm-up, in milliseconds.
+         *
+         * @return long
+         */
+        long getTotalMillis();
+    }
+}
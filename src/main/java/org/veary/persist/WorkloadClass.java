@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist;
+
+/**
+ * <b>Purpose:</b> the class of work a {@link QueryManager} or {@link TransactionManager} does,
+ * which decides its share of connections and its priority when they are contended. The
+ * classes are declared from the highest priority to the lowest.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ * @see PersistenceManagerFactory#setBulkhead(WorkloadClass, int, int)
+ */
+public enum WorkloadClass {
+
+    /**
+     * Latency-sensitive work on behalf of a user, such as serving a request.
+     */
+    INTERACTIVE,
+
+    /**
+     * Work which has not been classified. This is the default.
+     */
+    STANDARD,
+
+    /**
+     * Throughput-oriented background work, such as exports and scheduled jobs.
+     */
+    BATCH
+}
@@ -0,0 +1,71 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.columnar;
+
+/**
+ * A single column of a {@link ColumnarResult}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface Column {
+
+    /**
+     * Returns the upper-case label of this column.
+     *
+     * @return {@code String}
+     */
+    String getLabel();
+
+    /**
+     * Returns the number of rows in this column.
+     *
+     * @return int
+     */
+    int size();
+
+    /**
+     * Tests if the value at the designated row is SQL {@code NULL}.
+     *
+     * @param row the first row is 0
+     * @return boolean
+     */
+    boolean isNull(int row);
+
+    /**
+     * Returns the number of SQL {@code NULL} values in this column.
+     *
+     * @return int
+     */
+    int getNullCount();
+
+    /**
+     * Returns the value at the designated row as an {@code Object}, boxing primitive values.
+     *
+     * @param row the first row is 0
+     * @return the value, or {@code null} for SQL {@code NULL}
+     */
+    Object getObject(int row);
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.columnar;
+
+/**
+ * The result of a SELECT query held column by column.
+ *
+ * <p>Numeric columns are held in primitive arrays with a separate null bitmap, character
+ * columns are dictionary-encoded, and any other column is held as an array of
+ * {@code Object}. Columns are looked up by label once, and then accessed by row index.
+ *
+ * <h2>Usage:</h2>
+ *
+ * <pre>
+ * ColumnarResult result = manager.createQuery(statement).executeColumnar();
+ * LongColumn amount = result.getLongColumn("AMOUNT");
+ * long total = amount.sum();
+ * int[] large = amount.filter(value -&gt; value &gt; 1000);
+ * </pre>
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface ColumnarResult {
+
+    /**
+     * Returns the number of rows.
+     *
+     * @return int
+     */
+    int getRowCount();
+
+    /**
+     * Returns the number of columns.
+     *
+     * @return int
+     */
+    int getColumnCount();
+
+    /**
+     * Returns the index of the column with the designated label.
+     *
+     * @param label the column label (case insensitive)
+     * @return the first column is 0
+     * @throws IllegalArgumentException if there is no such column
+     */
+    int getColumnIndex(String label);
+
+    /**
+     * Returns the designated column.
+     *
+     * @param index the first column is 0
+     * @return {@link Column}
+     */
+    Column getColumn(int index);
+
+    /**
+     * Returns the designated column.
+     *
+     * @param label the column label (case insensitive)
+     * @return {@link Column}
+     */
+    Column getColumn(String label);
+
+    /**
+     * Returns the designated {@code long} column.
+     *
+     * @param label the column label (case insensitive)
+     * @return {@link LongColumn}
+     * @throws ClassCastException if the column is not held as {@code long} values
+     */
+    LongColumn getLongColumn(String label);
+
+    /**
+     * Returns the designated {@code int} column.
+     *
+     * @param label the column label (case insensitive)
+     * @return {@link IntColumn}
+     * @throws ClassCastException if the column is not held as {@code int} values
+     */
+    IntColumn getIntColumn(String label);
+
+    /**
+     * Returns the designated {@code double} column.
+     *
+     * @param label the column label (case insensitive)
+     * @return {@link DoubleColumn}
+     * @throws ClassCastException if the column is not held as {@code double} values
+     */
+    DoubleColumn getDoubleColumn(String label);
+
+    /**
+     * Returns the designated {@code String} column.
+     *
+     * @param label the column label (case insensitive)
+     * @return {@link StringColumn}
+     * @throws ClassCastException if the column is not held as {@code String} values
+     */
+    StringColumn getStringColumn(String label);
+}
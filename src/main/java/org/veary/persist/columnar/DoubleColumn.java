@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.columnar;
+
+import java.util.OptionalDouble;
+import java.util.function.DoublePredicate;
+
+/**
+ * A column of {@code double} values, used for {@code DOUBLE}, {@code FLOAT} and {@code REAL}
+ * columns.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface DoubleColumn extends Column {
+
+    /**
+     * Returns the value at the designated row.
+     *
+     * @param row the first row is 0
+     * @return the value, or 0 for SQL {@code NULL}
+     */
+    double get(int row);
+
+    /**
+     * Returns the sum of the non-null values.
+     *
+     * @return double
+     */
+    double sum();
+
+    /**
+     * Returns the smallest non-null value.
+     *
+     * @return {@link OptionalDouble}, empty if there are no non-null values
+     */
+    OptionalDouble min();
+
+    /**
+     * Returns the largest non-null value.
+     *
+     * @return {@link OptionalDouble}, empty if there are no non-null values
+     */
+    OptionalDouble max();
+
+    /**
+     * Returns the rows whose non-null value matches the given predicate.
+     *
+     * @param predicate {@link DoublePredicate}
+     * @return the matching row indexes, in ascending order
+     */
+    int[] filter(DoublePredicate predicate);
+
+    /**
+     * Returns a copy of the values. SQL {@code NULL} values are 0.
+     *
+     * @return {@code double[]}
+     */
+    double[] toArray();
+}
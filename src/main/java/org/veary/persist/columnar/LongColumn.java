@@ -0,0 +1,84 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.columnar;
+
+import java.util.OptionalLong;
+import java.util.function.LongPredicate;
+
+/**
+ * A column of {@code long} values, used for {@code BIGINT} columns, and for {@code DECIMAL}
+ * and {@code NUMERIC} columns with a scale of 0 and a precision of at most 18. Any other
+ * {@code DECIMAL} or {@code NUMERIC} column is held as {@code BigDecimal} objects, so that no
+ * precision is lost.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface LongColumn extends Column {
+
+    /**
+     * Returns the value at the designated row.
+     *
+     * @param row the first row is 0
+     * @return the value, or 0 for SQL {@code NULL}
+     */
+    long get(int row);
+
+    /**
+     * Returns the sum of the non-null values.
+     *
+     * @return long
+     */
+    long sum();
+
+    /**
+     * Returns the smallest non-null value.
+     *
+     * @return {@link OptionalLong}, empty if there are no non-null values
+     */
+    OptionalLong min();
+
+    /**
+     * Returns the largest non-null value.
+     *
+     * @return {@link OptionalLong}, empty if there are no non-null values
+     */
+    OptionalLong max();
+
+    /**
+     * Returns the rows whose non-null value matches the given predicate.
+     *
+     * @param predicate {@link LongPredicate}
+     * @return the matching row indexes, in ascending order
+     */
+    int[] filter(LongPredicate predicate);
+
+    /**
+     * Returns a copy of the values. SQL {@code NULL} values are 0.
+     *
+     * @return {@code long[]}
+     */
+    long[] toArray();
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.columnar;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A dictionary-encoded column of {@code String} values, used for character columns. Each
+ * distinct value is stored once and each row holds an {@code int} code into the dictionary.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public interface StringColumn extends Column {
+
+    /**
+     * Returns the value at the designated row.
+     *
+     * @param row the first row is 0
+     * @return the value, or {@code null} for SQL {@code NULL}
+     */
+    String get(int row);
+
+    /**
+     * Returns the dictionary code of the value at the designated row.
+     *
+     * @param row the first row is 0
+     * @return the index of the value in {@link #getDictionary()}, or -1 for SQL {@code NULL}
+     */
+    int getCode(int row);
+
+    /**
+     * Returns the distinct non-null values of this column, in order of first appearance.
+     *
+     * @return unmodifiable {@link List}. Cannot be {@code null}
+     */
+    List<String> getDictionary();
+
+    /**
+     * Returns the rows whose non-null value matches the given predicate. The predicate is
+     * evaluated once per distinct value, not once per row.
+     *
+     * @param predicate {@link Predicate}
+     * @return the matching row indexes, in ascending order
+     */
+    int[] filter(Predicate<String> predicate);
+
+    /**
+     * Returns the rows whose value equals the given value.
+     *
+     * @param value {@code String}
+     * @return the matching row indexes, in ascending order
+     */
+    int[] filterEquals(String value);
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+/**
+ * Decides whether an operation may obtain a connection through a {@link LimitedDataSource}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+interface Admission {
+
+    /**
+     * Returned by {@link #acquire()} when the operation was not counted, in which case
+     * {@link #release} must not be called.
+     */
+    long NOT_ADMITTED = -1;
+
+    /**
+     * Waits until the operation may proceed.
+     *
+     * @return a value to be passed to {@link #release}, or {@link #NOT_ADMITTED}
+     * @throws org.veary.persist.exceptions.SaturatedException if the operation is refused
+     */
+    long acquire();
+
+    /**
+     * Returns the capacity taken by {@link #acquire()}.
+     *
+     * @param ticket the value returned by {@code acquire}
+     * @param sample {@code false} if the time since {@code acquire} does not measure the
+     *     database: the operation did not obtain a connection, or held it across a transaction
+     */
+    void release(long ticket, boolean sample);
+}
@@ -0,0 +1,223 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A {@code DataSource} which, while the calling thread has an active transaction on the same
+ * underlying {@code DataSource}, hands out that transaction's connection instead of acquiring
+ * another one. Closing such a connection has no effect; it is released by its transaction.
+ *
+ * <p>This lets a query issued within a unit of work see the writes of that unit of work, and
+ * removes the need for a second pooled connection while a transaction is open.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class AffinityDataSource implements DataSource {
+
+    private static final String CLOSE = "close"; //$NON-NLS-1$
+    private static final ThreadLocal<Map<DataSource, Binding>> BOUND = new ThreadLocal<>();
+
+    private final DataSource key;
+    private final DataSource ds;
+
+    /**
+     * Constructor.
+     *
+     * @param key the {@link DataSource} from which transactions obtain their connections
+     * @param ds the {@link DataSource} used when there is no active transaction
+     */
+    AffinityDataSource(DataSource key, DataSource ds) {
+        this.key = key;
+        this.ds = ds;
+    }
+
+    /**
+     * Binds a transaction's connection to the calling thread.
+     *
+     * @param key the {@link DataSource} the connection was obtained from
+     * @param conn the transaction's connection
+     * @param transaction the transaction which owns {@code conn}
+     * @return the binding previously made for {@code key}, or {@code null}
+     */
+    static Binding bind(DataSource key, Connection conn, TransactionManagerImpl transaction) {
+        Map<DataSource, Binding> bound = BOUND.get();
+        if (bound == null) {
+            bound = new IdentityHashMap<>(2);
+            BOUND.set(bound);
+        }
+        return bound.put(key, new Binding(conn, transaction));
+    }
+
+    /**
+     * Removes the binding made by {@link #bind(DataSource, Connection, TransactionManagerImpl)},
+     * restoring the previous one. Does nothing if {@code conn} is not bound to the calling
+     * thread.
+     *
+     * @param key the {@link DataSource} the connection was obtained from
+     * @param conn the transaction's connection
+     * @param previous the value returned by {@code bind}
+     */
+    static void unbind(DataSource key, Connection conn, Binding previous) {
+        final Map<DataSource, Binding> bound = BOUND.get();
+        final Binding binding = bound == null ? null : bound.get(key);
+        if (binding == null || binding.conn != conn) {
+            return;
+        }
+        if (previous == null) {
+            bound.remove(key);
+            if (bound.isEmpty()) {
+                BOUND.remove();
+            }
+        } else {
+            bound.put(key, previous);
+        }
+    }
+
+    /**
+     * Returns the transaction whose connection is bound to the calling thread, or
+     * {@code null}.
+     *
+     * @return {@link TransactionManagerImpl}
+     * @throws SQLException if a database access error occurs
+     */
+    TransactionManagerImpl transaction() throws SQLException {
+        final Binding binding = binding();
+        return binding == null ? null : binding.transaction;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final Connection conn = current();
+        return conn == null ? this.ds.getConnection() : conn;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return this.ds.getConnection(username, password);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return this.ds.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.ds.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.ds.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return this.ds.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return this.ds.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return this.ds.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return this.ds.isWrapperFor(iface);
+    }
+
+    /**
+     * Returns a non-closing view of the connection bound to the calling thread, or
+     * {@code null}. A binding whose connection has been closed, for example by the
+     * transaction reaper, is discarded.
+     *
+     * @return {@link Connection}
+     * @throws SQLException if a database access error occurs
+     */
+    private Connection current() throws SQLException {
+        final Binding binding = binding();
+        if (binding == null) {
+            return null;
+        }
+        final Connection conn = binding.conn;
+
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                if (CLOSE.equals(method.getName())) {
+                    return null;
+                }
+                try {
+                    return method.invoke(conn, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private Binding binding() throws SQLException {
+        final Map<DataSource, Binding> bound = BOUND.get();
+        final Binding binding = bound == null ? null : bound.get(this.key);
+        if (binding == null) {
+            return null;
+        }
+        if (binding.conn.isClosed()) {
+            unbind(this.key, binding.conn, null);
+            return null;
+        }
+        return binding;
+    }
+
+    /**
+     * A transaction's connection bound to a thread.
+     */
+    static final class Binding {
+
+        private final Connection conn;
+        private final TransactionManagerImpl transaction;
+
+        private Binding(Connection conn, TransactionManagerImpl transaction) {
+            this.conn = conn;
+            this.transaction = transaction;
+        }
+    }
+}
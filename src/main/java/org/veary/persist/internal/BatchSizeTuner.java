@@ -0,0 +1,200 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.veary.persist.BatchTuning;
+
+/**
+ * <b>Purpose:</b> chooses the JDBC batch size of the bulk writes of a factory's
+ * {@code TransactionManager}s.
+ *
+ * <p><b>Responsibility:</b> while enabled, a batch size is kept for each statement shape and
+ * adjusted after every full batch, AIMD-style: it grows by a fixed step while the smoothed
+ * execution time per row holds steady or improves, and is halved when a batch fails or its
+ * time per row degrades by more than a quarter. The size is always kept within the configured
+ * range. While disabled, every batch has {@value #DEFAULT_BATCH_SIZE} rows.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class BatchSizeTuner {
+
+    static final int DEFAULT_BATCH_SIZE = 500;
+
+    private static final int MAX_SHAPES = 1024;
+    private static final int STEPS = 32;
+    private static final double DEGRADATION = 1.25;
+    private static final double SMOOTHING = 0.2;
+
+    private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+    private volatile int minimum;
+    private volatile int maximum;
+
+    /**
+     * Enables auto-tuning within the designated range, or disables it if both are 0.
+     *
+     * @param min the smallest batch size
+     * @param max the largest batch size
+     */
+    public void setRange(int min, int max) {
+        if (min < 0 || max < min || min == 0 && max != 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("BatchSizeTuner.error_msg_invalid_range")); //$NON-NLS-1$
+        }
+        this.shapes.clear();
+        this.minimum = min;
+        this.maximum = max;
+    }
+
+    /**
+     * Returns a snapshot of the tuned statement shapes.
+     *
+     * @return {@code List<BatchTuning>}. Cannot be {@code null}.
+     */
+    public List<BatchTuning> getTunings() {
+        final List<BatchTuning> list = new ArrayList<>(this.shapes.size());
+        for (Map.Entry<String, Shape> entry : this.shapes.entrySet()) {
+            list.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        return list;
+    }
+
+    /**
+     * Returns the size of the next batch of the designated statement.
+     *
+     * @param sql the statement
+     * @return int
+     */
+    int batchSize(String sql) {
+        if (this.maximum == 0) {
+            return DEFAULT_BATCH_SIZE;
+        }
+        final Shape shape = shape(sql);
+        return shape == null ? this.minimum : shape.size();
+    }
+
+    /**
+     * Records the execution of a batch.
+     *
+     * @param sql the statement
+     * @param size the number of rows in the batch
+     * @param full {@code true} if the batch had the size returned by {@link #batchSize}
+     * @param nanos the execution time of the batch
+     * @param success {@code false} if the batch failed
+     */
+    void record(String sql, int size, boolean full, long nanos, boolean success) {
+        if (this.maximum == 0 || !full && success) {
+            return;
+        }
+        final Shape shape = shape(sql);
+        if (shape != null) {
+            shape.record(size, nanos, success, this.minimum, this.maximum);
+        }
+    }
+
+    private Shape shape(String sql) {
+        final Shape shape = this.shapes.get(sql);
+        if (shape != null || this.shapes.size() >= MAX_SHAPES) {
+            return shape;
+        }
+        final int initial = Math.max(this.minimum, Math.min(this.maximum, DEFAULT_BATCH_SIZE));
+        return this.shapes.computeIfAbsent(sql, key -> new Shape(initial));
+    }
+
+    private static final class Shape {
+
+        private int size;
+        private double nanosPerRow;
+        private long batches;
+        private long failures;
+
+        Shape(int size) {
+            this.size = size;
+        }
+
+        synchronized int size() {
+            return this.size;
+        }
+
+        synchronized void record(int rows, long nanos, boolean success, int min, int max) {
+            this.batches++;
+            if (!success) {
+                this.failures++;
+                this.size = Math.max(min, this.size / 2);
+                return;
+            }
+
+            final double perRow = (double) nanos / rows;
+            if (this.nanosPerRow == 0) {
+                this.nanosPerRow = perRow;
+            }
+            if (perRow > this.nanosPerRow * DEGRADATION) {
+                this.size = Math.max(min, this.size / 2);
+            } else {
+                this.size = Math.min(max, this.size + Math.max(1, (max - min) / STEPS));
+            }
+            this.nanosPerRow += SMOOTHING * (perRow - this.nanosPerRow);
+        }
+
+        synchronized BatchTuning snapshot(String sql) {
+            final String statement = SqlText.fingerprint(sql);
+            final int batchSize = this.size;
+            final double perRow = this.nanosPerRow;
+            final long count = this.batches;
+            final long failed = this.failures;
+            return new BatchTuning() {
+                @Override
+                public String getStatement() {
+                    return statement;
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return batchSize;
+                }
+
+                @Override
+                public double getNanosPerRow() {
+                    return perRow;
+                }
+
+                @Override
+                public long getBatches() {
+                    return count;
+                }
+
+                @Override
+                public long getFailures() {
+                    return failed;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,545 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veary.persist.BulkLoadResult;
+import org.veary.persist.BulkLoader;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.WorkloadClass;
+import org.veary.persist.exceptions.PersistenceException;
+
+/**
+ * Concrete implementation of {@link BulkLoader}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class BulkLoaderImpl implements BulkLoader {
+
+    private static final Logger LOG = LogManager.getLogger(BulkLoaderImpl.class);
+    private static final String SELECT_STR = "SELECT"; //$NON-NLS-1$
+    private static final long MAX_CHUNK_SIZE = Integer.MAX_VALUE / 2;
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final DataSource base;
+    private final Bulkheads bulkheads;
+    private DataSource ds;
+    private int partitions = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 500;
+    private int commitInterval = 10_000;
+    private byte delimiter = ',';
+    private boolean skipHeader;
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     */
+    public BulkLoaderImpl(DataSource ds) {
+        this(ds, new Bulkheads());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param bulkheads the {@link Bulkheads} which share connections between workload classes
+     */
+    public BulkLoaderImpl(DataSource ds, Bulkheads bulkheads) {
+        this.base = Objects.requireNonNull(ds,
+            Messages.getString("BulkLoaderImpl.error_msg_ds_null")); //$NON-NLS-1$
+        this.bulkheads = Objects.requireNonNull(bulkheads);
+        this.ds = bulkheads.view(WorkloadClass.BATCH, this.base);
+    }
+
+    @Override
+    public BulkLoader setPartitions(int partitions) {
+        this.partitions = requirePositive(partitions);
+        return this;
+    }
+
+    @Override
+    public BulkLoader setBatchSize(int batchSize) {
+        this.batchSize = requirePositive(batchSize);
+        return this;
+    }
+
+    @Override
+    public BulkLoader setCommitInterval(int commitInterval) {
+        this.commitInterval = requirePositive(commitInterval);
+        return this;
+    }
+
+    @Override
+    public BulkLoader setDelimiter(char delimiter) {
+        if (delimiter > 0x7F || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException(
+                Messages.getString("BulkLoaderImpl.error_msg_invalid_delimiter")); //$NON-NLS-1$
+        }
+        this.delimiter = (byte) delimiter;
+        return this;
+    }
+
+    @Override
+    public BulkLoader setSkipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+        return this;
+    }
+
+    @Override
+    public BulkLoader setWorkloadClass(WorkloadClass workloadClass) {
+        this.ds = this.bulkheads.view(Objects.requireNonNull(workloadClass,
+            Messages.getString("BulkLoaderImpl.error_msg_class_null")), //$NON-NLS-1$
+            this.base);
+        return this;
+    }
+
+    @Override
+    public BulkLoadResult load(Path file, SqlStatement statement) {
+        Objects.requireNonNull(file,
+            Messages.getString("BulkLoaderImpl.error_msg_file_null")); //$NON-NLS-1$
+        Objects.requireNonNull(statement,
+            Messages.getString("BulkLoaderImpl.error_msg_statement_null")); //$NON-NLS-1$
+        if (statement.toString().toUpperCase().startsWith(SELECT_STR)) {
+            throw new IllegalStateException(
+                Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
+        }
+
+        final long start = System.nanoTime();
+        final List<PartitionResult> results = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final long[] bounds = split(channel);
+            final ForkJoinPool pool = new ForkJoinPool(this.partitions);
+            try {
+                final List<Future<PartitionResult>> futures = new ArrayList<>();
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    futures.add(pool.submit(new PartitionLoader(channel, bounds[i],
+                        bounds[i + 1], i == 0 && this.skipHeader, statement.toString())));
+                }
+                results.addAll(await(futures));
+            } finally {
+                pool.shutdown();
+            }
+        } catch (IOException e) {
+            throw new PersistenceException(e);
+        }
+
+        return toResult(results, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Splits the file into chunks which each begin at the start of a record.
+     *
+     * @param channel {@link FileChannel}
+     * @return the chunk boundaries: chunk {@code i} spans {@code [bounds[i], bounds[i+1])}
+     * @throws IOException if an I/O error occurs
+     */
+    private long[] split(FileChannel channel) throws IOException {
+        final long size = channel.size();
+        if (size == 0) {
+            return new long[] { 0 };
+        }
+
+        final long chunks = Math.max(this.partitions, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        final List<Long> bounds = new ArrayList<>();
+        bounds.add(Long.valueOf(0));
+        final ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        for (long k = 1; k < chunks; k++) {
+            long pos = Math.max(size * k / chunks, bounds.get(bounds.size() - 1).longValue());
+            long boundary = size;
+            while (pos < size && boundary == size) {
+                scan.clear();
+                final int read = channel.read(scan, pos);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (scan.get(i) == '\n') {
+                        boundary = pos + i + 1;
+                        break;
+                    }
+                }
+                pos += read;
+            }
+            if (boundary >= size) {
+                break;
+            }
+            if (boundary > bounds.get(bounds.size() - 1).longValue()) {
+                bounds.add(Long.valueOf(boundary));
+            }
+        }
+        bounds.add(Long.valueOf(size));
+
+        final long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i).longValue();
+        }
+        return result;
+    }
+
+    /**
+     * Waits for all of the partitions to finish. If any partition failed, the first failure
+     * is thrown once the others have completed.
+     *
+     * @param futures the submitted partitions
+     * @return the results of the partitions, in file order
+     */
+    private List<PartitionResult> await(List<Future<PartitionResult>> futures) {
+        final List<PartitionResult> results = new ArrayList<>(futures.size());
+        PersistenceException failure = null;
+        for (final Future<PartitionResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PersistenceException(e);
+            } catch (ExecutionException e) {
+                LOG.error("Bulk load partition failed: ", e.getCause()); //$NON-NLS-1$
+                if (failure == null) {
+                    failure = e.getCause() instanceof PersistenceException
+                        ? (PersistenceException) e.getCause()
+                        : new PersistenceException(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Combines the partition results, converting chunk-relative line numbers to file line
+     * numbers.
+     *
+     * @param results the partition results in file order
+     * @param elapsedMillis the elapsed time
+     * @return {@link BulkLoadResult}
+     */
+    private static BulkLoadResult toResult(List<PartitionResult> results, long elapsedMillis) {
+        long loaded = 0;
+        long lineOffset = 0;
+        final List<BulkLoadResult.RejectedRow> rejected = new ArrayList<>();
+        for (final PartitionResult result : results) {
+            loaded += result.loaded;
+            for (final LocalRejection rejection : result.rejected) {
+                rejected.add(new RejectedRowImpl(lineOffset + rejection.line, rejection.text,
+                    rejection.reason));
+            }
+            lineOffset += result.lines;
+        }
+        rejected.sort(Comparator.comparingLong(BulkLoadResult.RejectedRow::getLineNumber));
+
+        final long rowsLoaded = loaded;
+        final List<BulkLoadResult.RejectedRow> rejectedRows = Collections
+            .unmodifiableList(rejected);
+        return new BulkLoadResult() {
+
+            @Override
+            public long getRowsLoaded() {
+                return rowsLoaded;
+            }
+
+            @Override
+            public List<RejectedRow> getRejectedRows() {
+                return rejectedRows;
+            }
+
+            @Override
+            public long getElapsedMillis() {
+                return elapsedMillis;
+            }
+        };
+    }
+
+    private static int requirePositive(int value) {
+        if (value < 1) {
+            throw new IllegalArgumentException(
+                Messages.getString("BulkLoaderImpl.error_msg_not_positive")); //$NON-NLS-1$
+        }
+        return value;
+    }
+
+    /**
+     * Loads a single chunk of the file through its own connection and transaction.
+     */
+    private final class PartitionLoader implements Callable<PartitionResult> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean skipFirstLine;
+        private final String sql;
+
+        private final List<PendingRow> pending = new ArrayList<>();
+        private final PartitionResult result = new PartitionResult();
+        private CsvChunkParser parser;
+        private int[] parameterTypes;
+
+        PartitionLoader(FileChannel channel, long start, long end, boolean skipFirstLine,
+            String sql) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.skipFirstLine = skipFirstLine;
+            this.sql = sql;
+        }
+
+        @Override
+        public PartitionResult call() throws IOException, SQLException {
+            final MappedByteBuffer buffer = this.channel.map(FileChannel.MapMode.READ_ONLY,
+                this.start, this.end - this.start);
+            this.parser = new CsvChunkParser(buffer, BulkLoaderImpl.this.delimiter);
+
+            try (Connection conn = BulkLoaderImpl.this.ds.getConnection()) {
+                final boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(this.sql)) {
+                    this.parameterTypes = resolveParameterTypes(pstmt);
+                    loadRows(conn, pstmt);
+                } catch (Throwable e) {
+                    // Restoring autocommit would commit whatever is pending.
+                    try {
+                        conn.rollback();
+                    } catch (SQLException rollback) {
+                        e.addSuppressed(rollback);
+                    }
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+
+            this.result.lines = this.parser.getLineNumber();
+            return this.result;
+        }
+
+        private void loadRows(Connection conn, PreparedStatement pstmt) throws SQLException {
+            int batched = 0;
+            while (this.parser.next()) {
+                if (this.parser.isBlank()
+                    || this.skipFirstLine && this.parser.getLineNumber() == 1) {
+                    continue;
+                }
+
+                final String[] fields;
+                try {
+                    fields = this.parser.parseFields();
+                } catch (IllegalArgumentException e) {
+                    reject(this.parser.getLineNumber(), this.parser.getLine(), e.getMessage());
+                    continue;
+                }
+                if (fields.length != this.parameterTypes.length) {
+                    reject(this.parser.getLineNumber(), this.parser.getLine(), String.format(
+                        Messages.getString("BulkLoaderImpl.error_msg_field_count"), //$NON-NLS-1$
+                        Integer.valueOf(this.parameterTypes.length),
+                        Integer.valueOf(fields.length)));
+                    continue;
+                }
+
+                bind(pstmt, fields);
+                pstmt.addBatch();
+                this.pending.add(new PendingRow(this.parser.getLineNumber(),
+                    this.parser.getLineOffset(), fields));
+                if (++batched == BulkLoaderImpl.this.batchSize) {
+                    executeBatch(conn, pstmt);
+                    batched = 0;
+                    if (this.pending.size() >= BulkLoaderImpl.this.commitInterval) {
+                        commit(conn);
+                    }
+                }
+            }
+
+            if (batched > 0) {
+                executeBatch(conn, pstmt);
+            }
+            if (!this.pending.isEmpty()) {
+                commit(conn);
+            }
+        }
+
+        private void executeBatch(Connection conn, PreparedStatement pstmt) throws SQLException {
+            try {
+                pstmt.executeBatch();
+            } catch (BatchUpdateException e) {
+                LOG.debug("Batch rejected, replaying {} rows individually: {}", //$NON-NLS-1$
+                    Integer.valueOf(this.pending.size()), e.getMessage());
+                pstmt.clearBatch();
+                replay(conn, pstmt);
+            }
+        }
+
+        /**
+         * Rolls back the uncommitted rows and re-executes them one at a time, each protected
+         * by a savepoint, so that only the offending rows are rejected.
+         */
+        private void replay(Connection conn, PreparedStatement pstmt) throws SQLException {
+            conn.rollback();
+            final List<PendingRow> rows = new ArrayList<>(this.pending);
+            this.pending.clear();
+            for (final PendingRow row : rows) {
+                final Savepoint savepoint = conn.setSavepoint();
+                try {
+                    bind(pstmt, row.fields);
+                    pstmt.executeUpdate();
+                    conn.releaseSavepoint(savepoint);
+                    this.pending.add(row);
+                } catch (SQLException e) {
+                    conn.rollback(savepoint);
+                    reject(row.line, this.parser.getLineAt(row.offset), e.getMessage());
+                }
+            }
+            commit(conn);
+        }
+
+        private void commit(Connection conn) throws SQLException {
+            conn.commit();
+            this.result.loaded += this.pending.size();
+            this.pending.clear();
+        }
+
+        private void bind(PreparedStatement pstmt, String[] fields) throws SQLException {
+            for (int i = 0; i < fields.length; i++) {
+                if (fields[i] == null) {
+                    pstmt.setNull(i + 1, this.parameterTypes[i]);
+                } else {
+                    pstmt.setObject(i + 1, fields[i], this.parameterTypes[i]);
+                }
+            }
+        }
+
+        private void reject(long line, String text, String reason) {
+            this.result.rejected.add(new LocalRejection(line, text, reason));
+        }
+    }
+
+    /**
+     * Returns the SQL type of each parameter, so that the driver converts the field text.
+     * Falls back to {@code VARCHAR} where the driver cannot describe its parameters.
+     */
+    private static int[] resolveParameterTypes(PreparedStatement pstmt) throws SQLException {
+        final int count = pstmt.getParameterMetaData().getParameterCount();
+        final int[] types = new int[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                types[i] = pstmt.getParameterMetaData().getParameterType(i + 1);
+            } catch (SQLException e) {
+                types[i] = Types.VARCHAR;
+            }
+            if (types[i] == Types.NULL || types[i] == Types.OTHER) {
+                types[i] = Types.VARCHAR;
+            }
+        }
+        return types;
+    }
+
+    private static final class PendingRow {
+        private final long line;
+        private final int offset;
+        private final String[] fields;
+
+        PendingRow(long line, int offset, String[] fields) {
+            this.line = line;
+            this.offset = offset;
+            this.fields = fields;
+        }
+    }
+
+    private static final class LocalRejection {
+        private final long line;
+        private final String text;
+        private final String reason;
+
+        LocalRejection(long line, String text, String reason) {
+            this.line = line;
+            this.text = text;
+            this.reason = reason;
+        }
+    }
+
+    private static final class PartitionResult {
+        private long loaded;
+        private long lines;
+        private final List<LocalRejection> rejected = new ArrayList<>();
+    }
+
+    private static final class RejectedRowImpl implements BulkLoadResult.RejectedRow {
+        private final long lineNumber;
+        private final String line;
+        private final String reason;
+
+        RejectedRowImpl(long lineNumber, String line, String reason) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.reason = reason;
+        }
+
+        @Override
+        public long getLineNumber() {
+            return this.lineNumber;
+        }
+
+        @Override
+        public String getLine() {
+            return this.line;
+        }
+
+        @Override
+        public String getReason() {
+            return this.reason;
+        }
+
+        @Override
+        public String toString() {
+            return this.lineNumber + ": " + this.reason; //$NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+import org.veary.persist.WorkloadClass;
+import org.veary.persist.exceptions.SaturatedException;
+
+/**
+ * <b>Purpose:</b> divides a fixed number of connections between the {@link WorkloadClass}es
+ * of a factory's managers.
+ *
+ * <p><b>Responsibility:</b> while enabled, each class may hold at most its ceiling of
+ * connections, and connections reserved for the other classes are only lent to a class once
+ * it holds its own reservation. When no connection can be granted, an operation waits for at
+ * most the maximum wait and is then refused with a {@link SaturatedException}. Released
+ * connections are offered to the waiters of the highest priority class which may take one,
+ * and a newly arriving operation does not overtake such a waiter.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class Bulkheads {
+
+    private static final WorkloadClass[] CLASSES = WorkloadClass.values();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition[] turns = new Condition[CLASSES.length];
+    private final int[] reserved = new int[CLASSES.length];
+    private final int[] ceiling = new int[CLASSES.length];
+    private final int[] inUse = new int[CLASSES.length];
+    private final int[] waiting = new int[CLASSES.length];
+    private final Admission[] admissions = new Admission[CLASSES.length];
+
+    private volatile int capacity;
+    private long maxWaitNanos;
+    private int total;
+
+    /**
+     * Constructor.
+     */
+    public Bulkheads() {
+        for (WorkloadClass workloadClass : CLASSES) {
+            final int index = workloadClass.ordinal();
+            this.turns[index] = this.lock.newCondition();
+            this.ceiling[index] = Integer.MAX_VALUE;
+            this.admissions[index] = new ClassAdmission(index);
+        }
+    }
+
+    /**
+     * Enables the bulkheads with the designated number of connections, or disables them if it
+     * is 0.
+     *
+     * @param connections the number of connections shared by all classes
+     * @param maxWaitMillis the longest time an operation waits for a connection
+     */
+    public void setCapacity(int connections, long maxWaitMillis) {
+        if (connections < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("Bulkheads.error_msg_invalid_capacity")); //$NON-NLS-1$
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("Bulkheads.error_msg_negative_wait")); //$NON-NLS-1$
+        }
+        this.lock.lock();
+        try {
+            requireReservable(this.reserved, connections);
+            this.capacity = connections;
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the connections reserved for, and the most connections held by, a class.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @param reservedConnections the number of connections only lent to other classes while
+     *     this one does not need them
+     * @param maxConnections the most connections the class may hold, which must be greater
+     *     than 0 and not less than {@code reservedConnections}
+     */
+    public void setShare(WorkloadClass workloadClass, int reservedConnections,
+        int maxConnections) {
+        Objects.requireNonNull(workloadClass,
+            Messages.getString("Bulkheads.error_msg_class_null")); //$NON-NLS-1$
+        if (reservedConnections < 0 || maxConnections < Math.max(1, reservedConnections)) {
+            throw new IllegalArgumentException(
+                Messages.getString("Bulkheads.error_msg_invalid_share")); //$NON-NLS-1$
+        }
+        this.lock.lock();
+        try {
+            final int[] proposed = this.reserved.clone();
+            proposed[workloadClass.ordinal()] = reservedConnections;
+            requireReservable(proposed, this.capacity);
+            this.reserved[workloadClass.ordinal()] = reservedConnections;
+            this.ceiling[workloadClass.ordinal()] = maxConnections;
+            signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of connections currently held by a class.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @return int
+     */
+    public int getInUse(WorkloadClass workloadClass) {
+        this.lock.lock();
+        try {
+            return this.inUse[workloadClass.ordinal()];
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a {@code DataSource} whose connections are counted against a class.
+     *
+     * @param workloadClass {@link WorkloadClass}
+     * @param ds the underlying {@link DataSource}
+     * @return {@link DataSource}
+     */
+    DataSource view(WorkloadClass workloadClass, DataSource ds) {
+        return new LimitedDataSource(ds, this.admissions[workloadClass.ordinal()]);
+    }
+
+    private static void requireReservable(int[] reservations, int connections) {
+        if (connections == 0) {
+            return;
+        }
+        int sum = 0;
+        for (int value : reservations) {
+            sum += value;
+        }
+        if (sum > connections) {
+            throw new IllegalArgumentException(
+                Messages.getString("Bulkheads.error_msg_over_reserved")); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Tests if a connection may be granted to a class. Must be called with the lock held.
+     */
+    private boolean admissible(int index) {
+        if (this.total >= this.capacity || this.inUse[index] >= this.ceiling[index]) {
+            return false;
+        }
+        if (this.inUse[index] < this.reserved[index]) {
+            return true;
+        }
+        int unused = 0;
+        for (int other = 0; other < CLASSES.length; other++) {
+            if (other != index) {
+                unused += Math.max(0, this.reserved[other] - this.inUse[other]);
+            }
+        }
+        return this.total + unused < this.capacity;
+    }
+
+    /**
+     * Tests if a waiter of a class with a higher priority may be granted a connection. Must
+     * be called with the lock held.
+     */
+    private boolean preempted(int index) {
+        for (int other = 0; other < index; other++) {
+            if (this.waiting[other] > 0 && admissible(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Wakes a waiter of the highest priority class which may be granted a connection. Must be
+     * called with the lock held.
+     */
+    private void signalNext() {
+        for (int index = 0; index < CLASSES.length; index++) {
+            if (this.waiting[index] > 0 && admissible(index)) {
+                this.turns[index].signal();
+                return;
+            }
+        }
+    }
+
+    private void signalAll() {
+        for (Condition turn : this.turns) {
+            turn.signalAll();
+        }
+    }
+
+    private long acquire(int index) {
+        if (this.capacity == 0) {
+            return Admission.NOT_ADMITTED;
+        }
+        this.lock.lock();
+        try {
+            long remaining = this.maxWaitNanos;
+            boolean admitted = false;
+            this.waiting[index]++;
+            try {
+                while (!admissible(index) || preempted(index)) {
+                    if (this.capacity == 0) {
+                        return Admission.NOT_ADMITTED;
+                    }
+                    if (remaining <= 0) {
+                        throw new SaturatedException(String.format(
+                            Messages.getString("Bulkheads.error_msg_saturated"), //$NON-NLS-1$
+                            CLASSES[index],
+                            Long.valueOf(TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos))));
+                    }
+                    remaining = this.turns[index].awaitNanos(remaining);
+                }
+                admitted = true;
+            } finally {
+                this.waiting[index]--;
+                if (!admitted) {
+                    // Leaving may let a waiter of a lower priority through.
+                    signalNext();
+                }
+            }
+            this.inUse[index]++;
+            this.total++;
+            signalNext();
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SaturatedException(
+                Messages.getString("Bulkheads.error_msg_interrupted")); //$NON-NLS-1$
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void release(int index) {
+        this.lock.lock();
+        try {
+            this.inUse[index]--;
+            this.total--;
+            signalNext();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * The {@link Admission} of a single class.
+     */
+    private final class ClassAdmission implements Admission {
+
+        private final int index;
+
+        ClassAdmission(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public long acquire() {
+            return Bulkheads.this.acquire(this.index);
+        }
+
+        @Override
+        public void release(long ticket, boolean sample) {
+            if (ticket != NOT_ADMITTED) {
+                Bulkheads.this.release(this.index);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+
+/**
+ * Reads the value of a single column with the JDBC getter suited to its SQL type, so that a
+ * column always yields the same Java type whichever driver is in use.
+ *
+ * <p>The reader for each column of a {@code ResultSet} is chosen once, by
+ * {@link #forType(int)}; reading a row then makes one call per column with no further type
+ * dispatch. Numeric getters return primitives, so {@code wasNull()} is only consulted when
+ * the value is zero or {@code false}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+enum ColumnReader {
+
+    /** {@code BIGINT} as {@code Long}. */
+    LONG {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            final long value = rset.getLong(column);
+            return value == 0 && rset.wasNull() ? null : Long.valueOf(value);
+        }
+    },
+
+    /** {@code INTEGER}, {@code SMALLINT} and {@code TINYINT} as {@code Integer}. */
+    INTEGER {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            final int value = rset.getInt(column);
+            return value == 0 && rset.wasNull() ? null : Integer.valueOf(value);
+        }
+    },
+
+    /** {@code DOUBLE} and {@code FLOAT} as {@code Double}. */
+    DOUBLE {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            final double value = rset.getDouble(column);
+            return value == 0 && rset.wasNull() ? null : Double.valueOf(value);
+        }
+    },
+
+    /** {@code REAL} as {@code Float}. */
+    FLOAT {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            final float value = rset.getFloat(column);
+            return value == 0 && rset.wasNull() ? null : Float.valueOf(value);
+        }
+    },
+
+    /** {@code BOOLEAN} and {@code BIT} as {@code Boolean}. */
+    BOOLEAN {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            final boolean value = rset.getBoolean(column);
+            return !value && rset.wasNull() ? null : Boolean.valueOf(value);
+        }
+    },
+
+    /** {@code DECIMAL} and {@code NUMERIC} as {@code BigDecimal}. */
+    DECIMAL {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getBigDecimal(column);
+        }
+    },
+
+    /** The character types as {@code String}. */
+    STRING {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getString(column);
+        }
+    },
+
+    /** {@code TIMESTAMP} as {@code LocalDateTime}. */
+    LOCAL_DATE_TIME {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getObject(column, LocalDateTime.class);
+        }
+    },
+
+    /** {@code DATE} as {@code LocalDate}. */
+    LOCAL_DATE {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getObject(column, LocalDate.class);
+        }
+    },
+
+    /** {@code TIME} as {@code LocalTime}. */
+    LOCAL_TIME {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getObject(column, LocalTime.class);
+        }
+    },
+
+    /** {@code TIMESTAMP WITH TIME ZONE} as {@code OffsetDateTime}. */
+    OFFSET_DATE_TIME {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getObject(column, OffsetDateTime.class);
+        }
+    },
+
+    /** Any other type, as the driver returns it from {@code getObject}. */
+    OBJECT {
+        @Override
+        Object read(ResultSet rset, int column) throws SQLException {
+            return rset.getObject(column);
+        }
+    };
+
+    /**
+     * Reads the value of a column of the current row.
+     *
+     * @param rset {@code ResultSet}
+     * @param column the column index, from 1
+     * @return the value, or {@code null} if it is SQL {@code NULL}
+     * @throws SQLException if a database access error occurs
+     */
+    abstract Object read(ResultSet rset, int column) throws SQLException;
+
+    /**
+     * Returns the reader for the designated SQL type.
+     *
+     * @param sqlType a {@link Types} constant
+     * @return {@code ColumnReader}
+     */
+    static ColumnReader forType(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+                return LONG;
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return INTEGER;
+            case Types.DOUBLE:
+            case Types.FLOAT:
+                return DOUBLE;
+            case Types.REAL:
+                return FLOAT;
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return BOOLEAN;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DECIMAL;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return STRING;
+            case Types.TIMESTAMP:
+                return LOCAL_DATE_TIME;
+            case Types.DATE:
+                return LOCAL_DATE;
+            case Types.TIME:
+                return LOCAL_TIME;
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return OFFSET_DATE_TIME;
+            default:
+                return OBJECT;
+        }
+    }
+}
@@ -0,0 +1,620 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.function.DoublePredicate;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+import org.veary.persist.columnar.Column;
+import org.veary.persist.columnar.ColumnarResult;
+import org.veary.persist.columnar.DoubleColumn;
+import org.veary.persist.columnar.IntColumn;
+import org.veary.persist.columnar.LongColumn;
+import org.veary.persist.columnar.StringColumn;
+
+/**
+ * Concrete implementation of {@link ColumnarResult}.
+ *
+ * <p>The kind of each column is chosen once from the {@code ResultSetMetaData}; every row is
+ * then read with the matching primitive getter straight into the column's array.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class ColumnarResultImpl implements ColumnarResult {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int MAX_LONG_DECIMAL_PRECISION = 18;
+
+    private final AbstractColumn[] columns;
+    private final Map<String, Integer> index;
+    private final int rowCount;
+
+    private ColumnarResultImpl(AbstractColumn[] columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+        this.index = new HashMap<>();
+        for (int i = columns.length - 1; i >= 0; i--) {
+            this.index.put(columns[i].getLabel(), Integer.valueOf(i));
+        }
+    }
+
+    /**
+     * Reads all of the remaining rows of the given {@link ResultSet}.
+     *
+     * @param rset {@code ResultSet}
+     * @return {@link ColumnarResult}. Cannot return {@code null}.
+     * @throws SQLException if a database access error occurs
+     */
+    static ColumnarResult read(ResultSet rset) throws SQLException {
+        final ResultSetMetaData md = rset.getMetaData();
+        final AbstractColumn[] columns = new AbstractColumn[md.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = newColumn(md, i + 1);
+        }
+
+        int rows = 0;
+        while (rset.next()) {
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].append(rset, i + 1);
+            }
+            rows++;
+        }
+
+        return new ColumnarResultImpl(columns, rows);
+    }
+
+    private static AbstractColumn newColumn(ResultSetMetaData md, int column)
+        throws SQLException {
+        final String label = md.getColumnLabel(column).toUpperCase();
+        switch (md.getColumnType(column)) {
+            case Types.BIGINT:
+                return new LongColumnImpl(label);
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return new IntColumnImpl(label);
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return new DoubleColumnImpl(label);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                if (md.getScale(column) == 0 && md.getPrecision(column) > 0
+                    && md.getPrecision(column) <= MAX_LONG_DECIMAL_PRECISION) {
+                    return new LongColumnImpl(label);
+                }
+                return new ObjectColumnImpl(label);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return new StringColumnImpl(label);
+            default:
+                return new ObjectColumnImpl(label);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return this.rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return this.columns.length;
+    }
+
+    @Override
+    public int getColumnIndex(String label) {
+        final Integer result = this.index.get(label.toUpperCase());
+        if (result == null) {
+            throw new IllegalArgumentException(String.format(
+                Messages.getString("ColumnarResultImpl.error_msg_no_column"), //$NON-NLS-1$
+                label));
+        }
+        return result.intValue();
+    }
+
+    @Override
+    public Column getColumn(int index) {
+        return this.columns[index];
+    }
+
+    @Override
+    public Column getColumn(String label) {
+        return this.columns[getColumnIndex(label)];
+    }
+
+    @Override
+    public LongColumn getLongColumn(String label) {
+        return (LongColumn) getColumn(label);
+    }
+
+    @Override
+    public IntColumn getIntColumn(String label) {
+        return (IntColumn) getColumn(label);
+    }
+
+    @Override
+    public DoubleColumn getDoubleColumn(String label) {
+        return (DoubleColumn) getColumn(label);
+    }
+
+    @Override
+    public StringColumn getStringColumn(String label) {
+        return (StringColumn) getColumn(label);
+    }
+
+    /**
+     * Holds the label, size and null bitmap common to all columns.
+     */
+    private abstract static class AbstractColumn implements Column {
+
+        private final String label;
+        private long[] nulls = new long[INITIAL_CAPACITY >>> 6];
+        private int nullCount;
+        protected int size;
+
+        AbstractColumn(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Reads the designated column of the current row and appends it.
+         */
+        abstract void append(ResultSet rset, int column) throws SQLException;
+
+        @Override
+        public String getLabel() {
+            return this.label;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public boolean isNull(int row) {
+            Objects.checkIndex(row, this.size);
+            return nullAt(row);
+        }
+
+        @Override
+        public int getNullCount() {
+            return this.nullCount;
+        }
+
+        protected boolean nullAt(int row) {
+            final int word = row >>> 6;
+            return word < this.nulls.length && (this.nulls[word] & 1L << row) != 0;
+        }
+
+        protected void markNull(int row) {
+            final int word = row >>> 6;
+            if (word >= this.nulls.length) {
+                this.nulls = Arrays.copyOf(this.nulls, Math.max(word + 1, this.nulls.length * 2));
+            }
+            this.nulls[word] |= 1L << row;
+            this.nullCount++;
+        }
+
+        protected static int grow(int capacity) {
+            return Math.max(INITIAL_CAPACITY, capacity + (capacity >>> 1));
+        }
+
+        protected static int[] trim(int[] rows, int count) {
+            return count == rows.length ? rows : Arrays.copyOf(rows, count);
+        }
+    }
+
+    private static final class LongColumnImpl extends AbstractColumn implements LongColumn {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        LongColumnImpl(String label) {
+            super(label);
+        }
+
+        @Override
+        void append(ResultSet rset, int column) throws SQLException {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.size));
+            }
+            this.values[this.size] = rset.getLong(column);
+            if (rset.wasNull()) {
+                markNull(this.size);
+            }
+            this.size++;
+        }
+
+        @Override
+        public long get(int row) {
+            Objects.checkIndex(row, this.size);
+            return this.values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : Long.valueOf(this.values[row]);
+        }
+
+        @Override
+        public long sum() {
+            long sum = 0;
+            for (int i = 0; i < this.size; i++) {
+                sum += this.values[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public OptionalLong min() {
+            boolean found = false;
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i)) {
+                    min = Math.min(min, this.values[i]);
+                    found = true;
+                }
+            }
+            return found ? OptionalLong.of(min) : OptionalLong.empty();
+        }
+
+        @Override
+        public OptionalLong max() {
+            boolean found = false;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i)) {
+                    max = Math.max(max, this.values[i]);
+                    found = true;
+                }
+            }
+            return found ? OptionalLong.of(max) : OptionalLong.empty();
+        }
+
+        @Override
+        public int[] filter(LongPredicate predicate) {
+            final int[] rows = new int[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i) && predicate.test(this.values[i])) {
+                    rows[count++] = i;
+                }
+            }
+            return trim(rows, count);
+        }
+
+        @Override
+        public long[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    private static final class IntColumnImpl extends AbstractColumn implements IntColumn {
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        IntColumnImpl(String label) {
+            super(label);
+        }
+
+        @Override
+        void append(ResultSet rset, int column) throws SQLException {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.size));
+            }
+            this.values[this.size] = rset.getInt(column);
+            if (rset.wasNull()) {
+                markNull(this.size);
+            }
+            this.size++;
+        }
+
+        @Override
+        public int get(int row) {
+            Objects.checkIndex(row, this.size);
+            return this.values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : Integer.valueOf(this.values[row]);
+        }
+
+        @Override
+        public long sum() {
+            long sum = 0;
+            for (int i = 0; i < this.size; i++) {
+                sum += this.values[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public OptionalInt min() {
+            boolean found = false;
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i)) {
+                    min = Math.min(min, this.values[i]);
+                    found = true;
+                }
+            }
+            return found ? OptionalInt.of(min) : OptionalInt.empty();
+        }
+
+        @Override
+        public OptionalInt max() {
+            boolean found = false;
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i)) {
+                    max = Math.max(max, this.values[i]);
+                    found = true;
+                }
+            }
+            return found ? OptionalInt.of(max) : OptionalInt.empty();
+        }
+
+        @Override
+        public int[] filter(IntPredicate predicate) {
+            final int[] rows = new int[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i) && predicate.test(this.values[i])) {
+                    rows[count++] = i;
+                }
+            }
+            return trim(rows, count);
+        }
+
+        @Override
+        public int[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    private static final class DoubleColumnImpl extends AbstractColumn implements DoubleColumn {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        DoubleColumnImpl(String label) {
+            super(label);
+        }
+
+        @Override
+        void append(ResultSet rset, int column) throws SQLException {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.size));
+            }
+            this.values[this.size] = rset.getDouble(column);
+            if (rset.wasNull()) {
+                markNull(this.size);
+            }
+            this.size++;
+        }
+
+        @Override
+        public double get(int row) {
+            Objects.checkIndex(row, this.size);
+            return this.values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : Double.valueOf(this.values[row]);
+        }
+
+        @Override
+        public double sum() {
+            double sum = 0;
+            for (int i = 0; i < this.size; i++) {
+                sum += this.values[i];
+            }
+            return sum;
+        }
+
+        @Override
+        public OptionalDouble min() {
+            boolean found = false;
+            double min = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i)) {
+                    min = Math.min(min, this.values[i]);
+                    found = true;
+                }
+            }
+            return found ? OptionalDouble.of(min) : OptionalDouble.empty();
+        }
+
+        @Override
+        public OptionalDouble max() {
+            boolean found = false;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i)) {
+                    max = Math.max(max, this.values[i]);
+                    found = true;
+                }
+            }
+            return found ? OptionalDouble.of(max) : OptionalDouble.empty();
+        }
+
+        @Override
+        public int[] filter(DoublePredicate predicate) {
+            final int[] rows = new int[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (!nullAt(i) && predicate.test(this.values[i])) {
+                    rows[count++] = i;
+                }
+            }
+            return trim(rows, count);
+        }
+
+        @Override
+        public double[] toArray() {
+            return Arrays.copyOf(this.values, this.size);
+        }
+    }
+
+    private static final class StringColumnImpl extends AbstractColumn implements StringColumn {
+
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        StringColumnImpl(String label) {
+            super(label);
+        }
+
+        @Override
+        void append(ResultSet rset, int column) throws SQLException {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.size));
+            }
+            final String value = rset.getString(column);
+            if (value == null) {
+                this.values[this.size] = -1;
+                markNull(this.size);
+            } else {
+                Integer code = this.codes.get(value);
+                if (code == null) {
+                    code = Integer.valueOf(this.dictionary.size());
+                    this.codes.put(value, code);
+                    this.dictionary.add(value);
+                }
+                this.values[this.size] = code.intValue();
+            }
+            this.size++;
+        }
+
+        @Override
+        public String get(int row) {
+            final int code = getCode(row);
+            return code < 0 ? null : this.dictionary.get(code);
+        }
+
+        @Override
+        public int getCode(int row) {
+            Objects.checkIndex(row, this.size);
+            return this.values[row];
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return get(row);
+        }
+
+        @Override
+        public List<String> getDictionary() {
+            return Collections.unmodifiableList(this.dictionary);
+        }
+
+        @Override
+        public int[] filter(Predicate<String> predicate) {
+            final boolean[] matches = new boolean[this.dictionary.size()];
+            for (int i = 0; i < matches.length; i++) {
+                matches[i] = predicate.test(this.dictionary.get(i));
+            }
+
+            final int[] rows = new int[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                final int code = this.values[i];
+                if (code >= 0 && matches[code]) {
+                    rows[count++] = i;
+                }
+            }
+            return trim(rows, count);
+        }
+
+        @Override
+        public int[] filterEquals(String value) {
+            final Integer code = value == null ? Integer.valueOf(-1) : this.codes.get(value);
+            if (code == null) {
+                return new int[0];
+            }
+
+            final int target = code.intValue();
+            final int[] rows = new int[this.size];
+            int count = 0;
+            for (int i = 0; i < this.size; i++) {
+                if (this.values[i] == target) {
+                    rows[count++] = i;
+                }
+            }
+            return trim(rows, count);
+        }
+    }
+
+    private static final class ObjectColumnImpl extends AbstractColumn {
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        ObjectColumnImpl(String label) {
+            super(label);
+        }
+
+        @Override
+        void append(ResultSet rset, int column) throws SQLException {
+            if (this.size == this.values.length) {
+                this.values = Arrays.copyOf(this.values, grow(this.size));
+            }
+            this.values[this.size] = rset.getObject(column);
+            if (this.values[this.size] == null) {
+                markNull(this.size);
+            }
+            this.size++;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            Objects.checkIndex(row, this.size);
+            return this.values[row];
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veary.persist.CommitListener;
+import org.veary.persist.CommittedTransaction;
+import org.veary.persist.OverflowPolicy;
+
+/**
+ * <b>Purpose:</b> delivers the committed transactions of the {@code TransactionManager}s
+ * created by a single factory to its {@link CommitListener}s.
+ *
+ * <p><b>Responsibility:</b> committing threads add events to a bounded buffer, which a single
+ * daemon thread drains, calling every listener for each event in turn. The thread is started
+ * when the first listener is added. While there are no listeners, transactions do not record
+ * their writes and nothing is buffered.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class CommitDispatcher {
+
+    private static final Logger LOG = LogManager.getLogger(CommitDispatcher.class);
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final long CLOSED_CHECK_MILLIS = 100;
+
+    private final List<CommitListener> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+    private volatile BlockingQueue<CommittedTransaction> queue;
+    private volatile OverflowPolicy policy = OverflowPolicy.DROP;
+    private int capacity = DEFAULT_CAPACITY;
+    private volatile Thread worker;
+
+    /**
+     * Sets the number of events which may wait for the listeners, and what happens to an
+     * event when that many are waiting. Defaults to 1,024 and {@link OverflowPolicy#DROP}.
+     * Under {@link OverflowPolicy#BLOCK}, a commit made by a listener on the dispatch thread
+     * does not wait, since only that thread makes room: its event is discarded if the buffer
+     * is full.
+     *
+     * @param capacity must be greater than 0
+     * @param policy {@link OverflowPolicy}
+     * @throws IllegalStateException if a listener has already been added
+     */
+    public synchronized void setBuffer(int capacity, OverflowPolicy policy) {
+        Objects.requireNonNull(policy,
+            Messages.getString("CommitDispatcher.error_msg_policy_null")); //$NON-NLS-1$
+        if (capacity <= 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("CommitDispatcher.error_msg_capacity")); //$NON-NLS-1$
+        }
+        if (this.worker != null) {
+            throw new IllegalStateException(
+                Messages.getString("CommitDispatcher.error_msg_started")); //$NON-NLS-1$
+        }
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds a listener, starting the dispatch thread if it is the first.
+     *
+     * @param listener {@link CommitListener}
+     */
+    public synchronized void addListener(CommitListener listener) {
+        Objects.requireNonNull(listener,
+            Messages.getString("CommitDispatcher.error_msg_listener_null")); //$NON-NLS-1$
+        if (this.worker == null) {
+            final BlockingQueue<CommittedTransaction> events =
+                new ArrayBlockingQueue<>(this.capacity);
+            this.queue = events;
+            this.worker = new Thread(() -> dispatch(events),
+                "persist-commit-events"); //$NON-NLS-1$
+            this.worker.setDaemon(true);
+            this.worker.start();
+        }
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener. The dispatch thread keeps running.
+     *
+     * @param listener {@link CommitListener}
+     */
+    public void removeListener(CommitListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Removes every listener and stops the dispatch thread. Events still in the buffer are
+     * discarded, as are those published afterwards, and a thread waiting for room gives up.
+     * Adding a listener afterwards starts a new thread.
+     */
+    public synchronized void close() {
+        this.listeners.clear();
+        this.queue = null;
+        if (this.worker != null) {
+            this.worker.interrupt();
+            this.worker = null;
+        }
+    }
+
+    /**
+     * Returns the number of events discarded because the buffer was full.
+     *
+     * @return long
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Tests if there are any listeners, and so if transactions should record their writes.
+     *
+     * @return boolean
+     */
+    boolean hasListeners() {
+        return !this.listeners.isEmpty();
+    }
+
+    /**
+     * Adds an event to the buffer, discarding it or waiting for room if the buffer is full.
+     * Does nothing once the dispatcher is closed.
+     *
+     * @param transaction {@link CommittedTransaction}
+     */
+    void publish(CommittedTransaction transaction) {
+        final BlockingQueue<CommittedTransaction> events = this.queue;
+        if (events == null) {
+            return;
+        }
+        if (this.policy == OverflowPolicy.DROP || Thread.currentThread() == this.worker) {
+            if (!events.offer(transaction)) {
+                this.dropped.increment();
+            }
+            return;
+        }
+        try {
+            while (!events.offer(transaction, CLOSED_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (this.queue != events) {
+                    this.dropped.increment();
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.dropped.increment();
+        }
+    }
+
+    private void dispatch(BlockingQueue<CommittedTransaction> events) {
+        while (true) {
+            final CommittedTransaction transaction;
+            try {
+                transaction = events.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (CommitListener listener : this.listeners) {
+                try {
+                    listener.onCommit(transaction);
+                } catch (RuntimeException e) {
+                    LOG.error("Commit listener failed: ", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.veary.persist.CommittedTransaction;
+
+/**
+ * The {@link CommittedTransaction} built by a {@code TransactionManagerImpl} on commit.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class CommitRecord implements CommittedTransaction {
+
+    private final List<Write> writes;
+    private final Set<String> tables;
+    private final boolean complete;
+    private final long commitTimeMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param writes the writes of the transaction, which the record takes ownership of
+     * @param commitTimeMillis the time of the commit
+     */
+    CommitRecord(List<Write> writes, long commitTimeMillis) {
+        final Set<String> written = new LinkedHashSet<>();
+        boolean known = true;
+        for (Write write : writes) {
+            if (write.getTable() == null) {
+                known = false;
+            } else {
+                written.add(write.getTable());
+            }
+        }
+        this.writes = Collections.unmodifiableList(writes);
+        this.tables = Collections.unmodifiableSet(written);
+        this.complete = known;
+        this.commitTimeMillis = commitTimeMillis;
+    }
+
+    @Override
+    public Set<String> getTables() {
+        return this.tables;
+    }
+
+    @Override
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    @Override
+    public List<Write> getWrites() {
+        return this.writes;
+    }
+
+    @Override
+    public long getCommitTimeMillis() {
+        return this.commitTimeMillis;
+    }
+
+    /**
+     * A single {@link CommittedTransaction.Write}.
+     */
+    static final class WriteRecord implements Write {
+
+        private final String kind;
+        private final String table;
+        private final int rowCount;
+        private final Long generatedKey;
+
+        WriteRecord(String kind, String table, int rowCount, Long generatedKey) {
+            this.kind = kind;
+            this.table = table;
+            this.rowCount = rowCount;
+            this.generatedKey = generatedKey;
+        }
+
+        @Override
+        public String getKind() {
+            return this.kind;
+        }
+
+        @Override
+        public String getTable() {
+            return this.table;
+        }
+
+        @Override
+        public int getRowCount() {
+            return this.rowCount;
+        }
+
+        @Override
+        public Long getGeneratedKey() {
+            return this.generatedKey;
+        }
+    }
+}
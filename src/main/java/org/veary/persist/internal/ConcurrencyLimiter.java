@@ -0,0 +1,214 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.veary.persist.exceptions.SaturatedException;
+
+/**
+ * <b>Purpose:</b> limits the number of operations of a factory's managers which hold a
+ * connection at the same time.
+ *
+ * <p><b>Responsibility:</b> while enabled, an operation which would exceed the limit waits
+ * for capacity for at most the maximum wait, and is then refused with a
+ * {@link SaturatedException}. The limit adapts to the time each connection is held, in the
+ * manner of a gradient limiter: a fast moving average of the hold time is compared with a
+ * slow one, and the limit shrinks in proportion while the fast average exceeds the slow one by
+ * more than half. Otherwise it grows by its square root, but only while at least half of it is
+ * in use. Changes are smoothed, and the limit is always kept within the configured range.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class ConcurrencyLimiter implements Admission {
+
+    private static final int INITIAL_LIMIT = 20;
+    private static final double TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SHORT_SMOOTHING = 0.2;
+    private static final double LONG_SMOOTHING = 0.01;
+    private static final double LIMIT_SMOOTHING = 0.2;
+    private static final double BASELINE_DECAY = 0.95;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = this.lock.newCondition();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private volatile int minimum;
+    private volatile int maximum;
+    private volatile long maxWaitNanos;
+    private double limit;
+    private double shortRtt;
+    private double longRtt;
+    private int inFlight;
+
+    /**
+     * Enables the limiter within the designated range, or disables it if both are 0.
+     *
+     * @param min the smallest limit
+     * @param max the largest limit
+     * @param maxWaitMillis the longest time an operation waits for capacity
+     */
+    public void setLimits(int min, int max, long maxWaitMillis) {
+        if (min < 0 || max < min || min == 0 && max != 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("ConcurrencyLimiter.error_msg_invalid_range")); //$NON-NLS-1$
+        }
+        if (maxWaitMillis < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("ConcurrencyLimiter.error_msg_negative_wait")); //$NON-NLS-1$
+        }
+        this.lock.lock();
+        try {
+            this.minimum = min;
+            this.maximum = max;
+            this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            this.limit = Math.max(min, Math.min(max, INITIAL_LIMIT));
+            this.shortRtt = 0;
+            this.longRtt = 0;
+            this.available.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current limit, or 0 if the limiter is disabled.
+     *
+     * @return int
+     */
+    public int getLimit() {
+        this.lock.lock();
+        try {
+            return this.maximum == 0 ? 0 : (int) this.limit;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of operations which currently hold a connection.
+     *
+     * @return int
+     */
+    public int getInFlight() {
+        this.lock.lock();
+        try {
+            return this.inFlight;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of operations which have been refused.
+     *
+     * @return long
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    @Override
+    public long acquire() {
+        if (this.maximum == 0) {
+            return NOT_ADMITTED;
+        }
+        this.lock.lock();
+        try {
+            long remaining = this.maxWaitNanos;
+            while (this.maximum != 0 && this.inFlight >= (int) this.limit) {
+                if (remaining <= 0) {
+                    this.rejected.incrementAndGet();
+                    throw new SaturatedException(String.format(
+                        Messages.getString("ConcurrencyLimiter.error_msg_saturated"), //$NON-NLS-1$
+                        Integer.valueOf((int) this.limit),
+                        Long.valueOf(TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos))));
+                }
+                remaining = this.available.awaitNanos(remaining);
+            }
+            if (this.maximum == 0) {
+                return NOT_ADMITTED;
+            }
+            this.inFlight++;
+            return System.nanoTime();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.rejected.incrementAndGet();
+            throw new SaturatedException(
+                Messages.getString("ConcurrencyLimiter.error_msg_interrupted")); //$NON-NLS-1$
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void release(long start, boolean sample) {
+        if (start == NOT_ADMITTED) {
+            return;
+        }
+        final long rtt = System.nanoTime() - start;
+        this.lock.lock();
+        try {
+            this.inFlight--;
+            if (sample && this.maximum != 0) {
+                adjust(rtt);
+            }
+            this.available.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void adjust(long rtt) {
+        if (this.longRtt == 0) {
+            this.shortRtt = rtt;
+            this.longRtt = rtt;
+            return;
+        }
+        this.shortRtt += (rtt - this.shortRtt) * SHORT_SMOOTHING;
+        this.longRtt += (rtt - this.longRtt) * LONG_SMOOTHING;
+        if (this.longRtt > this.shortRtt * 2) {
+            // Recovering from a slowdown: let the baseline follow the latency back down.
+            this.longRtt *= BASELINE_DECAY;
+        }
+
+        final double gradient = Math.max(MIN_GRADIENT,
+            Math.min(1.0, TOLERANCE * this.longRtt / this.shortRtt));
+        final double growth = this.inFlight + 1 < this.limit / 2 ? 0 : Math.sqrt(this.limit);
+        final double target = this.limit * gradient + (gradient < 1.0 ? 0 : growth);
+
+        final int previous = (int) this.limit;
+        this.limit = Math.max(this.minimum, Math.min(this.maximum,
+            this.limit + (target - this.limit) * LIMIT_SMOOTHING));
+        if ((int) this.limit > previous) {
+            this.available.signalAll();
+        }
+    }
+}
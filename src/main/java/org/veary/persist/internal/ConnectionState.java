@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.veary.persist.Isolation;
+
+/**
+ * The isolation level and read-only state of a pooled {@code Connection} before they were
+ * changed, so that they can be restored before it is returned to the pool.
+ *
+ * <p>A setting is only read and changed when it has been requested, and only written back
+ * when it was actually changed, so the default path makes no extra calls on the connection.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class ConnectionState {
+
+    /**
+     * The state of a connection which has not been changed.
+     */
+    static final ConnectionState UNCHANGED = new ConnectionState(-1, false);
+
+    private final int isolation;
+    private final boolean readOnlyChanged;
+
+    private ConnectionState(int isolation, boolean readOnlyChanged) {
+        this.isolation = isolation;
+        this.readOnlyChanged = readOnlyChanged;
+    }
+
+    /**
+     * Applies the designated settings to a connection.
+     *
+     * @param conn the {@code Connection}
+     * @param isolation the requested isolation level
+     * @param readOnly {@code true} to make the connection read-only; {@code false} leaves it
+     *     as it is
+     * @return the {@code ConnectionState} to be restored
+     * @throws SQLException if a database access error occurs
+     */
+    static ConnectionState apply(Connection conn, Isolation isolation, boolean readOnly)
+        throws SQLException {
+        int previousIsolation = -1;
+        if (isolation != Isolation.DEFAULT) {
+            final int current = conn.getTransactionIsolation();
+            if (current != isolation.getLevel()) {
+                conn.setTransactionIsolation(isolation.getLevel());
+                previousIsolation = current;
+            }
+        }
+
+        boolean readOnlyChanged = false;
+        if (readOnly && !conn.isReadOnly()) {
+            conn.setReadOnly(true);
+            readOnlyChanged = true;
+        }
+
+        return previousIsolation == -1 && !readOnlyChanged ? UNCHANGED
+            : new ConnectionState(previousIsolation, readOnlyChanged);
+    }
+
+    /**
+     * Restores the settings which were changed. Must be called outside of a transaction.
+     *
+     * @param conn the {@code Connection}
+     * @throws SQLException if a database access error occurs
+     */
+    void restore(Connection conn) throws SQLException {
+        if (this.readOnlyChanged) {
+            conn.setReadOnly(false);
+        }
+        if (this.isolation != -1) {
+            conn.setTransactionIsolation(this.isolation);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the records of a single chunk of a memory-mapped CSV file.
+ *
+ * <p>The parser works on the raw bytes: the delimiter, quote and line break characters are
+ * all ASCII and so can never occur inside a multi-byte UTF-8 sequence. Only field contents are
+ * decoded to {@code String}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class CsvChunkParser {
+
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    private final ByteBuffer buffer;
+    private final byte delimiter;
+    private final List<String> fields = new ArrayList<>();
+
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private int lineStart;
+    private long lineNumber;
+
+    /**
+     * Constructor.
+     *
+     * @param buffer the chunk, positioned at the start of a record
+     * @param delimiter the field delimiter
+     */
+    CsvChunkParser(ByteBuffer buffer, byte delimiter) {
+        this.buffer = buffer;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * Advances to the next line in the chunk.
+     *
+     * @return {@code false} if the end of the chunk has been reached
+     */
+    boolean next() {
+        if (!this.buffer.hasRemaining()) {
+            return false;
+        }
+
+        this.lineStart = this.buffer.position();
+        int end = this.lineStart;
+        final int limit = this.buffer.limit();
+        while (end < limit && this.buffer.get(end) != LF) {
+            end++;
+        }
+
+        int length = end - this.lineStart;
+        if (length > 0 && this.buffer.get(end - 1) == CR) {
+            length--;
+        }
+        if (this.line.length < length) {
+            this.line = new byte[Math.max(length, this.line.length * 2)];
+        }
+        this.buffer.get(this.line, 0, length);
+        this.buffer.position(Math.min(end + 1, limit));
+        this.lineLength = length;
+        this.lineNumber++;
+        return true;
+    }
+
+    /**
+     * Returns the number of the current line, relative to the start of the chunk. The first
+     * line is 1.
+     *
+     * @return long
+     */
+    long getLineNumber() {
+        return this.lineNumber;
+    }
+
+    /**
+     * Returns the offset of the current line from the start of the chunk.
+     *
+     * @return int
+     */
+    int getLineOffset() {
+        return this.lineStart;
+    }
+
+    /**
+     * Returns {@code true} if the current line has no content.
+     *
+     * @return boolean
+     */
+    boolean isBlank() {
+        return this.lineLength == 0;
+    }
+
+    /**
+     * Returns the current line as a {@code String}.
+     *
+     * @return {@code String}
+     */
+    String getLine() {
+        return new String(this.line, 0, this.lineLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the line at the designated offset, without moving the parser.
+     *
+     * @param offset a value previously returned by {@link #getLineOffset()}
+     * @return {@code String}
+     */
+    String getLineAt(int offset) {
+        final ByteBuffer dup = this.buffer.duplicate();
+        dup.position(offset);
+        int end = offset;
+        while (end < dup.limit() && dup.get(end) != LF && dup.get(end) != CR) {
+            end++;
+        }
+        final byte[] bytes = new byte[end - offset];
+        dup.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Splits the current line into fields. An empty unquoted field is returned as
+     * {@code null}; an empty quoted field as an empty {@code String}.
+     *
+     * @return {@code String[]}
+     * @throws IllegalArgumentException if the line is not well formed
+     */
+    String[] parseFields() {
+        this.fields.clear();
+        int pos = 0;
+        while (true) {
+            if (pos < this.lineLength && this.line[pos] == QUOTE) {
+                pos = parseQuoted(pos + 1);
+            } else {
+                final int start = pos;
+                while (pos < this.lineLength && this.line[pos] != this.delimiter) {
+                    pos++;
+                }
+                this.fields.add(pos == start ? null
+                    : new String(this.line, start, pos - start, StandardCharsets.UTF_8));
+            }
+
+            if (pos >= this.lineLength) {
+                break;
+            }
+            if (this.line[pos] != this.delimiter) {
+                throw new IllegalArgumentException(
+                    Messages.getString("CsvChunkParser.error_msg_after_quote")); //$NON-NLS-1$
+            }
+            pos++;
+            if (pos == this.lineLength) {
+                this.fields.add(null);
+                break;
+            }
+        }
+        return this.fields.toArray(new String[0]);
+    }
+
+    /**
+     * Parses a quoted field whose opening quote precedes {@code start}.
+     *
+     * @param start the position after the opening quote
+     * @return the position after the closing quote
+     */
+    private int parseQuoted(int start) {
+        byte[] value = null;
+        int valueLength = 0;
+        int pos = start;
+        int runStart = start;
+        while (pos < this.lineLength) {
+            if (this.line[pos] == QUOTE) {
+                if (pos + 1 < this.lineLength && this.line[pos + 1] == QUOTE) {
+                    if (value == null) {
+                        value = new byte[this.lineLength - start];
+                    }
+                    final int run = pos + 1 - runStart;
+                    System.arraycopy(this.line, runStart, value, valueLength, run);
+                    valueLength += run;
+                    pos += 2;
+                    runStart = pos;
+                    continue;
+                }
+                if (value == null) {
+                    this.fields.add(
+                        new String(this.line, start, pos - start, StandardCharsets.UTF_8));
+                } else {
+                    final int run = pos - runStart;
+                    System.arraycopy(this.line, runStart, value, valueLength, run);
+                    valueLength += run;
+                    this.fields.add(new String(value, 0, valueLength, StandardCharsets.UTF_8));
+                }
+                return pos + 1;
+            }
+            pos++;
+        }
+        throw new IllegalArgumentException(
+            Messages.getString("CsvChunkParser.error_msg_unterminated_quote")); //$NON-NLS-1$
+    }
+}
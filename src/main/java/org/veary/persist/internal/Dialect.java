@@ -0,0 +1,167 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * The SQL dialects for which statements which have no portable form are generated.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+enum Dialect {
+
+    /**
+     * H2: {@code MERGE INTO ... KEY (...) VALUES (...)}.
+     */
+    H2 {
+        @Override
+        String upsert(String table, List<String> columns, List<String> keys) {
+            return "MERGE INTO " + table + columnList(columns) //$NON-NLS-1$
+                + " KEY" + columnList(keys) //$NON-NLS-1$
+                + " VALUES" + parameterList(columns.size()); //$NON-NLS-1$
+        }
+    },
+
+    /**
+     * PostgreSQL: {@code INSERT ... ON CONFLICT (...) DO UPDATE}.
+     */
+    POSTGRESQL {
+        @Override
+        String upsert(String table, List<String> columns, List<String> keys) {
+            final StringJoiner set = new StringJoiner(COMMA);
+            for (String column : columns) {
+                if (!keys.contains(column)) {
+                    set.add(column + " = EXCLUDED." + column); //$NON-NLS-1$
+                }
+            }
+            return "INSERT INTO " + table + columnList(columns) //$NON-NLS-1$
+                + " VALUES" + parameterList(columns.size()) //$NON-NLS-1$
+                + " ON CONFLICT" + columnList(keys) //$NON-NLS-1$
+                + (set.length() == 0 ? " DO NOTHING" //$NON-NLS-1$
+                    : " DO UPDATE SET " + set); //$NON-NLS-1$
+        }
+    },
+
+    /**
+     * MySQL and MariaDB: {@code INSERT ... ON DUPLICATE KEY UPDATE}. The key columns must
+     * form a primary key or unique index.
+     */
+    MYSQL {
+        @Override
+        String upsert(String table, List<String> columns, List<String> keys) {
+            final StringJoiner set = new StringJoiner(COMMA);
+            for (String column : columns) {
+                if (!keys.contains(column)) {
+                    set.add(column + " = VALUES(" + column + ")"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+            }
+            if (set.length() == 0) {
+                set.add(keys.get(0) + " = " + keys.get(0)); //$NON-NLS-1$
+            }
+            return "INSERT INTO " + table + columnList(columns) //$NON-NLS-1$
+                + " VALUES" + parameterList(columns.size()) //$NON-NLS-1$
+                + " ON DUPLICATE KEY UPDATE " + set; //$NON-NLS-1$
+        }
+    },
+
+    /**
+     * Any other database: the SQL:2003 {@code MERGE} statement.
+     */
+    STANDARD {
+        @Override
+        String upsert(String table, List<String> columns, List<String> keys) {
+            final StringJoiner on = new StringJoiner(" AND "); //$NON-NLS-1$
+            for (String key : keys) {
+                on.add("T." + key + " = S." + key); //$NON-NLS-1$ //$NON-NLS-2$
+            }
+            final StringJoiner set = new StringJoiner(COMMA);
+            final StringJoiner values = new StringJoiner(COMMA, OPEN, CLOSE);
+            for (String column : columns) {
+                if (!keys.contains(column)) {
+                    set.add("T." + column + " = S." + column); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                values.add("S." + column); //$NON-NLS-1$
+            }
+            return "MERGE INTO " + table + " T USING (VALUES" //$NON-NLS-1$ //$NON-NLS-2$
+                + parameterList(columns.size()) + ") S" + columnList(columns) //$NON-NLS-1$
+                + " ON (" + on + ")" //$NON-NLS-1$ //$NON-NLS-2$
+                + (set.length() == 0 ? "" //$NON-NLS-1$
+                    : " WHEN MATCHED THEN UPDATE SET " + set) //$NON-NLS-1$
+                + " WHEN NOT MATCHED THEN INSERT" + columnList(columns) //$NON-NLS-1$
+                + " VALUES" + values; //$NON-NLS-1$
+        }
+    };
+
+    private static final String COMMA = ", "; //$NON-NLS-1$
+    private static final String OPEN = " ("; //$NON-NLS-1$
+    private static final String CLOSE = ")"; //$NON-NLS-1$
+
+    /**
+     * Returns the dialect for the designated {@code DatabaseMetaData} product name.
+     *
+     * @param productName the database product name
+     * @return {@link Dialect}
+     */
+    static Dialect of(String productName) {
+        final String name = productName == null ? "" //$NON-NLS-1$
+            : productName.toLowerCase(Locale.ROOT);
+        if (name.contains("h2")) { //$NON-NLS-1$
+            return H2;
+        }
+        if (name.contains("postgres")) { //$NON-NLS-1$
+            return POSTGRESQL;
+        }
+        if (name.contains("mysql") || name.contains("mariadb")) { //$NON-NLS-1$ //$NON-NLS-2$
+            return MYSQL;
+        }
+        return STANDARD;
+    }
+
+    /**
+     * Returns an upsert statement with one IN parameter per column, in column order.
+     *
+     * @param table the table
+     * @param columns the columns to be written
+     * @param keys the columns, which must also be in {@code columns}, which identify a row
+     * @return {@code String}
+     */
+    abstract String upsert(String table, List<String> columns, List<String> keys);
+
+    private static String columnList(List<String> columns) {
+        return OPEN + String.join(COMMA, columns) + CLOSE;
+    }
+
+    private static String parameterList(int count) {
+        final StringJoiner params = new StringJoiner(COMMA, OPEN, CLOSE);
+        for (int i = 0; i < count; i++) {
+            params.add("?"); //$NON-NLS-1$
+        }
+        return params.toString();
+    }
+}
@@ -0,0 +1,477 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.veary.persist.EntityCache;
+
+/**
+ * <b>Purpose:</b> the W-TinyLFU implementation of {@link EntityCache}.
+ *
+ * <p><b>Responsibility:</b> entries are held in a {@code ConcurrentHashMap}, so a hit never
+ * blocks. The eviction policy (a window LRU and a main LRU, with a {@link FrequencySketch}
+ * deciding which of the two candidates survives) is guarded by a lock. A hit records itself
+ * in the policy only if the lock is free; a contended access is simply not counted, which
+ * keeps readers from queuing behind one another.
+ *
+ * <p>A loader must call {@link #stamp(String)} before it reads from the database and pass the
+ * result to {@link #put}. If the table has been invalidated in between, the entity may be
+ * stale and is not cached.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class EntityCacheImpl implements EntityCache {
+
+    private static final int WINDOW_PERCENT = 1;
+
+    private final ConcurrentHashMap<Key, Node> data = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Long> timeToLive = new ConcurrentHashMap<>();
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final Node window = Node.sentinel();
+    private final Node main = Node.sentinel();
+    private final Map<String, Set<Node>> tables = new HashMap<>();
+    private final Map<EntityId, Set<Node>> entities = new HashMap<>();
+    private volatile long maximumSize;
+    private volatile long clearGeneration;
+    private long windowMaximum;
+    private long windowSize;
+    private long mainSize;
+
+    @Override
+    public EntityCache setMaximumSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("EntityCacheImpl.error_msg_negative")); //$NON-NLS-1$
+        }
+        this.lock.lock();
+        try {
+            this.maximumSize = maximumSize;
+            this.windowMaximum = Math.max(1, maximumSize * WINDOW_PERCENT / 100);
+            this.sketch.ensureCapacity(maximumSize);
+            evict();
+        } finally {
+            this.lock.unlock();
+        }
+        return this;
+    }
+
+    @Override
+    public EntityCache setTimeToLive(Class<?> entityInterface, long millis) {
+        Objects.requireNonNull(entityInterface,
+            Messages.getString("EntityCacheImpl.error_msg_iface_null")); //$NON-NLS-1$
+        if (millis < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("EntityCacheImpl.error_msg_negative")); //$NON-NLS-1$
+        }
+        this.timeToLive.put(entityInterface, Long.valueOf(TimeUnit.MILLISECONDS.toNanos(millis)));
+        return this;
+    }
+
+    @Override
+    public void evict(Class<?> entityInterface, Object key) {
+        this.lock.lock();
+        try {
+            final Set<Node> nodes = this.entities.get(new EntityId(entityInterface, key));
+            if (nodes != null) {
+                for (Node node : nodes.toArray(new Node[0])) {
+                    remove(node);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void evictAll(Class<?> entityInterface) {
+        this.lock.lock();
+        try {
+            for (Node node : this.data.values()) {
+                if (node.key.entityInterface == entityInterface) {
+                    remove(node);
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        this.lock.lock();
+        try {
+            this.clearGeneration++;
+            for (Node node : this.data.values()) {
+                remove(node);
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @Override
+    public long size() {
+        return this.data.size();
+    }
+
+    @Override
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    @Override
+    public double getHitRatio() {
+        final long hitCount = this.hits.sum();
+        final long total = hitCount + this.misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Tests if the cache is enabled.
+     *
+     * @return boolean
+     */
+    boolean isEnabled() {
+        return this.maximumSize > 0;
+    }
+
+    /**
+     * Returns the cached entity.
+     *
+     * @param entityInterface the interface of the entity
+     * @param column the column the key is looked up in
+     * @param key the key of the entity
+     * @return the entity, or {@code null} if it is not cached or has expired
+     */
+    Object get(Class<?> entityInterface, String column, Object key) {
+        final Key cacheKey = new Key(entityInterface, column, key);
+        final Node node = this.data.get(cacheKey);
+        if (node == null || node.isExpired(System.nanoTime())) {
+            this.misses.increment();
+            recordAccess(cacheKey, null);
+            return null;
+        }
+        this.hits.increment();
+        recordAccess(cacheKey, node);
+        return node.value;
+    }
+
+    /**
+     * Returns the current invalidation stamp of a table.
+     *
+     * @param table the upper-case table name
+     * @return long
+     */
+    long stamp(String table) {
+        return this.clearGeneration + this.generations.getOrDefault(table, Long.valueOf(0))
+            .longValue();
+    }
+
+    /**
+     * Caches an entity loaded from the designated table, unless the table has been
+     * invalidated since {@code stamp} was taken.
+     *
+     * @param table the upper-case table name
+     * @param entityInterface the interface of the entity
+     * @param column the column the key was looked up in
+     * @param key the key of the entity
+     * @param entity the entity
+     * @param stamp the value of {@link #stamp(String)} before the entity was read
+     */
+    void put(String table, Class<?> entityInterface, String column, Object key, Object entity,
+        long stamp) {
+        final Long ttl = this.timeToLive.get(entityInterface);
+        final long expiresAt = ttl == null || ttl.longValue() == 0 ? Long.MAX_VALUE
+            : System.nanoTime() + ttl.longValue();
+        final Key cacheKey = new Key(entityInterface, column, key);
+
+        this.lock.lock();
+        try {
+            if (this.maximumSize == 0 || stamp(table) != stamp) {
+                return;
+            }
+
+            final Node existing = this.data.get(cacheKey);
+            if (existing != null) {
+                remove(existing);
+            }
+
+            final Node node = new Node(cacheKey, table, entity, expiresAt);
+            this.data.put(cacheKey, node);
+            this.tables.computeIfAbsent(table, t -> new HashSet<>()).add(node);
+            this.entities.computeIfAbsent(new EntityId(entityInterface, key),
+                e -> new HashSet<>()).add(node);
+            node.linkBefore(this.window);
+            this.windowSize++;
+            evict();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Invalidates the entities of the designated tables.
+     *
+     * @param written the upper-case names of the tables
+     */
+    void invalidate(Collection<String> written) {
+        this.lock.lock();
+        try {
+            for (String table : written) {
+                this.generations.merge(table, Long.valueOf(1), Long::sum);
+                final Set<Node> nodes = this.tables.remove(table);
+                if (nodes != null) {
+                    for (Node node : nodes.toArray(new Node[0])) {
+                        remove(node);
+                    }
+                }
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void recordAccess(Key key, Node node) {
+        if (this.lock.tryLock()) {
+            try {
+                this.sketch.increment(key);
+                if (node != null && node.isLinked()) {
+                    node.unlink();
+                    node.linkBefore(node.inMain ? this.main : this.window);
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Moves entries from the window to the main region, and evicts entries, until both are
+     * within their maximum size. Must be called with the lock held.
+     */
+    private void evict() {
+        final long mainMaximum = Math.max(0, this.maximumSize - this.windowMaximum);
+        while (this.windowSize > this.windowMaximum
+            || this.windowSize > 0 && this.maximumSize == 0) {
+            final Node candidate = this.window.next;
+            candidate.unlink();
+            this.windowSize--;
+
+            if (this.mainSize < mainMaximum) {
+                candidate.inMain = true;
+                candidate.linkBefore(this.main);
+                this.mainSize++;
+                continue;
+            }
+
+            final Node victim = this.main.next;
+            if (victim != this.main && this.sketch.frequency(candidate.key)
+                > this.sketch.frequency(victim.key)) {
+                evict(victim);
+                candidate.inMain = true;
+                candidate.linkBefore(this.main);
+                this.mainSize++;
+            } else {
+                candidate.linkBefore(this.window);
+                this.windowSize++;
+                evict(candidate);
+            }
+        }
+        while (this.mainSize > mainMaximum) {
+            evict(this.main.next);
+        }
+    }
+
+    private void evict(Node node) {
+        remove(node);
+        this.evictions.increment();
+    }
+
+    private void remove(Node node) {
+        if (!this.data.remove(node.key, node)) {
+            return;
+        }
+        if (node.isLinked()) {
+            node.unlink();
+            if (node.inMain) {
+                this.mainSize--;
+            } else {
+                this.windowSize--;
+            }
+        }
+        final Set<Node> nodes = this.tables.get(node.table);
+        if (nodes != null) {
+            nodes.remove(node);
+            if (nodes.isEmpty()) {
+                this.tables.remove(node.table);
+            }
+        }
+        final EntityId id = new EntityId(node.key.entityInterface, node.key.key);
+        final Set<Node> same = this.entities.get(id);
+        if (same != null) {
+            same.remove(node);
+            if (same.isEmpty()) {
+                this.entities.remove(id);
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> entityInterface;
+        private final String column;
+        private final Object key;
+
+        Key(Class<?> entityInterface, String column, Object key) {
+            this.entityInterface = entityInterface;
+            this.column = column;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.entityInterface == other.entityInterface
+                && this.column.equals(other.column) && this.key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * this.entityInterface.hashCode() + this.column.hashCode())
+                + this.key.hashCode();
+        }
+    }
+
+    /**
+     * An entity regardless of the column it was looked up by.
+     */
+    private static final class EntityId {
+
+        private final Class<?> entityInterface;
+        private final Object key;
+
+        EntityId(Class<?> entityInterface, Object key) {
+            this.entityInterface = entityInterface;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof EntityId)) {
+                return false;
+            }
+            final EntityId other = (EntityId) obj;
+            return this.entityInterface == other.entityInterface && this.key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.entityInterface.hashCode() + this.key.hashCode();
+        }
+    }
+
+    private static final class Node {
+
+        private final Key key;
+        private final String table;
+        private final Object value;
+        private final long expiresAt;
+        private boolean inMain;
+        private Node prev;
+        private Node next;
+
+        Node(Key key, String table, Object value, long expiresAt) {
+            this.key = key;
+            this.table = table;
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        static Node sentinel() {
+            final Node node = new Node(null, null, null, Long.MAX_VALUE);
+            node.prev = node;
+            node.next = node;
+            return node;
+        }
+
+        boolean isExpired(long now) {
+            return this.expiresAt != Long.MAX_VALUE && now - this.expiresAt >= 0;
+        }
+
+        boolean isLinked() {
+            return this.next != null;
+        }
+
+        void linkBefore(Node sentinel) {
+            this.prev = sentinel.prev;
+            this.next = sentinel;
+            sentinel.prev.next = this;
+            sentinel.prev = this;
+        }
+
+        void unlink() {
+            this.prev.next = this.next;
+            this.next.prev = this.prev;
+            this.prev = null;
+            this.next = null;
+        }
+    }
+}
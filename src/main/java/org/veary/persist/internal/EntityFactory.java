@@ -0,0 +1,126 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.veary.persist.exceptions.PersistenceException;
+
+/**
+ * Creates entity instances through the <b>static factory method</b> declared by an entity
+ * interface, and reads {@code ResultSet} rows into the {@code Map} passed to it.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class EntityFactory {
+
+    private static final String ENTITY_FACTORY_METHOD = "newInstance"; //$NON-NLS-1$
+    private static final ClassValue<EntityFactory> FACTORIES =
+        new ClassValue<EntityFactory>() {
+            @Override
+            protected EntityFactory computeValue(Class<?> type) {
+                return new EntityFactory(type);
+            }
+        };
+
+    private final Class<?> entityInterface;
+    private final Method staticFactory;
+
+    /**
+     * Constructor.
+     *
+     * @param entityInterface the interface of the entity to be created
+     */
+    private EntityFactory(Class<?> entityInterface) {
+        this.entityInterface = entityInterface;
+        this.staticFactory = getStaticFactoryMethod(entityInterface);
+    }
+
+    /**
+     * Returns the {@code EntityFactory} for the designated interface. The static factory
+     * method is looked up once per interface and then cached.
+     *
+     * @param entityInterface the interface of the entity to be created
+     * @return {@link EntityFactory}
+     */
+    static EntityFactory forInterface(Class<?> entityInterface) {
+        return FACTORIES.get(entityInterface);
+    }
+
+    /**
+     * Invokes the entity interface's static factory method.
+     *
+     * @param dataMap a row of the query result
+     * @return {@link Object}
+     */
+    Object newInstance(Map<String, Object> dataMap) {
+        try {
+            return this.staticFactory.invoke(this.entityInterface, dataMap);
+        } catch (IllegalAccessException | IllegalArgumentException
+            | InvocationTargetException e) {
+            throw new PersistenceException(
+                String.format("Error invoking %s.newInstance(): %s - cause: %s",
+                    this.entityInterface.getName(),
+                    e, e.getCause()));
+        }
+    }
+
+    /**
+     * Reads all of the remaining rows of the given {@link ResultSet} into a
+     * {@code List<Map<String, Object>>}. The keys are the upper-case column labels, in column
+     * order, and each value is read as described by {@link ColumnReader}.
+     *
+     * @param rset {@code ResultSet}
+     * @return a {@code List<Map<String, Object>>}. Cannot return {@code null}.
+     * @throws SQLException if a database access error occurs
+     */
+    static List<Map<String, Object>> readRows(ResultSet rset) throws SQLException {
+        return RowReader.of(rset.getMetaData()).readAll(rset);
+    }
+
+    /**
+     * Ensures that the {@code entityInterface} has a declared <b>static method</b> named
+     * <b>newInstance</b> and takes a single parameter of type {@code Map}.
+     *
+     * @param entityInterface the interface of the entity to be created
+     * @return {@link Method}
+     */
+    private static Method getStaticFactoryMethod(Class<?> entityInterface) {
+        try {
+            return entityInterface.getDeclaredMethod(ENTITY_FACTORY_METHOD, Map.class);
+        } catch (NoSuchMethodException | SecurityException e) {
+            throw new PersistenceException(
+                String.format("Error accessing %s.newInstance(): %s - cause: %s",
+                    entityInterface.getName(),
+                    e, e.getCause()));
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import org.veary.persist.exceptions.PersistenceException;
+import org.veary.persist.mapping.Column;
+import org.veary.persist.mapping.Id;
+import org.veary.persist.mapping.Table;
+
+/**
+ * The mapping of an entity interface annotated with {@link Table} to its table, together with
+ * the INSERT and UPDATE statements generated from it.
+ *
+ * <p>The metadata is resolved once per entity class and cached. Column values are read through
+ * {@code MethodHandle}s to the interface's getters, so that writing an entity involves no
+ * reflection and no string building.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class EntityMetadata {
+
+    private static final String GET = "get"; //$NON-NLS-1$
+    private static final String IS = "is"; //$NON-NLS-1$
+    private static final String COMMA = ", "; //$NON-NLS-1$
+    private static final Pattern TABLE_NAME =
+        Pattern.compile("([A-Za-z_][A-Za-z0-9_]*\\.)?[A-Za-z_][A-Za-z0-9_]*"); //$NON-NLS-1$
+    private static final Pattern COLUMN_NAME =
+        Pattern.compile("[A-Za-z_][A-Za-z0-9_]*"); //$NON-NLS-1$
+    private static final MethodType GETTER_TYPE =
+        MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<EntityMetadata> BY_INTERFACE =
+        new ClassValue<EntityMetadata>() {
+            @Override
+            protected EntityMetadata computeValue(Class<?> type) {
+                return new EntityMetadata(type);
+            }
+        };
+    private static final ClassValue<EntityMetadata> BY_CLASS =
+        new ClassValue<EntityMetadata>() {
+            @Override
+            protected EntityMetadata computeValue(Class<?> type) {
+                final Class<?> mapped = mappedInterface(type);
+                if (mapped == null) {
+                    throw new IllegalArgumentException(String.format(Messages
+                        .getString("EntityMetadata.error_msg_no_table"), //$NON-NLS-1$
+                        type.getName()));
+                }
+                return BY_INTERFACE.get(mapped);
+            }
+        };
+
+    private final Class<?> entityInterface;
+    private final boolean keyGenerated;
+    private final String insertSql;
+    private final MethodHandle[] insertGetters;
+    private final String updateSql;
+    private final MethodHandle[] updateGetters;
+
+    private EntityMetadata(Class<?> entityInterface) {
+        this.entityInterface = entityInterface;
+        final String table = entityInterface.getAnnotation(Table.class).value();
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException(String.format(
+                Messages.getString("EntityMetadata.error_msg_invalid_table"), //$NON-NLS-1$
+                table));
+        }
+
+        final Map<String, MethodHandle> columns = new TreeMap<>();
+        String keyColumn = null;
+        MethodHandle keyGetter = null;
+        boolean generated = false;
+        for (Method method : entityInterface.getMethods()) {
+            final String column = columnName(method);
+            if (column == null) {
+                continue;
+            }
+            final MethodHandle getter = getter(method);
+            final Id id = method.getAnnotation(Id.class);
+            if (id == null) {
+                columns.put(column, getter);
+                continue;
+            }
+            if (keyColumn != null) {
+                throw new IllegalArgumentException(String.format(Messages
+                    .getString("EntityMetadata.error_msg_multiple_ids"), //$NON-NLS-1$
+                    entityInterface.getName()));
+            }
+            keyColumn = column;
+            keyGetter = getter;
+            generated = id.generated();
+        }
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                Messages.getString("EntityMetadata.error_msg_no_columns"), //$NON-NLS-1$
+                entityInterface.getName()));
+        }
+
+        final List<String> inserted = new ArrayList<>(columns.keySet());
+        final List<MethodHandle> insertValues = new ArrayList<>(columns.values());
+        if (keyColumn != null && !generated) {
+            inserted.add(0, keyColumn);
+            insertValues.add(0, keyGetter);
+        }
+        this.keyGenerated = generated;
+        this.insertSql = new StringBuilder(64).append("INSERT INTO ") //$NON-NLS-1$
+            .append(table).append('(').append(String.join(COMMA, inserted))
+            .append(") VALUES(") //$NON-NLS-1$
+            .append(String.join(COMMA, Collections.nCopies(inserted.size(), "?"))) //$NON-NLS-1$
+            .append(')').toString();
+        this.insertGetters = insertValues.toArray(new MethodHandle[0]);
+
+        if (keyColumn == null) {
+            this.updateSql = null;
+            this.updateGetters = null;
+        } else {
+            final StringBuilder sql = new StringBuilder(64).append("UPDATE ") //$NON-NLS-1$
+                .append(table).append(" SET "); //$NON-NLS-1$
+            final List<MethodHandle> updateValues = new ArrayList<>(columns.values());
+            boolean first = true;
+            for (String column : columns.keySet()) {
+                if (!first) {
+                    sql.append(COMMA);
+                }
+                sql.append(column).append(" = ?"); //$NON-NLS-1$
+                first = false;
+            }
+            this.updateSql = sql.append(" WHERE ").append(keyColumn) //$NON-NLS-1$
+                .append(" = ?").toString(); //$NON-NLS-1$
+            updateValues.add(keyGetter);
+            this.updateGetters = updateValues.toArray(new MethodHandle[0]);
+        }
+    }
+
+    /**
+     * Returns the metadata of the entity interface implemented by the designated entity.
+     *
+     * @param entity an instance of an interface annotated with {@link Table}
+     * @return {@code EntityMetadata}
+     * @throws IllegalArgumentException if the entity's class does not implement such an
+     *     interface, or its mapping is invalid
+     */
+    static EntityMetadata forEntity(Object entity) {
+        return BY_CLASS.get(entity.getClass());
+    }
+
+    /**
+     * Returns the generated {@code INSERT} statement.
+     *
+     * @return {@code String}
+     */
+    String getInsertSql() {
+        return this.insertSql;
+    }
+
+    /**
+     * Returns {@code true} if the key is generated by the database.
+     *
+     * @return boolean
+     */
+    boolean isKeyGenerated() {
+        return this.keyGenerated;
+    }
+
+    /**
+     * Returns the generated {@code UPDATE} statement, which sets every column but the key.
+     *
+     * @return {@code String}
+     * @throws IllegalStateException if the entity interface has no {@link Id}
+     */
+    String getUpdateSql() {
+        if (this.updateSql == null) {
+            throw new IllegalStateException(String.format(
+                Messages.getString("EntityMetadata.error_msg_no_id"), //$NON-NLS-1$
+                this.entityInterface.getName()));
+        }
+        return this.updateSql;
+    }
+
+    /**
+     * Binds the values of the entity to the parameters of the {@code INSERT} statement.
+     *
+     * @param pstmt {@code PreparedStatement} of {@link #getInsertSql()}
+     * @param entity the entity
+     * @throws SQLException if a database access error occurs
+     */
+    void bindInsert(PreparedStatement pstmt, Object entity) throws SQLException {
+        bind(pstmt, entity, this.insertGetters);
+    }
+
+    /**
+     * Binds the values of the entity to the parameters of the {@code UPDATE} statement.
+     *
+     * @param pstmt {@code PreparedStatement} of {@link #getUpdateSql()}
+     * @param entity the entity
+     * @throws SQLException if a database access error occurs
+     */
+    void bindUpdate(PreparedStatement pstmt, Object entity) throws SQLException {
+        bind(pstmt, entity, this.updateGetters);
+    }
+
+    private void bind(PreparedStatement pstmt, Object entity, MethodHandle[] getters)
+        throws SQLException {
+        for (int i = 0; i < getters.length; i++) {
+            final Object value;
+            try {
+                value = getters[i].invokeExact(entity);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new PersistenceException(e);
+            }
+            pstmt.setObject(i + 1, value);
+        }
+    }
+
+    /**
+     * Returns the column of a getter, or {@code null} if the method is not a getter.
+     */
+    private static String columnName(Method method) {
+        final Column column = method.getAnnotation(Column.class);
+        final boolean annotated = column != null || method.isAnnotationPresent(Id.class);
+        if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0
+            || method.getReturnType() == void.class || method.isDefault() && !annotated) {
+            return null;
+        }
+
+        final String name = method.getName();
+        final String property;
+        if (name.startsWith(GET) && name.length() > GET.length()) {
+            property = name.substring(GET.length());
+        } else if (name.startsWith(IS) && name.length() > IS.length()) {
+            property = name.substring(IS.length());
+        } else if (annotated) {
+            property = name;
+        } else {
+            return null;
+        }
+
+        final String result = column == null ? snakeCase(property) : column.value();
+        if (!COLUMN_NAME.matcher(result).matches()) {
+            throw new IllegalArgumentException(String.format(
+                Messages.getString("EntityMetadata.error_msg_invalid_column"), //$NON-NLS-1$
+                result));
+        }
+        return result;
+    }
+
+    private static String snakeCase(String property) {
+        final StringBuilder sb = new StringBuilder(property.length() + 4);
+        for (int i = 0; i < property.length(); i++) {
+            final char ch = property.charAt(i);
+            if (i > 0 && Character.isUpperCase(ch)
+                && !Character.isUpperCase(property.charAt(i - 1))) {
+                sb.append('_');
+            }
+            sb.append(Character.toUpperCase(ch));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns a handle to a getter. This module is first made to read the entity's module,
+     * as core reflection would do implicitly.
+     */
+    private static MethodHandle getter(Method method) {
+        EntityMetadata.class.getModule().addReads(method.getDeclaringClass().getModule());
+        try {
+            return MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    private static Class<?> mappedInterface(Class<?> type) {
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Class<?> iface : c.getInterfaces()) {
+                if (iface.isAnnotationPresent(Table.class)) {
+                    return iface;
+                }
+                final Class<?> inherited = mappedInterface(iface);
+                if (inherited != null) {
+                    return inherited;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The first-level cache of a single transaction: entities loaded by key, grouped by the table
+ * they were read from so that a write to a table evicts exactly the entities it may have
+ * changed.
+ *
+ * <p>Instances are confined to the thread which owns the transaction.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class IdentityMap {
+
+    private final Map<String, Map<Key, Object>> tables = new HashMap<>();
+
+    /**
+     * Returns the cached entity.
+     *
+     * @param table the upper-case table name
+     * @param entityInterface the interface of the entity
+     * @param column the column the key was looked up in
+     * @param key the key it was loaded by
+     * @return the entity, or {@code null} if it is not cached
+     */
+    Object get(String table, Class<?> entityInterface, String column, Object key) {
+        final Map<Key, Object> entities = this.tables.get(table);
+        return entities == null ? null : entities.get(new Key(entityInterface, column, key));
+    }
+
+    /**
+     * Caches an entity.
+     *
+     * @param table the upper-case table name
+     * @param entityInterface the interface of the entity
+     * @param column the column the key was looked up in
+     * @param key the key it was loaded by
+     * @param entity the entity
+     */
+    void put(String table, Class<?> entityInterface, String column, Object key,
+        Object entity) {
+        this.tables.computeIfAbsent(table, t -> new HashMap<>())
+            .put(new Key(entityInterface, column, key), entity);
+    }
+
+    /**
+     * Updates the map for a statement which has been persisted. An {@code INSERT} cannot
+     * change an entity which has already been loaded, so it is ignored; an {@code UPDATE},
+     * {@code DELETE} or {@code MERGE} evicts the entities of its table; any other statement,
+     * or one whose table cannot be determined, clears the map.
+     *
+     * @param keyword the leading keyword of the statement
+     * @param table the table written by the statement, or {@code null} if it is not known
+     * @see SqlText
+     */
+    void persisted(String keyword, String table) {
+        if (this.tables.isEmpty() || "INSERT".equals(keyword)) { //$NON-NLS-1$
+            return;
+        }
+
+        if (table == null) {
+            clear();
+        } else {
+            this.tables.remove(table);
+        }
+    }
+
+    /**
+     * Removes all of the cached entities.
+     */
+    void clear() {
+        this.tables.clear();
+    }
+
+    private static final class Key {
+
+        private final Class<?> entityInterface;
+        private final String column;
+        private final Object key;
+
+        Key(Class<?> entityInterface, String column, Object key) {
+            this.entityInterface = entityInterface;
+            this.column = column;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return this.entityInterface == other.entityInterface
+                && this.column.equals(other.column) && this.key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.entityInterface, this.column, this.key);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.veary.persist.SqlStatement;
+import org.veary.persist.exceptions.NonUniqueResultException;
+
+/**
+ * A validated lookup of a single entity by key, as used by the {@code find} methods of the
+ * managers.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class KeyLookup {
+
+    private static final String SELECT_STR = "SELECT"; //$NON-NLS-1$
+    private static final Pattern LOOKUP = Pattern.compile(
+        "SELECT\\s.+?\\sFROM\\s+([\\w.\"]+)(?:\\s+(?:AS\\s+)?(\\w+))?" //$NON-NLS-1$
+            + "\\s+WHERE\\s+(?:(\\w+)\\.)?(\\w+)\\s*=\\s*\\?\\s*;?", //$NON-NLS-1$
+        Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    private final Class<?> entityInterface;
+    private final String sql;
+    private final String table;
+    private final String keyColumn;
+    private final Object key;
+
+    /**
+     * Constructor.
+     *
+     * @param entityInterface the interface of the entity
+     * @param lookup a {@code SELECT} from a single table whose only condition compares one
+     *     column with the IN parameter, as in {@code SELECT * FROM t WHERE id = ?}
+     * @param key the key of the entity
+     */
+    KeyLookup(Class<?> entityInterface, SqlStatement lookup, Object key) {
+        this.entityInterface = Objects.requireNonNull(entityInterface,
+            Messages.getString("QueryImpl.error_msg_iface_null")); //$NON-NLS-1$
+        Objects.requireNonNull(lookup,
+            Messages.getString("QueryImpl.error_msg_statement_null")); //$NON-NLS-1$
+        this.key = Objects.requireNonNull(key,
+            Messages.getString("QueryImpl.error_msg_null_value")); //$NON-NLS-1$
+
+        this.sql = lookup.toString();
+        if (!SELECT_STR.equals(SqlText.keyword(this.sql))) {
+            throw new IllegalStateException(
+                Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
+        }
+        if (SqlText.countParameters(this.sql) != 1) {
+            throw new IllegalArgumentException(
+                Messages.getString("KeyLookup.error_msg_parameters")); //$NON-NLS-1$
+        }
+        this.table = SqlText.table(this.sql);
+        if (this.table == null) {
+            throw new IllegalArgumentException(
+                Messages.getString("KeyLookup.error_msg_no_table")); //$NON-NLS-1$
+        }
+        final Matcher matcher = LOOKUP.matcher(this.sql.trim());
+        if (!matcher.matches()
+            || !this.table.equals(matcher.group(1).replace("\"", "") //$NON-NLS-1$ //$NON-NLS-2$
+                .toUpperCase(Locale.ROOT))
+            || !isOwnQualifier(matcher.group(3), matcher.group(2))) {
+            throw new IllegalArgumentException(
+                Messages.getString("KeyLookup.error_msg_form")); //$NON-NLS-1$
+        }
+        this.keyColumn = this.table + '.' + matcher.group(4).toUpperCase(Locale.ROOT);
+    }
+
+    Class<?> getEntityInterface() {
+        return this.entityInterface;
+    }
+
+    String getSql() {
+        return this.sql;
+    }
+
+    String getTable() {
+        return this.table;
+    }
+
+    /**
+     * Returns the table-qualified column the key is compared with, which together with the
+     * interface and the key identifies a cached entity.
+     *
+     * @return String
+     */
+    String getKeyColumn() {
+        return this.keyColumn;
+    }
+
+    Object getKey() {
+        return this.key;
+    }
+
+    /**
+     * Tests if the qualifier of the key column, if any, names the table being read.
+     */
+    private boolean isOwnQualifier(String qualifier, String alias) {
+        if (qualifier == null) {
+            return true;
+        }
+        if (alias != null) {
+            return qualifier.equalsIgnoreCase(alias);
+        }
+        return qualifier.equalsIgnoreCase(
+            this.table.substring(this.table.lastIndexOf('.') + 1));
+    }
+
+    /**
+     * Reads the row with the lookup's key.
+     *
+     * @param conn the {@code Connection} to use
+     * @return the row, or {@code null} if there is none
+     * @throws SQLException if a database access error occurs
+     * @throws NonUniqueResultException if more than one row is found
+     */
+    Map<String, Object> read(Connection conn) throws SQLException {
+        final List<Map<String, Object>> rows;
+        try (PreparedStatement pstmt = conn.prepareStatement(this.sql)) {
+            pstmt.setMaxRows(2);
+            pstmt.setObject(1, this.key);
+            try (ResultSet rset = pstmt.executeQuery()) {
+                rows = EntityFactory.readRows(rset);
+            }
+        }
+
+        if (rows.isEmpty()) {
+            return null;
+        }
+        if (rows.size() > 1) {
+            throw new NonUniqueResultException(
+                Messages.getString("QueryImpl.error_msg_too_many_results")); //$NON-NLS-1$
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * Maps a row to an entity.
+     *
+     * @param row a row returned by {@link #read(Connection)}
+     * @return the entity
+     */
+    Object map(Map<String, Object> row) {
+        return EntityFactory.forInterface(this.entityInterface).newInstance(row);
+    }
+}
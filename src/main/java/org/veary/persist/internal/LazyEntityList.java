@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * An unmodifiable {@code List} of entities which are created from the fetched rows on first
+ * access, rather than all at once.
+ *
+ * <p>Each entity is created by the {@link EntityFactory} the first time its index is read and
+ * the same instance is returned thereafter. {@link #size()} never creates an entity. The list
+ * may be safely shared between threads; should two threads read an unmapped index at the same
+ * time, both receive the same instance.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class LazyEntityList extends AbstractList<Object> implements RandomAccess {
+
+    private final EntityFactory factory;
+    private final List<Map<String, Object>> rows;
+    private final AtomicReferenceArray<Object> entities;
+
+    /**
+     * Constructor.
+     *
+     * @param factory the {@link EntityFactory} of the entity interface
+     * @param rows the fetched rows
+     */
+    LazyEntityList(EntityFactory factory, List<Map<String, Object>> rows) {
+        this.factory = factory;
+        this.rows = rows;
+        this.entities = new AtomicReferenceArray<>(rows.size());
+    }
+
+    @Override
+    public Object get(int index) {
+        final Object entity = this.entities.get(index);
+        if (entity != null) {
+            return entity;
+        }
+
+        final Object created = this.factory.newInstance(this.rows.get(index));
+        if (created == null || this.entities.compareAndSet(index, null, created)) {
+            return created;
+        }
+        return this.entities.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.rows.size();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+/**
+ * A {@code DataSource} which admits each connection through an {@link Admission}, such as a
+ * {@link ConcurrencyLimiter} or a {@link Bulkheads} workload class. The capacity is returned,
+ * and the time the connection was held is recorded, when the connection is closed. A
+ * connection on which autocommit was switched off was held across a transaction, whose hold
+ * time includes the caller's own work between statements, so it is not recorded.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class LimitedDataSource implements DataSource {
+
+    private static final String CLOSE = "close"; //$NON-NLS-1$
+    private static final String SET_AUTO_COMMIT = "setAutoCommit"; //$NON-NLS-1$
+
+    private final DataSource ds;
+    private final Admission admission;
+
+    /**
+     * Constructor.
+     *
+     * @param ds the underlying {@link DataSource}
+     * @param limiter the {@link ConcurrencyLimiter}
+     */
+    public LimitedDataSource(DataSource ds, ConcurrencyLimiter limiter) {
+        this(ds, (Admission) limiter);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ds the underlying {@link DataSource}
+     * @param admission the {@link Admission}
+     */
+    LimitedDataSource(DataSource ds, Admission admission) {
+        this.ds = ds;
+        this.admission = admission;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final long start = this.admission.acquire();
+        final Connection conn;
+        try {
+            conn = this.ds.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            this.admission.release(start, false);
+            throw e;
+        }
+        return limited(conn, start);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        final long start = this.admission.acquire();
+        final Connection conn;
+        try {
+            conn = this.ds.getConnection(username, password);
+        } catch (SQLException | RuntimeException e) {
+            this.admission.release(start, false);
+            throw e;
+        }
+        return limited(conn, start);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return this.ds.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        this.ds.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        this.ds.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return this.ds.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return this.ds.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return this.ds.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return this.ds.isWrapperFor(iface);
+    }
+
+    private Connection limited(Connection conn, long start) {
+        if (start == Admission.NOT_ADMITTED) {
+            return conn;
+        }
+
+        final boolean[] released = new boolean[1];
+        final boolean[] transacted = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                if (CLOSE.equals(method.getName())) {
+                    synchronized (released) {
+                        if (released[0]) {
+                            return null;
+                        }
+                        released[0] = true;
+                    }
+                    try {
+                        conn.close();
+                    } finally {
+                        this.admission.release(start, !transacted[0]);
+                    }
+                    return null;
+                }
+                if (SET_AUTO_COMMIT.equals(method.getName())
+                    && Boolean.FALSE.equals(args[0])) {
+                    transacted[0] = true;
+                }
+                try {
+                    return method.invoke(conn, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.Collection;
+
+import org.veary.persist.columnar.ColumnarResult;
+
+/**
+ * Describes the outcome of an operation for the JDK Flight Recorder events.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class Outcome {
+
+    static final String SUCCESS = "SUCCESS"; //$NON-NLS-1$
+    static final String FAILURE = "FAILURE"; //$NON-NLS-1$
+
+    /**
+     * Private constructor.
+     */
+    private Outcome() {
+    }
+
+    /**
+     * Returns the outcome of an operation which failed with the given exception.
+     *
+     * @param e the exception
+     * @return the simple name of the exception class
+     */
+    static String of(Exception e) {
+        return e.getClass().getSimpleName();
+    }
+
+    /**
+     * Returns the number of rows represented by the result of a query.
+     *
+     * @param result the value returned by the query
+     * @return long
+     */
+    static long rowCount(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof long[]) {
+            return ((long[]) result).length;
+        }
+        if (result instanceof ColumnarResult) {
+            return ((ColumnarResult) result).getRowCount();
+        }
+        if (result instanceof Boolean) {
+            return ((Boolean) result).booleanValue() ? 1 : 0;
+        }
+        return 1;
+    }
+}
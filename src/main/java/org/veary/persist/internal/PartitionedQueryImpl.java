@@ -0,0 +1,386 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.DataSource;
+
+import org.veary.persist.PartitionedQuery;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.exceptions.PersistenceException;
+
+/**
+ * Concrete implementation of {@link PartitionedQuery}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class PartitionedQueryImpl implements PartitionedQuery {
+
+    private static final String SELECT_STR = "SELECT"; //$NON-NLS-1$
+    private static final Pattern COLUMN_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*"); //$NON-NLS-1$
+    private static final Pattern ORDER_TERM = Pattern
+        .compile("([A-Za-z_][A-Za-z0-9_]*)(\\s+(?i:ASC|DESC))?"); //$NON-NLS-1$
+    private static final String RANGE_PREDICATE = "PQ.%s >= ? AND PQ.%s < ?"; //$NON-NLS-1$
+    private static final String HASH_PREDICATE =
+        "COALESCE(ABS(MOD(PQ.%s, ?)), 0) = ?"; //$NON-NLS-1$
+
+    private final DataSource ds;
+    private final SqlStatement statement;
+    private final Class<?> entityInterface;
+
+    private String predicate;
+    private String orderBy;
+    private List<Object[]> partitionParameters;
+    private Executor executor;
+    private List<CompletableFuture<List<Object>>> futures;
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param statement {@link SqlStatement}
+     * @param entityInterface the interface of the entity to be returned
+     */
+    public PartitionedQueryImpl(DataSource ds, SqlStatement statement,
+        Class<?> entityInterface) {
+        this.ds = Objects.requireNonNull(ds,
+            Messages.getString("QueryImpl.error_msg_ds_null")); //$NON-NLS-1$
+        this.statement = Objects.requireNonNull(statement,
+            Messages.getString("QueryImpl.error_msg_statement_null")); //$NON-NLS-1$
+        this.entityInterface = Objects.requireNonNull(entityInterface,
+            Messages.getString("QueryImpl.error_msg_iface_null")); //$NON-NLS-1$
+    }
+
+    @Override
+    public PartitionedQuery byRange(String column, long from, long to, int partitions) {
+        requireColumnName(column);
+        final long span = to - from;
+        if (span <= 0 || partitions < 1) {
+            throw new IllegalArgumentException(
+                Messages.getString("PartitionedQueryImpl.error_msg_invalid_range")); //$NON-NLS-1$
+        }
+
+        final int count = (int) Math.min(partitions, span);
+        final List<Object[]> params = new ArrayList<>(count);
+        long lower = from;
+        for (int i = 1; i <= count; i++) {
+            final long upper = i == count ? to
+                : from + span / count * i + Math.min(i, span % count);
+            params.add(new Object[] { Long.valueOf(lower), Long.valueOf(upper) });
+            lower = upper;
+        }
+
+        this.predicate = String.format(RANGE_PREDICATE, column, column);
+        this.partitionParameters = params;
+        return this;
+    }
+
+    @Override
+    public PartitionedQuery byHash(String column, int buckets) {
+        requireColumnName(column);
+        if (buckets < 1) {
+            throw new IllegalArgumentException(
+                Messages.getString("PartitionedQueryImpl.error_msg_invalid_range")); //$NON-NLS-1$
+        }
+
+        final List<Object[]> params = new ArrayList<>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            params.add(new Object[] { Integer.valueOf(buckets), Integer.valueOf(i) });
+        }
+
+        this.predicate = String.format(HASH_PREDICATE, column);
+        this.partitionParameters = params;
+        return this;
+    }
+
+    @Override
+    public PartitionedQuery orderBy(String... columns) {
+        if (columns == null || columns.length == 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("PartitionedQueryImpl.error_msg_invalid_order")); //$NON-NLS-1$
+        }
+        final StringJoiner order = new StringJoiner(", "); //$NON-NLS-1$
+        for (String column : columns) {
+            if (column == null || !ORDER_TERM.matcher(column.trim()).matches()) {
+                throw new IllegalArgumentException(Messages
+                    .getString("PartitionedQueryImpl.error_msg_invalid_order")); //$NON-NLS-1$
+            }
+            order.add("PQ." + column.trim()); //$NON-NLS-1$
+        }
+        this.orderBy = " ORDER BY " + order; //$NON-NLS-1$
+        return this;
+    }
+
+    @Override
+    public PartitionedQuery setExecutor(Executor executor) {
+        this.executor = Objects.requireNonNull(executor,
+            Messages.getString("PartitionedQueryImpl.error_msg_executor_null")); //$NON-NLS-1$
+        return this;
+    }
+
+    @Override
+    public PartitionedQuery execute() {
+        if (!this.statement.toString().toUpperCase().startsWith(SELECT_STR)) {
+            throw new IllegalStateException(
+                Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
+        }
+        if (this.predicate == null) {
+            throw new IllegalStateException(
+                Messages.getString("PartitionedQueryImpl.error_msg_no_partitioning")); //$NON-NLS-1$
+        }
+
+        final String sql = "SELECT * FROM (" + this.statement.toString() //$NON-NLS-1$
+            + ") PQ WHERE " + this.predicate //$NON-NLS-1$
+            + (this.orderBy == null ? "" : this.orderBy); //$NON-NLS-1$
+        final Map<Integer, Object> params = this.statement.getParameters();
+        final int offset = params.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+
+        ExecutorService ownedPool = null;
+        Executor target = this.executor;
+        if (target == null) {
+            ownedPool = newPool(this.partitionParameters.size());
+            target = ownedPool;
+        }
+
+        final List<CompletableFuture<List<Object>>> list = new ArrayList<>();
+        for (final Object[] bounds : this.partitionParameters) {
+            list.add(CompletableFuture.supplyAsync(
+                () -> executePartition(sql, params, offset, bounds), target));
+        }
+        if (ownedPool != null) {
+            final ExecutorService pool = ownedPool;
+            CompletableFuture.allOf(list.toArray(new CompletableFuture<?>[0]))
+                .whenComplete((result, e) -> pool.shutdown());
+        }
+
+        this.futures = list;
+        return this;
+    }
+
+    @Override
+    public Stream<Object> getResultStream() {
+        requireExecuted();
+
+        final List<CompletableFuture<List<Object>>> remaining = new ArrayList<>(this.futures);
+        final Iterator<List<Object>> completionOrder = new Iterator<List<Object>>() {
+
+            @Override
+            public boolean hasNext() {
+                return !remaining.isEmpty();
+            }
+
+            @Override
+            public List<Object> next() {
+                if (remaining.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    CompletableFuture.anyOf(remaining.toArray(new CompletableFuture<?>[0]))
+                        .join();
+                } catch (CompletionException e) {
+                    throw unwrap(e);
+                }
+                for (final Iterator<CompletableFuture<List<Object>>> it = remaining
+                    .iterator(); it.hasNext();) {
+                    final CompletableFuture<List<Object>> future = it.next();
+                    if (future.isDone()) {
+                        it.remove();
+                        return join(future);
+                    }
+                }
+                throw new IllegalStateException();
+            }
+        };
+
+        return StreamSupport
+            .stream(Spliterators.spliteratorUnknownSize(completionOrder, Spliterator.NONNULL),
+                false)
+            .flatMap(List::stream);
+    }
+
+    @Override
+    public List<Object> getResultList(Comparator<Object> comparator) {
+        Objects.requireNonNull(comparator,
+            Messages.getString("PartitionedQueryImpl.error_msg_comparator_null")); //$NON-NLS-1$
+        requireExecuted();
+
+        final List<List<Object>> partitions = new ArrayList<>(this.futures.size());
+        int total = 0;
+        for (final CompletableFuture<List<Object>> future : this.futures) {
+            List<Object> partition = join(future);
+            if (this.orderBy == null) {
+                partition = new ArrayList<>(partition);
+                partition.sort(comparator);
+            }
+            partitions.add(partition);
+            total += partition.size();
+        }
+
+        return Collections.unmodifiableList(merge(partitions, comparator, total));
+    }
+
+    /**
+     * Performs a k-way merge of the individually ordered partitions.
+     *
+     * @param partitions ordered partitions
+     * @param comparator the order
+     * @param total the total number of results
+     * @return the merged {@code List}
+     */
+    private static List<Object> merge(List<List<Object>> partitions,
+        Comparator<Object> comparator, int total) {
+        final PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, partitions.size()),
+            (a, b) -> {
+                final int result = comparator.compare(a.head(), b.head());
+                return result != 0 ? result : Integer.compare(a.partition, b.partition);
+            });
+        for (int i = 0; i < partitions.size(); i++) {
+            if (!partitions.get(i).isEmpty()) {
+                heads.add(new Cursor(partitions.get(i), i));
+            }
+        }
+
+        final List<Object> merged = new ArrayList<>(total);
+        while (!heads.isEmpty()) {
+            final Cursor cursor = heads.poll();
+            merged.add(cursor.head());
+            if (++cursor.index < cursor.values.size()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private List<Object> executePartition(String sql, Map<Integer, Object> params, int offset,
+        Object[] bounds) {
+        final List<Map<String, Object>> rows;
+        try (Connection conn = this.ds.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (final Map.Entry<Integer, Object> param : params.entrySet()) {
+                stmt.setObject(param.getKey().intValue(), param.getValue());
+            }
+            for (int i = 0; i < bounds.length; i++) {
+                stmt.setObject(offset + i + 1, bounds[i]);
+            }
+
+            try (ResultSet rset = stmt.executeQuery()) {
+                rows = EntityFactory.readRows(rset);
+            }
+        } catch (final SQLException e) {
+            if (e.getCause() == null) {
+                throw new PersistenceException(e);
+            }
+            throw new PersistenceException(e.getCause());
+        }
+
+        final EntityFactory factory = EntityFactory.forInterface(this.entityInterface);
+        final List<Object> entities = new ArrayList<>(rows.size());
+        for (final Map<String, Object> row : rows) {
+            entities.add(factory.newInstance(row));
+        }
+        return entities;
+    }
+
+    private void requireExecuted() {
+        if (this.futures == null) {
+            throw new PersistenceException(
+                Messages.getString("QueryImpl.error_msg_method_sequence")); //$NON-NLS-1$
+        }
+    }
+
+    private static void requireColumnName(String column) {
+        if (column == null || !COLUMN_NAME.matcher(column).matches()) {
+            throw new IllegalArgumentException(
+                Messages.getString("PartitionedQueryImpl.error_msg_invalid_column")); //$NON-NLS-1$
+        }
+    }
+
+    private static List<Object> join(CompletableFuture<List<Object>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static PersistenceException unwrap(CompletionException e) {
+        if (e.getCause() instanceof PersistenceException) {
+            return (PersistenceException) e.getCause();
+        }
+        return new PersistenceException(e.getCause());
+    }
+
+    private static ExecutorService newPool(int threads) {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable,
+                "persist-partition-" + count.incrementAndGet()); //$NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class Cursor {
+        private final List<Object> values;
+        private final int partition;
+        private int index;
+
+        Cursor(List<Object> values, int partition) {
+            this.values = values;
+            this.partition = partition;
+        }
+
+        Object head() {
+            return this.values.get(this.index);
+        }
+    }
+}
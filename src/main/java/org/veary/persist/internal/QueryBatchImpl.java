@@ -0,0 +1,228 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veary.persist.QueryBatch;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.exceptions.PersistenceException;
+
+/**
+ * Concrete implementation of {@link QueryBatch}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class QueryBatchImpl implements QueryBatch {
+
+    private static final Logger LOG = LogManager.getLogger(QueryBatchImpl.class);
+    private static final String SELECT_STR = "SELECT"; //$NON-NLS-1$
+
+    private final DataSource ds;
+    private final List<SqlStatement> statements = new ArrayList<>();
+    private final List<Class<?>> entityInterfaces = new ArrayList<>();
+    private List<List<Map<String, Object>>> results;
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     */
+    public QueryBatchImpl(DataSource ds) {
+        this.ds = Objects.requireNonNull(ds,
+            Messages.getString("QueryImpl.error_msg_ds_null")); //$NON-NLS-1$
+    }
+
+    @Override
+    public QueryBatch add(SqlStatement statement, Class<?> entityInterface) {
+        Objects.requireNonNull(statement,
+            Messages.getString("QueryImpl.error_msg_statement_null")); //$NON-NLS-1$
+        Objects.requireNonNull(entityInterface,
+            Messages.getString("QueryImpl.error_msg_iface_null")); //$NON-NLS-1$
+        if (!SELECT_STR.equals(SqlText.keyword(statement.toString()))) {
+            throw new IllegalStateException(
+                Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
+        }
+        this.statements.add(statement);
+        this.entityInterfaces.add(entityInterface);
+        this.results = null;
+        return this;
+    }
+
+    @Override
+    public int size() {
+        return this.statements.size();
+    }
+
+    @Override
+    public QueryBatch execute() {
+        final QueryEvent event = new QueryEvent();
+        final boolean timed = event.isEnabled();
+        event.begin();
+        long mark = timed ? System.nanoTime() : 0;
+        List<List<Map<String, Object>>> rows = null;
+        String outcome = Outcome.FAILURE;
+
+        try (Connection conn = this.ds.getConnection()) {
+            if (timed) {
+                final long now = System.nanoTime();
+                event.acquireTime = now - mark;
+                mark = now;
+            }
+            if (this.statements.size() > 1 && conn.getAutoCommit()
+                && conn.getMetaData().supportsMultipleResultSets()) {
+                rows = executeCombined(conn);
+            }
+            if (rows == null) {
+                rows = executeSequentially(conn);
+            }
+            if (timed) {
+                event.executeTime = System.nanoTime() - mark;
+            }
+            outcome = Outcome.SUCCESS;
+        } catch (final SQLException e) {
+            outcome = Outcome.of(e);
+            if (e.getCause() == null) {
+                throw new PersistenceException(e);
+            }
+            throw new PersistenceException(e.getCause());
+        } catch (final RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                final StringJoiner sql = new StringJoiner("; "); //$NON-NLS-1$
+                long count = 0;
+                for (int i = 0; i < this.statements.size(); i++) {
+                    sql.add(SqlText.fingerprint(this.statements.get(i).toString()));
+                    count += rows == null ? 0 : rows.get(i).size();
+                }
+                event.sql = sql.toString();
+                event.rowCount = count;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+
+        this.results = rows;
+        return this;
+    }
+
+    @Override
+    public List<Object> getResultList(int index) {
+        if (this.results == null) {
+            throw new PersistenceException(
+                Messages.getString("QueryImpl.error_msg_method_sequence")); //$NON-NLS-1$
+        }
+        Objects.checkIndex(index, this.results.size());
+        return new LazyEntityList(EntityFactory.forInterface(this.entityInterfaces.get(index)),
+            this.results.get(index));
+    }
+
+    /**
+     * Sends all of the statements as a single multi-statement execution. This is only tried
+     * outside a transaction: a rejected statement would abort a transaction on some
+     * databases, and the sequential retry would then fail too.
+     *
+     * @param conn {@code Connection}
+     * @return the rows of each statement, or {@code null} if the driver rejected the combined
+     *     statement
+     */
+    private List<List<Map<String, Object>>> executeCombined(Connection conn) {
+        final StringJoiner combined = new StringJoiner("; "); //$NON-NLS-1$
+        for (SqlStatement statement : this.statements) {
+            combined.add(stripTerminator(statement.toString()));
+        }
+
+        final List<List<Map<String, Object>>> rows = new ArrayList<>(this.statements.size());
+        try (PreparedStatement stmt = conn.prepareStatement(combined.toString())) {
+            int offset = 0;
+            for (SqlStatement statement : this.statements) {
+                for (final Map.Entry<Integer, Object> param : statement.getParameters()
+                    .entrySet()) {
+                    stmt.setObject(offset + param.getKey().intValue(), param.getValue());
+                }
+                offset += SqlText.countParameters(statement.toString());
+            }
+
+            boolean isResultSet = stmt.execute();
+            while (rows.size() < this.statements.size()) {
+                if (isResultSet) {
+                    try (ResultSet rset = stmt.getResultSet()) {
+                        rows.add(EntityFactory.readRows(rset));
+                    }
+                } else if (stmt.getUpdateCount() == -1) {
+                    break;
+                }
+                isResultSet = stmt.getMoreResults();
+            }
+        } catch (SQLException e) {
+            LOG.debug("Combined execution rejected, executing sequentially: {}", //$NON-NLS-1$
+                e.getMessage());
+            return null;
+        }
+        return rows.size() == this.statements.size() ? rows : null;
+    }
+
+    private List<List<Map<String, Object>>> executeSequentially(Connection conn)
+        throws SQLException {
+        final List<List<Map<String, Object>>> rows = new ArrayList<>(this.statements.size());
+        for (SqlStatement statement : this.statements) {
+            try (PreparedStatement stmt = conn.prepareStatement(statement.toString())) {
+                for (final Map.Entry<Integer, Object> param : statement.getParameters()
+                    .entrySet()) {
+                    stmt.setObject(param.getKey().intValue(), param.getValue());
+                }
+                try (ResultSet rset = stmt.executeQuery()) {
+                    rows.add(EntityFactory.readRows(rset));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static String stripTerminator(String sql) {
+        int end = sql.length();
+        while (end > 0 && (sql.charAt(end - 1) == ';'
+            || Character.isWhitespace(sql.charAt(end - 1)))) {
+            end--;
+        }
+        return sql.substring(0, end);
+    }
+}
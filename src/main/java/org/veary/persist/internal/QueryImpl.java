@@ -24,24 +24,25 @@
 
 package org.veary.persist.internal;
 
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.LongStream;
 
 import javax.sql.DataSource;
 
 import org.veary.persist.Query;
 import org.veary.persist.SqlStatement;
+import org.veary.persist.columnar.ColumnarResult;
 import org.veary.persist.exceptions.NoResultException;
 import org.veary.persist.exceptions.NonUniqueResultException;
 import org.veary.persist.exceptions.PersistenceException;
@@ -55,7 +56,9 @@ import org.veary.persist.exceptions.PersistenceException;
 public final class QueryImpl implements Query {
 
     private static final String SELECT_STR = "SELECT";
-    private static final String ENTITY_FACTORY_METHOD = "newInstance";
+    private static final int INITIAL_ARRAY_SIZE = 64;
+    private static final int NO_ROW_LIMIT = 0;
+    private static final int SINGLE_ROW_LIMIT = 2;
 
     private final DataSource ds;
     private final SqlStatement statement;
@@ -104,32 +107,31 @@ public final class QueryImpl implements Query {
 
     @Override
     public Query execute() {
+        this.internalResult = run(NO_ROW_LIMIT, this::processResultSet);
+        return this;
+    }
+
+    @Override
+    public Flow.Publisher<Object> getResultPublisher() {
+        return getResultPublisher(null);
+    }
+
+    @Override
+    public Flow.Publisher<Object> getResultPublisher(Executor executor) {
         if (!this.statement.toString().toUpperCase().startsWith(SELECT_STR)) {
             throw new IllegalStateException(
                 Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
         }
-
-        try (Connection conn = this.ds.getConnection()) {
-            try (PreparedStatement stmt = conn.prepareStatement(this.statement.toString())) {
-
-                for (final Map.Entry<Integer, Object> param : this.statement.getParameters()
-                    .entrySet()) {
-                    stmt.setObject(param.getKey().intValue(), param.getValue());
-                }
-
-                try (ResultSet rset = stmt.executeQuery()) {
-                    this.internalResult = processResultSet(rset);
-                }
-
-            }
-        } catch (final SQLException e) {
-            if (e.getCause() == null) {
-                throw new PersistenceException(e);
-            }
-            throw new PersistenceException(e.getCause());
+        if (this.entityInterface == null) {
+            throw new UnsupportedOperationException();
         }
+        return new ResultPublisher(this.ds, this.statement,
+            EntityFactory.forInterface(this.entityInterface), executor);
+    }
 
-        return this;
+    @Override
+    public ColumnarResult executeColumnar() {
+        return run(NO_ROW_LIMIT, ColumnarResultImpl::read);
     }
 
     @Override
@@ -146,10 +148,11 @@ public final class QueryImpl implements Query {
 
         if (this.entityInterface == null) {
             Map<String, Object> result = this.internalResult.get(0);
-            return result.values().toArray()[0];
+            return result.values().iterator().next();
         }
 
-        return getNewInstance(getStaticFactoryMethod(), this.internalResult.get(0));
+        return EntityFactory.forInterface(this.entityInterface)
+            .newInstance(this.internalResult.get(0));
     }
 
     @Override
@@ -163,77 +166,228 @@ public final class QueryImpl implements Query {
             throw new UnsupportedOperationException();
         }
 
-        final List<Object> list = new ArrayList<>(this.internalResult.size());
-        for (Map<String, Object> dataMap : this.internalResult) {
-            list.add(getNewInstance(getStaticFactoryMethod(), dataMap));
-        }
+        return new LazyEntityList(EntityFactory.forInterface(this.entityInterface),
+            this.internalResult);
+    }
 
-        return Collections.unmodifiableList(list);
+    @Override
+    public Object executeSingleResult() {
+        return run(SINGLE_ROW_LIMIT, rset -> {
+            final List<Map<String, Object>> rows = EntityFactory.readRows(rset);
+            if (rows.isEmpty()) {
+                throw new NoResultException(
+                    Messages.getString("QueryImpl.error_msg_no_results")); //$NON-NLS-1$
+            }
+            if (rows.size() > 1) {
+                throw new NonUniqueResultException(
+                    Messages.getString("QueryImpl.error_msg_too_many_results")); //$NON-NLS-1$
+            }
+
+            if (this.entityInterface == null) {
+                return rows.get(0).values().iterator().next();
+            }
+            return EntityFactory.forInterface(this.entityInterface).newInstance(rows.get(0));
+        });
+    }
+
+    @Override
+    public boolean exists() {
+        return run(1, rset -> Boolean.valueOf(rset.next())).booleanValue();
+    }
+
+    @Override
+    public long getSingleLong() {
+        return run(SINGLE_ROW_LIMIT, rset -> {
+            requireSingleRow(rset);
+            final long value = rset.getLong(1);
+            requireNoMoreRows(rset);
+            return Long.valueOf(value);
+        }).longValue();
+    }
+
+    @Override
+    public int getSingleInt() {
+        return run(SINGLE_ROW_LIMIT, rset -> {
+            requireSingleRow(rset);
+            final int value = rset.getInt(1);
+            requireNoMoreRows(rset);
+            return Integer.valueOf(value);
+        }).intValue();
+    }
+
+    @Override
+    public String getSingleString() {
+        return run(SINGLE_ROW_LIMIT, rset -> {
+            requireSingleRow(rset);
+            final String value = rset.getString(1);
+            requireNoMoreRows(rset);
+            return value;
+        });
+    }
+
+    @Override
+    public long[] getLongArray() {
+        return run(NO_ROW_LIMIT, rset -> {
+            long[] values = new long[INITIAL_ARRAY_SIZE];
+            int size = 0;
+            while (rset.next()) {
+                if (size == values.length) {
+                    values = Arrays.copyOf(values, size + (size >>> 1));
+                }
+                values[size++] = rset.getLong(1);
+            }
+            return size == values.length ? values : Arrays.copyOf(values, size);
+        });
+    }
+
+    @Override
+    public LongStream getLongStream() {
+        return LongStream.of(getLongArray());
+    }
+
+    @Override
+    public List<String> getStringList() {
+        return run(NO_ROW_LIMIT, rset -> {
+            final List<String> values = new ArrayList<>();
+            while (rset.next()) {
+                values.add(rset.getString(1));
+            }
+            return Collections.unmodifiableList(values);
+        });
     }
 
     /**
-     * Process the given {@link ResultSet} into an {@code List<Map<String, Object>>}.
+     * Executes the SELECT statement and reads all of its rows, without mapping them.
      *
-     * @param rset {@code ResultSet}
-     * @return a {@code List<Map<String, Object>>}. Cannot return {@code null}.
-     * @throws SQLException if a database access error occurs
-     * @throws NoResultException if this {@code Query} did not return any results
+     * @return {@code List<Map<String, Object>>}. Cannot be {@code null}.
      */
-    private List<Map<String, Object>> processResultSet(ResultSet rset) throws SQLException {
-        if (!rset.isBeforeFirst()) {
-            throw new NoResultException(
-                Messages.getString("QueryImpl.error_msg_no_results")); //$NON-NLS-1$
+    List<Map<String, Object>> readRows() {
+        return run(NO_ROW_LIMIT, EntityFactory::readRows);
+    }
+
+    /**
+     * Executes the SELECT statement and passes the {@link ResultSet} to the given handler.
+     *
+     * @param maxRows the maximum number of rows the driver should return, or
+     *     {@link #NO_ROW_LIMIT}
+     * @param handler reads the {@code ResultSet}
+     * @return the value returned by the handler
+     */
+    private <T> T run(int maxRows, ResultSetHandler<T> handler) {
+        if (!this.statement.toString().toUpperCase().startsWith(SELECT_STR)) {
+            throw new IllegalStateException(
+                Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
         }
 
-        final ResultSetMetaData md = rset.getMetaData();
-        final List<Map<String, Object>> list = new ArrayList<>();
+        final QueryEvent event = new QueryEvent();
+        final boolean timed = event.isEnabled();
+        event.begin();
+        long mark = timed ? System.nanoTime() : 0;
+        T result = null;
+        String outcome = Outcome.FAILURE;
+
+        try (Connection conn = this.ds.getConnection()) {
+            if (timed) {
+                final long now = System.nanoTime();
+                event.acquireTime = now - mark;
+                mark = now;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(this.statement.toString())) {
+
+                if (maxRows != NO_ROW_LIMIT) {
+                    stmt.setMaxRows(maxRows);
+                    stmt.setFetchSize(maxRows);
+                }
+                for (final Map.Entry<Integer, Object> param : this.statement.getParameters()
+                    .entrySet()) {
+                    stmt.setObject(param.getKey().intValue(), param.getValue());
+                }
+
+                try (ResultSet rset = stmt.executeQuery()) {
+                    if (timed) {
+                        final long now = System.nanoTime();
+                        event.executeTime = now - mark;
+                        mark = now;
+                    }
+                    result = handler.handle(rset);
+                    if (timed) {
+                        event.mappingTime = System.nanoTime() - mark;
+                    }
+                    outcome = Outcome.SUCCESS;
+                    return result;
+                }
 
-        final int columns = md.getColumnCount();
-        while (rset.next()) {
-            final Map<String, Object> row = new HashMap<>();
-            for (int i = 1; i <= columns; i++) {
-                row.put(md.getColumnLabel(i).toUpperCase(), rset.getObject(i));
             }
-            list.add(row);
+        } catch (final SQLException e) {
+            outcome = Outcome.of(e);
+            if (e.getCause() == null) {
+                throw new PersistenceException(e);
+            }
+            throw new PersistenceException(e.getCause());
+        } catch (final RuntimeException e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sql = SqlText.fingerprint(this.statement.toString());
+                event.rowCount = Outcome.rowCount(result);
+                event.outcome = outcome;
+                event.commit();
+            }
         }
+    }
 
-        return list;
+    /**
+     * Moves to the first row of the given {@code ResultSet}.
+     *
+     * @param rset {@code ResultSet}
+     * @throws SQLException if a database access error occurs
+     * @throws NoResultException if there is no row
+     */
+    private static void requireSingleRow(ResultSet rset) throws SQLException {
+        if (!rset.next()) {
+            throw new NoResultException(
+                Messages.getString("QueryImpl.error_msg_no_results")); //$NON-NLS-1$
+        }
     }
 
     /**
-     * Ensures that the Constructor declared {@code Class<?> entityInterface} parameter has a
-     * declared <b>static method</b> named <b>newInstance</b> and takes a single parameter of
-     * type {@code Map}.
+     * Ensures that the current row of the given {@code ResultSet} is its last.
      *
-     * @return {@link Method}
+     * @param rset {@code ResultSet}
+     * @throws SQLException if a database access error occurs
+     * @throws NonUniqueResultException if there is another row
      */
-    private Method getStaticFactoryMethod() {
-        try {
-            return this.entityInterface.getDeclaredMethod(ENTITY_FACTORY_METHOD, Map.class);
-        } catch (NoSuchMethodException | SecurityException e) {
-            throw new PersistenceException(
-                String.format("Error accessing %s.newInstance(): %s - cause: %s",
-                    this.entityInterface.getName(),
-                    e, e.getCause()));
+    private static void requireNoMoreRows(ResultSet rset) throws SQLException {
+        if (rset.next()) {
+            throw new NonUniqueResultException(
+                Messages.getString("QueryImpl.error_msg_too_many_results")); //$NON-NLS-1$
         }
     }
 
     /**
-     * Invokes the method returned by {@link #getStaticFactoryMethod()}.
+     * Process the given {@link ResultSet} into an {@code List<Map<String, Object>>}.
      *
-     * @param staticFactory {@link Method}
-     * @param result {@code Map} result from the query
-     * @return {@link Object}
+     * @param rset {@code ResultSet}
+     * @return a {@code List<Map<String, Object>>}. Cannot return {@code null}.
+     * @throws SQLException if a database access error occurs
+     * @throws NoResultException if this {@code Query} did not return any results
      */
-    private Object getNewInstance(Method staticFactory, Map<String, Object> result) {
-        try {
-            return staticFactory.invoke(this.entityInterface, result);
-        } catch (IllegalAccessException | IllegalArgumentException
-            | InvocationTargetException e) {
-            throw new PersistenceException(
-                String.format("Error invoking %s.newInstance(): %s - cause: %s",
-                    this.entityInterface.getName(),
-                    e, e.getCause()));
+    private List<Map<String, Object>> processResultSet(ResultSet rset) throws SQLException {
+        if (!rset.isBeforeFirst()) {
+            throw new NoResultException(
+                Messages.getString("QueryImpl.error_msg_no_results")); //$NON-NLS-1$
         }
+
+        return EntityFactory.readRows(rset);
+    }
+
+    /**
+     * Reads an open {@code ResultSet} into the form returned to the caller.
+     */
+    @FunctionalInterface
+    private interface ResultSetHandler<T> {
+        T handle(ResultSet rset) throws SQLException;
     }
 }
@@ -24,13 +24,20 @@
 
 package org.veary.persist.internal;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
 import java.util.Objects;
 
 import javax.sql.DataSource;
 
+import org.veary.persist.PartitionedQuery;
 import org.veary.persist.Query;
+import org.veary.persist.QueryBatch;
 import org.veary.persist.QueryManager;
 import org.veary.persist.SqlStatement;
+import org.veary.persist.WorkloadClass;
+import org.veary.persist.exceptions.PersistenceException;
 
 /**
  * <h2>Purpose:</h2> handles read statements through JDBC.
@@ -40,7 +47,12 @@ import org.veary.persist.SqlStatement;
  */
 public final class QueryManagerImpl implements QueryManager {
 
-    private final DataSource ds;
+    private final DataSource base;
+    private final EntityCacheImpl cache;
+    private final Bulkheads bulkheads;
+    private boolean readOnly;
+    private WorkloadClass workloadClass = WorkloadClass.STANDARD;
+    private AffinityDataSource ds;
 
     /**
      * Constructor.
@@ -48,8 +60,47 @@ public final class QueryManagerImpl implements QueryManager {
      * @param ds {@link DataSource}
      */
     public QueryManagerImpl(DataSource ds) {
-        this.ds = Objects.requireNonNull(ds,
+        this(ds, new EntityCacheImpl());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param cache the shared {@link EntityCacheImpl}
+     */
+    public QueryManagerImpl(DataSource ds, EntityCacheImpl cache) {
+        this(ds, cache, new Bulkheads());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param cache the shared {@link EntityCacheImpl}
+     * @param bulkheads the {@link Bulkheads} which share connections between workload classes
+     */
+    public QueryManagerImpl(DataSource ds, EntityCacheImpl cache, Bulkheads bulkheads) {
+        this.base = Objects.requireNonNull(ds,
             Messages.getString("QueryManagerImpl.error_msg_ds_null"));
+        this.cache = Objects.requireNonNull(cache);
+        this.bulkheads = Objects.requireNonNull(bulkheads);
+        configure();
+    }
+
+    @Override
+    public QueryManager setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        configure();
+        return this;
+    }
+
+    @Override
+    public QueryManager setWorkloadClass(WorkloadClass workloadClass) {
+        this.workloadClass = Objects.requireNonNull(workloadClass,
+            Messages.getString("QueryManagerImpl.error_msg_class_null"));
+        configure();
+        return this;
     }
 
     @Override
@@ -65,4 +116,80 @@ public final class QueryManagerImpl implements QueryManager {
         return new QueryImpl(this.ds, Objects.requireNonNull(statement,
             Messages.getString("QueryManagerImpl.error_msg_statement_null")));
     }
+
+    @Override
+    public PartitionedQuery createPartitionedQuery(SqlStatement statement,
+        Class<?> entityInterface) {
+        return new PartitionedQueryImpl(this.ds, Objects.requireNonNull(statement,
+            Messages.getString("QueryManagerImpl.error_msg_statement_null")),
+            Objects.requireNonNull(entityInterface,
+                Messages.getString("QueryManagerImpl.error_msg_iface_null")));
+    }
+
+    @Override
+    public QueryBatch createQueryBatch() {
+        return new QueryBatchImpl(this.ds);
+    }
+
+    @Override
+    public Object find(Class<?> entityInterface, SqlStatement lookup, Object key) {
+        final KeyLookup keyLookup = new KeyLookup(entityInterface, lookup, key);
+        final TransactionManagerImpl transaction;
+        try {
+            transaction = this.ds.transaction();
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        if (transaction != null) {
+            // The transaction's connection sees its uncommitted writes, which must not reach
+            // the shared cache.
+            return transaction.find(keyLookup, false);
+        }
+
+        final boolean shared = this.cache.isEnabled();
+        if (shared) {
+            final Object cached = this.cache.get(entityInterface, keyLookup.getKeyColumn(), key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final long stamp = shared ? this.cache.stamp(keyLookup.getTable()) : 0;
+
+        final Map<String, Object> row;
+        try (Connection conn = this.ds.getConnection()) {
+            row = keyLookup.read(conn);
+        } catch (SQLException e) {
+            if (e.getCause() == null) {
+                throw new PersistenceException(e);
+            }
+            throw new PersistenceException(e.getCause());
+        }
+
+        if (row == null) {
+            return null;
+        }
+
+        final Object entity = keyLookup.map(row);
+        if (shared) {
+            this.cache.put(keyLookup.getTable(), entityInterface, keyLookup.getKeyColumn(), key,
+                entity, stamp);
+        }
+        return entity;
+    }
+
+    /**
+     * Returns the {@code DataSource} through which the queries of this manager obtain their
+     * connections.
+     *
+     * @return {@link DataSource}
+     */
+    DataSource getDataSource() {
+        return this.ds;
+    }
+
+    private void configure() {
+        final DataSource source = this.readOnly ? new ReadOnlyDataSource(this.base) : this.base;
+        this.ds = new AffinityDataSource(this.base,
+            this.bulkheads.view(this.workloadClass, source));
+    }
 }
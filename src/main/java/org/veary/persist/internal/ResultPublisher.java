@@ -0,0 +1,290 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.exceptions.PersistenceException;
+
+/**
+ * <b>Purpose:</b> a cold {@link Flow.Publisher} of the rows of a SELECT query.
+ *
+ * <p><b>Responsibility:</b> each subscription executes the query on its own connection when
+ * the first demand arrives. All work for a subscription (executing, fetching, mapping,
+ * signalling and closing) is serialised through a work-in-progress counter and runs on the
+ * executor, so the {@code ResultSet} is only ever touched by one thread at a time. Before each
+ * chunk the fetch size is set to the outstanding demand, capped at {@value #MAX_FETCH_SIZE},
+ * so no more than one fetch is buffered beyond what the subscriber has asked for. Some drivers
+ * (PostgreSQL among them) ignore the fetch size under autocommit and read the whole result,
+ * so autocommit is switched off for the life of the subscription and restored when it ends.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class ResultPublisher implements Flow.Publisher<Object> {
+
+    private static final Logger LOG = LogManager.getLogger(ResultPublisher.class);
+    private static final int MAX_FETCH_SIZE = 1000;
+    private static final ExecutorService SHARED = newPool();
+
+    private final DataSource ds;
+    private final SqlStatement statement;
+    private final EntityFactory factory;
+    private final Executor executor;
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param statement the SELECT {@link SqlStatement}
+     * @param factory the {@link EntityFactory} which maps each row
+     * @param executor the {@link Executor}, or {@code null} for the shared pool
+     */
+    ResultPublisher(DataSource ds, SqlStatement statement, EntityFactory factory,
+        Executor executor) {
+        this.ds = ds;
+        this.statement = statement;
+        this.factory = factory;
+        this.executor = executor == null ? SHARED : executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Object> subscriber) {
+        Objects.requireNonNull(subscriber,
+            Messages.getString("ResultPublisher.error_msg_subscriber_null")); //$NON-NLS-1$
+        final RowSubscription subscription = new RowSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private static ExecutorService newPool() {
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable,
+                "persist-publisher-" + count.incrementAndGet()); //$NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final class RowSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super Object> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private boolean done;
+
+        private QueryEvent event;
+        private long emitted;
+        private Connection conn;
+        private boolean restoreAutoCommit;
+        private PreparedStatement stmt;
+        private ResultSet rset;
+        private RowReader reader;
+
+        RowSubscription(Flow.Subscriber<? super Object> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.invalidRequest = new IllegalArgumentException(
+                    Messages.getString("ResultPublisher.error_msg_demand")); //$NON-NLS-1$
+            } else {
+                this.demand.getAndAccumulate(n,
+                    (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            signal();
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void signal() {
+            if (this.wip.getAndIncrement() == 0) {
+                try {
+                    ResultPublisher.this.executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    this.done = true;
+                    this.subscriber.onError(e);
+                }
+            }
+        }
+
+        private void drain() {
+            if (this.done) {
+                return;
+            }
+            if (this.cancelled) {
+                finish(Outcome.SUCCESS);
+                return;
+            }
+            if (this.invalidRequest != null) {
+                finish(Outcome.of(this.invalidRequest));
+                this.subscriber.onError(this.invalidRequest);
+                return;
+            }
+
+            final long requested = this.demand.get();
+            if (requested == 0) {
+                return;
+            }
+
+            try {
+                if (this.rset == null) {
+                    open();
+                }
+                this.rset.setFetchSize((int) Math.min(requested, MAX_FETCH_SIZE));
+
+                long count = 0;
+                while (count < requested && !this.cancelled) {
+                    if (!this.rset.next()) {
+                        finish(Outcome.SUCCESS);
+                        this.subscriber.onComplete();
+                        return;
+                    }
+                    final Map<String, Object> row = this.reader.read(this.rset);
+                    this.subscriber.onNext(ResultPublisher.this.factory.newInstance(row));
+                    count++;
+                }
+                this.emitted += count;
+                if (requested != Long.MAX_VALUE) {
+                    this.demand.addAndGet(-count);
+                }
+                if (this.cancelled) {
+                    finish(Outcome.SUCCESS);
+                }
+            } catch (SQLException e) {
+                finish(Outcome.of(e));
+                this.subscriber.onError(new PersistenceException(
+                    e.getCause() == null ? e : e.getCause()));
+            } catch (RuntimeException e) {
+                finish(Outcome.of(e));
+                this.subscriber.onError(e);
+            }
+        }
+
+        private void open() throws SQLException {
+            this.event = new QueryEvent();
+            this.event.begin();
+            final String sql = ResultPublisher.this.statement.toString();
+            this.conn = ResultPublisher.this.ds.getConnection();
+            if (this.conn.getAutoCommit()) {
+                this.conn.setAutoCommit(false);
+                this.restoreAutoCommit = true;
+            }
+            this.stmt = this.conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+            for (final Map.Entry<Integer, Object> param : ResultPublisher.this.statement
+                .getParameters().entrySet()) {
+                this.stmt.setObject(param.getKey().intValue(), param.getValue());
+            }
+            this.stmt.setFetchSize((int) Math.min(this.demand.get(), MAX_FETCH_SIZE));
+            this.rset = this.stmt.executeQuery();
+            this.reader = RowReader.of(this.rset.getMetaData());
+        }
+
+        /**
+         * Closes the result set and statement, restores the connection's autocommit mode, and
+         * closes the connection. Must only be called from {@link #drain()}.
+         *
+         * @param outcome the outcome to record
+         */
+        private void finish(String outcome) {
+            this.done = true;
+            try {
+                if (this.rset != null) {
+                    this.rset.close();
+                }
+                if (this.stmt != null) {
+                    this.stmt.close();
+                }
+                if (this.restoreAutoCommit) {
+                    this.conn.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                LOG.error("Close failed: ", e);
+            } finally {
+                closeConnection();
+            }
+            if (this.event != null) {
+                this.event.end();
+                if (this.event.shouldCommit()) {
+                    this.event.sql = SqlText.fingerprint(
+                        ResultPublisher.this.statement.toString());
+                    this.event.rowCount = this.emitted;
+                    this.event.outcome = outcome;
+                    this.event.commit();
+                }
+            }
+        }
+
+        private void closeConnection() {
+            final Connection c = this.conn;
+            this.rset = null;
+            this.stmt = null;
+            this.conn = null;
+            this.restoreAutoCommit = false;
+            if (c != null) {
+                try {
+                    c.close();
+                } catch (SQLException e) {
+                    LOG.error("Close failed: ", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the rows of a {@code ResultSet} into {@code Map}s, using the {@link ColumnReader}
+ * chosen for each column from the {@code ResultSetMetaData}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class RowReader {
+
+    private final String[] labels;
+    private final ColumnReader[] readers;
+
+    private RowReader(String[] labels, ColumnReader[] readers) {
+        this.labels = labels;
+        this.readers = readers;
+    }
+
+    /**
+     * Returns a {@code RowReader} for the columns described by the metadata.
+     *
+     * @param md {@code ResultSetMetaData}
+     * @return {@code RowReader}
+     * @throws SQLException if a database access error occurs
+     */
+    static RowReader of(ResultSetMetaData md) throws SQLException {
+        final int count = md.getColumnCount();
+        final String[] labels = new String[count];
+        final ColumnReader[] readers = new ColumnReader[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = md.getColumnLabel(i + 1).toUpperCase();
+            readers[i] = ColumnReader.forType(md.getColumnType(i + 1));
+        }
+        return new RowReader(labels, readers);
+    }
+
+    /**
+     * Reads the current row of a {@code ResultSet}.
+     *
+     * @param rset {@code ResultSet}, whose metadata this reader was created from
+     * @return {@code Map<String, Object>} keyed by the upper-case column labels, in column
+     *     order
+     * @throws SQLException if a database access error occurs
+     */
+    Map<String, Object> read(ResultSet rset) throws SQLException {
+        final Map<String, Object> row =
+            new LinkedHashMap<>((int) (this.labels.length / 0.75f) + 1);
+        for (int i = 0; i < this.labels.length; i++) {
+            row.put(this.labels[i], this.readers[i].read(rset, i + 1));
+        }
+        return row;
+    }
+
+    /**
+     * Reads all of the remaining rows of a {@code ResultSet}.
+     *
+     * @param rset {@code ResultSet}, whose metadata this reader was created from
+     * @return {@code List<Map<String, Object>>}. Cannot return {@code null}.
+     * @throws SQLException if a database access error occurs
+     */
+    List<Map<String, Object>> readAll(ResultSet rset) throws SQLException {
+        final List<Map<String, Object>> list = new ArrayList<>();
+        while (rset.next()) {
+            list.add(read(rset));
+        }
+        return list;
+    }
+}
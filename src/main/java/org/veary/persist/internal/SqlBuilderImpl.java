@@ -0,0 +1,455 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.veary.persist.SqlBuilder;
+import org.veary.persist.SqlStatement;
+
+/**
+ * <b>Purpose:</b> the fluent implementations of {@link SqlBuilder}.
+ *
+ * <p><b>Responsibility:</b> each builder describes its statement as a <i>shape</i>: a list of
+ * SQL fragments, in which an {@code Integer} stands for a parenthesised list of that many
+ * '?' placeholders. The SQL for each distinct shape is rendered once and cached, so repeated
+ * builds return the same {@code String} instance. The cache is bounded: once it is full, an
+ * arbitrary shape is dropped to make room for a new one, without taking a lock.
+ *
+ * <p>Values are bound with {@link SqlStatement#setParameter(int, Object)}, which does not
+ * accept {@code null}; a {@code null} value is therefore rejected when it is given, and SQL
+ * {@code NULL} must be written into the fragment itself.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class SqlBuilderImpl {
+
+    private static final int MAX_IN_LIST = 1024;
+    private static final int MAX_SHAPES = 4096;
+    private static final Map<List<Object>, String> SHAPES = new ConcurrentHashMap<>();
+
+    private static final String COMMA = ", "; //$NON-NLS-1$
+    private static final String AND = " AND "; //$NON-NLS-1$
+    private static final String WHERE = " WHERE "; //$NON-NLS-1$
+    private static final String FALSE = "1 = 0"; //$NON-NLS-1$
+
+    /**
+     * Private constructor.
+     */
+    private SqlBuilderImpl() {
+    }
+
+    /**
+     * Returns a new {@code SELECT} builder.
+     *
+     * @param columns the columns to be selected
+     * @return {@link SqlBuilder.Select}
+     */
+    public static SqlBuilder.Select select(String... columns) {
+        return new SelectImpl(join(requireFragments(columns)));
+    }
+
+    /**
+     * Returns a new {@code INSERT} builder.
+     *
+     * @param table the table
+     * @return {@link SqlBuilder.Insert}
+     */
+    public static SqlBuilder.Insert insertInto(String table) {
+        return new InsertImpl(requireFragment(table));
+    }
+
+    /**
+     * Returns a new {@code UPDATE} builder.
+     *
+     * @param table the table
+     * @return {@link SqlBuilder.Update}
+     */
+    public static SqlBuilder.Update update(String table) {
+        return new UpdateImpl(requireFragment(table));
+    }
+
+    /**
+     * Returns a new {@code DELETE} builder.
+     *
+     * @param table the table
+     * @return {@link SqlBuilder.Delete}
+     */
+    public static SqlBuilder.Delete deleteFrom(String table) {
+        return new DeleteImpl(requireFragment(table));
+    }
+
+    /**
+     * Returns the size to which an IN list of the designated size is padded: the next power
+     * of two.
+     *
+     * @param size the number of values
+     * @return int
+     */
+    static int bucket(int size) {
+        if (size > MAX_IN_LIST) {
+            throw new IllegalArgumentException(String.format(
+                Messages.getString("SqlBuilderImpl.error_msg_in_list"), //$NON-NLS-1$
+                Integer.valueOf(MAX_IN_LIST)));
+        }
+        return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static String sqlFor(List<Object> shape) {
+        final String cached = SHAPES.get(shape);
+        if (cached != null) {
+            return cached;
+        }
+
+        final String sql = render(shape);
+        if (SHAPES.size() >= MAX_SHAPES) {
+            // Concurrent callers may briefly overshoot the bound, which is harmless.
+            final Iterator<List<Object>> it = SHAPES.keySet().iterator();
+            if (it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        final String previous = SHAPES.putIfAbsent(List.copyOf(shape), sql);
+        return previous == null ? sql : previous;
+    }
+
+    private static String render(List<Object> shape) {
+        final StringBuilder sql = new StringBuilder();
+        for (Object token : shape) {
+            if (token instanceof Integer) {
+                final int count = ((Integer) token).intValue();
+                sql.append('(');
+                for (int i = 0; i < count; i++) {
+                    sql.append(i == 0 ? "?" : ", ?"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                sql.append(')');
+            } else {
+                sql.append((String) token);
+            }
+        }
+        return sql.toString();
+    }
+
+    private static String join(List<String> fragments) {
+        return String.join(COMMA, fragments);
+    }
+
+    private static String requireFragment(String fragment) {
+        Objects.requireNonNull(fragment,
+            Messages.getString("SqlBuilderImpl.error_msg_fragment_null")); //$NON-NLS-1$
+        if (fragment.isEmpty()) {
+            throw new IllegalArgumentException(
+                Messages.getString("SqlBuilderImpl.error_msg_fragment_empty")); //$NON-NLS-1$
+        }
+        return fragment;
+    }
+
+    private static Object requireValue(Object value) {
+        return Objects.requireNonNull(value,
+            Messages.getString("SqlBuilderImpl.error_msg_value_null")); //$NON-NLS-1$
+    }
+
+    private static List<String> requireFragments(String... fragments) {
+        Objects.requireNonNull(fragments,
+            Messages.getString("SqlBuilderImpl.error_msg_fragment_null")); //$NON-NLS-1$
+        if (fragments.length == 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("SqlBuilderImpl.error_msg_fragment_empty")); //$NON-NLS-1$
+        }
+        final List<String> list = new ArrayList<>(fragments.length);
+        for (String fragment : fragments) {
+            list.add(requireFragment(fragment));
+        }
+        return list;
+    }
+
+    /**
+     * The common behaviour of the fluent builders.
+     */
+    private abstract static class AbstractBuilder implements SqlBuilder {
+
+        /**
+         * Appends the shape of the statement, and the values of its IN parameters in order.
+         *
+         * @param shape the shape
+         * @param values the values
+         */
+        abstract void build(List<Object> shape, List<Object> values);
+
+        @Override
+        public SqlStatement toStatement() {
+            final List<Object> shape = new ArrayList<>();
+            final List<Object> values = new ArrayList<>();
+            build(shape, values);
+
+            final SqlStatement statement = SqlStatement.newInstance(sqlFor(shape));
+            for (int i = 0; i < values.size(); i++) {
+                statement.setParameter(i + 1, values.get(i));
+            }
+            return statement;
+        }
+
+        @Override
+        public String toString() {
+            final List<Object> shape = new ArrayList<>();
+            build(shape, new ArrayList<>());
+            return sqlFor(shape);
+        }
+    }
+
+    /**
+     * The {@code WHERE} clause shared by {@code SELECT}, {@code UPDATE} and {@code DELETE}.
+     *
+     * @param <T> the type of the builder
+     */
+    private abstract static class AbstractWhere<T extends SqlBuilder.Where<T>>
+        extends AbstractBuilder implements SqlBuilder.Where<T> {
+
+        private final List<Object> conditions = new ArrayList<>();
+        private final List<Object> conditionValues = new ArrayList<>();
+
+        abstract T self();
+
+        @Override
+        public T where(String condition, Object... values) {
+            requireFragment(condition);
+            final Object[] params = Objects.requireNonNull(values,
+                Messages.getString("SqlBuilderImpl.error_msg_values_null")); //$NON-NLS-1$
+            for (Object value : params) {
+                requireValue(value);
+            }
+            final int placeholders = SqlText.countParameters(condition);
+            if (placeholders != params.length) {
+                throw new IllegalArgumentException(String.format(
+                    Messages.getString("SqlBuilderImpl.error_msg_value_count"), //$NON-NLS-1$
+                    Integer.valueOf(placeholders), Integer.valueOf(params.length)));
+            }
+
+            if (!this.conditions.isEmpty()) {
+                this.conditions.add(AND);
+            }
+            this.conditions.add(condition);
+            for (Object value : params) {
+                this.conditionValues.add(value);
+            }
+            return self();
+        }
+
+        @Override
+        public T whereIn(String column, Collection<?> values) {
+            requireFragment(column);
+            Objects.requireNonNull(values,
+                Messages.getString("SqlBuilderImpl.error_msg_values_null")); //$NON-NLS-1$
+            final int size = bucket(values.size());
+            for (Object value : values) {
+                requireValue(value);
+            }
+
+            if (!this.conditions.isEmpty()) {
+                this.conditions.add(AND);
+            }
+            if (values.isEmpty()) {
+                this.conditions.add(FALSE);
+                return self();
+            }
+
+            this.conditions.add(column);
+            this.conditions.add(" IN "); //$NON-NLS-1$
+            this.conditions.add(Integer.valueOf(size));
+
+            Object last = null;
+            final Iterator<?> it = values.iterator();
+            while (it.hasNext()) {
+                last = it.next();
+                this.conditionValues.add(last);
+            }
+            for (int i = values.size(); i < size; i++) {
+                this.conditionValues.add(last);
+            }
+            return self();
+        }
+
+        void buildWhere(List<Object> shape, List<Object> values) {
+            if (!this.conditions.isEmpty()) {
+                shape.add(WHERE);
+                shape.addAll(this.conditions);
+                values.addAll(this.conditionValues);
+            }
+        }
+    }
+
+    private static final class SelectImpl extends AbstractWhere<SqlBuilder.Select>
+        implements SqlBuilder.Select {
+
+        private final String columns;
+        private String table;
+        private String orderBy;
+
+        SelectImpl(String columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        SqlBuilder.Select self() {
+            return this;
+        }
+
+        @Override
+        public SqlBuilder.Select from(String from) {
+            this.table = requireFragment(from);
+            return this;
+        }
+
+        @Override
+        public SqlBuilder.Select orderBy(String... order) {
+            this.orderBy = join(requireFragments(order));
+            return this;
+        }
+
+        @Override
+        void build(List<Object> shape, List<Object> values) {
+            if (this.table == null) {
+                throw new IllegalStateException(
+                    Messages.getString("SqlBuilderImpl.error_msg_no_table")); //$NON-NLS-1$
+            }
+            shape.add("SELECT "); //$NON-NLS-1$
+            shape.add(this.columns);
+            shape.add(" FROM "); //$NON-NLS-1$
+            shape.add(this.table);
+            buildWhere(shape, values);
+            if (this.orderBy != null) {
+                shape.add(" ORDER BY "); //$NON-NLS-1$
+                shape.add(this.orderBy);
+            }
+        }
+    }
+
+    private static final class InsertImpl extends AbstractBuilder implements SqlBuilder.Insert {
+
+        private final String table;
+        private final List<String> columns = new ArrayList<>();
+        private final List<Object> columnValues = new ArrayList<>();
+
+        InsertImpl(String table) {
+            this.table = table;
+        }
+
+        @Override
+        public SqlBuilder.Insert value(String column, Object value) {
+            requireValue(value);
+            this.columns.add(requireFragment(column));
+            this.columnValues.add(value);
+            return this;
+        }
+
+        @Override
+        void build(List<Object> shape, List<Object> values) {
+            if (this.columns.isEmpty()) {
+                throw new IllegalStateException(
+                    Messages.getString("SqlBuilderImpl.error_msg_no_columns")); //$NON-NLS-1$
+            }
+            shape.add("INSERT INTO "); //$NON-NLS-1$
+            shape.add(this.table);
+            shape.add(" ("); //$NON-NLS-1$
+            shape.add(join(this.columns));
+            shape.add(") VALUES "); //$NON-NLS-1$
+            shape.add(Integer.valueOf(this.columns.size()));
+            values.addAll(this.columnValues);
+        }
+    }
+
+    private static final class UpdateImpl extends AbstractWhere<SqlBuilder.Update>
+        implements SqlBuilder.Update {
+
+        private final String table;
+        private final List<String> columns = new ArrayList<>();
+        private final List<Object> columnValues = new ArrayList<>();
+
+        UpdateImpl(String table) {
+            this.table = table;
+        }
+
+        @Override
+        SqlBuilder.Update self() {
+            return this;
+        }
+
+        @Override
+        public SqlBuilder.Update set(String column, Object value) {
+            requireValue(value);
+            this.columns.add(requireFragment(column));
+            this.columnValues.add(value);
+            return this;
+        }
+
+        @Override
+        void build(List<Object> shape, List<Object> values) {
+            if (this.columns.isEmpty()) {
+                throw new IllegalStateException(
+                    Messages.getString("SqlBuilderImpl.error_msg_no_columns")); //$NON-NLS-1$
+            }
+            shape.add("UPDATE "); //$NON-NLS-1$
+            shape.add(this.table);
+            shape.add(" SET "); //$NON-NLS-1$
+            for (int i = 0; i < this.columns.size(); i++) {
+                shape.add(i == 0 ? "" : COMMA); //$NON-NLS-1$
+                shape.add(this.columns.get(i));
+                shape.add(" = ?"); //$NON-NLS-1$
+            }
+            values.addAll(this.columnValues);
+            buildWhere(shape, values);
+        }
+    }
+
+    private static final class DeleteImpl extends AbstractWhere<SqlBuilder.Delete>
+        implements SqlBuilder.Delete {
+
+        private final String table;
+
+        DeleteImpl(String table) {
+            this.table = table;
+        }
+
+        @Override
+        SqlBuilder.Delete self() {
+            return this;
+        }
+
+        @Override
+        void build(List<Object> shape, List<Object> values) {
+            shape.add("DELETE FROM "); //$NON-NLS-1$
+            shape.add(this.table);
+            buildWhere(shape, values);
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+/**
+ * Utility methods for inspecting the text of SQL statements.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+final class SqlText {
+
+    private static final int MAX_FINGERPRINT_LENGTH = 2048;
+
+    /**
+     * Private constructor.
+     */
+    private SqlText() {
+    }
+
+    /**
+     * Returns the fingerprint of a statement: string and numeric literals are replaced by
+     * {@code ?} and runs of whitespace by a single space, so that statements which differ only
+     * in their literal values share a fingerprint.
+     *
+     * @param sql the statement
+     * @return {@code String}
+     */
+    static String fingerprint(String sql) {
+        final int length = sql.length();
+        final StringBuilder result = new StringBuilder(Math.min(length, MAX_FINGERPRINT_LENGTH));
+        int i = 0;
+        while (i < length && result.length() < MAX_FINGERPRINT_LENGTH) {
+            final char c = sql.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < length) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                result.append('?');
+                i++;
+            } else if (Character.isDigit(c) && !isIdentifierPart(result)) {
+                while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                result.append('?');
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (result.length() > 0 && i < length) {
+                    result.append(' ');
+                }
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the number of '?' IN parameter placeholders in a statement, ignoring any within
+     * string literals, quoted identifiers and comments.
+     *
+     * @param sql the statement
+     * @return int
+     */
+    static int countParameters(String sql) {
+        int count = 0;
+        int i = 0;
+        while (i < sql.length()) {
+            final char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                final int close = sql.indexOf(c, i + 1);
+                i = close < 0 ? sql.length() : close + 1;
+            } else if (sql.startsWith("--", i)) { //$NON-NLS-1$
+                final int eol = sql.indexOf('\n', i);
+                i = eol < 0 ? sql.length() : eol + 1;
+            } else if (sql.startsWith("/*", i)) { //$NON-NLS-1$
+                final int close = sql.indexOf("*/", i + 2); //$NON-NLS-1$
+                i = close < 0 ? sql.length() : close + 2;
+            } else {
+                if (c == '?') {
+                    count++;
+                }
+                i++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the leading keyword of a statement, such as {@code SELECT} or {@code UPDATE}.
+     *
+     * @param sql the statement
+     * @return the upper-case keyword, or an empty {@code String}
+     */
+    static String keyword(String sql) {
+        final int start = skipWhitespace(sql, 0);
+        return sql.substring(start, skipWord(sql, start)).toUpperCase();
+    }
+
+    /**
+     * Returns the table a statement reads from or writes to: the first table after
+     * {@code FROM} for a {@code SELECT} or {@code DELETE}, after {@code INTO} for an
+     * {@code INSERT}, {@code MERGE} or {@code REPLACE}, and after {@code UPDATE} for an
+     * {@code UPDATE}.
+     *
+     * @param sql the statement
+     * @return the upper-case, possibly schema-qualified table name, or {@code null} if it
+     *     could not be determined
+     */
+    static String table(String sql) {
+        final String keyword = keyword(sql);
+        final String marker;
+        switch (keyword) {
+            case "SELECT": //$NON-NLS-1$
+            case "DELETE": //$NON-NLS-1$
+                marker = "FROM"; //$NON-NLS-1$
+                break;
+            case "INSERT": //$NON-NLS-1$
+            case "MERGE": //$NON-NLS-1$
+            case "REPLACE": //$NON-NLS-1$
+                marker = "INTO"; //$NON-NLS-1$
+                break;
+            case "UPDATE": //$NON-NLS-1$
+                marker = keyword;
+                break;
+            default:
+                return null;
+        }
+
+        int pos = 0;
+        while (pos < sql.length()) {
+            final int end = skipWord(sql, pos);
+            if (end == pos) {
+                pos = sql.charAt(pos) == '\'' ? sql.indexOf('\'', pos + 1) + 1 : pos + 1;
+                if (pos == 0) {
+                    return null;
+                }
+                continue;
+            }
+            if (marker.equalsIgnoreCase(sql.substring(pos, end))) {
+                final int start = skipWhitespace(sql, end);
+                final int nameEnd = skipName(sql, start);
+                if (nameEnd == start) {
+                    return null;
+                }
+                return sql.substring(start, nameEnd).replace("\"", "") //$NON-NLS-1$ //$NON-NLS-2$
+                    .toUpperCase();
+            }
+            pos = end;
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(String sql, int from) {
+        int pos = from;
+        while (pos < sql.length() && Character.isWhitespace(sql.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipWord(String sql, int from) {
+        int pos = from;
+        while (pos < sql.length() && isIdentifierChar(sql.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipName(String sql, int from) {
+        int pos = from;
+        while (pos < sql.length()
+            && (isIdentifierChar(sql.charAt(pos)) || sql.charAt(pos) == '.'
+                || sql.charAt(pos) == '"')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static boolean isIdentifierPart(StringBuilder preceding) {
+        if (preceding.length() == 0) {
+            return false;
+        }
+        final char last = preceding.charAt(preceding.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$';
+    }
+}
@@ -28,16 +28,28 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.sql.DataSource;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.veary.persist.CommittedTransaction;
+import org.veary.persist.Isolation;
 import org.veary.persist.SqlStatement;
 import org.veary.persist.TransactionManager;
+import org.veary.persist.WorkloadClass;
 import org.veary.persist.exceptions.PersistenceException;
 
 /**
@@ -50,12 +62,16 @@ import org.veary.persist.exceptions.PersistenceException;
  * SqlStatement statement = SqlStatement.newInstance(builder);
  * statement.setParameter(1, "CASH");
  *
- * TransactionManager manager = injector.getInstance(TransactionManager.class);
- * manager.begin();
- * Long resultId = manager.persist(statement)
- * manager.commit();
+ * try (TransactionManager manager = injector.getInstance(TransactionManager.class)) {
+ *     manager.begin();
+ *     Long resultId = manager.persist(statement)
+ *     manager.commit();
+ * }
  * </pre>
  *
+ * <p>Each open transaction is registered with a {@link TransactionRegistry}, which may roll
+ * it back from its reaper thread. The state of the manager is therefore guarded by a lock.
+ *
  * @author Marc L. Veary
  * @since 1.0
  */
@@ -63,12 +79,50 @@ public final class TransactionManagerImpl implements TransactionManager {
 
     private static final Logger LOG = LogManager.getLogger(TransactionManagerImpl.class);
     private static final String SELECT_STR = "SELECT"; //$NON-NLS-1$
+    private static final String OP_BEGIN = "begin"; //$NON-NLS-1$
+    private static final String OP_PERSIST = "persist"; //$NON-NLS-1$
+    private static final String OP_COMMIT = "commit"; //$NON-NLS-1$
+    private static final String OP_ROLLBACK = "rollback"; //$NON-NLS-1$
+    private static final String OP_FIND = "find"; //$NON-NLS-1$
+    private static final String OP_UPSERT = "upsert"; //$NON-NLS-1$
+    private static final String OP_PERSIST_ALL = "persistAll"; //$NON-NLS-1$
+    private static final String OP_INSERT = "insert"; //$NON-NLS-1$
+    private static final String OP_UPDATE = "update"; //$NON-NLS-1$
+    private static final String OP_INSERT_ALL = "insertAll"; //$NON-NLS-1$
+    private static final String OP_UPDATE_ALL = "updateAll"; //$NON-NLS-1$
+    private static final String MERGE_STR = "MERGE"; //$NON-NLS-1$
+    private static final Long ZERO = Long.valueOf(0);
+    private static final Pattern TABLE_NAME =
+        Pattern.compile("([A-Za-z_][A-Za-z0-9_]*\\.)?[A-Za-z_][A-Za-z0-9_]*"); //$NON-NLS-1$
+    private static final Pattern COLUMN_NAME =
+        Pattern.compile("[A-Za-z_][A-Za-z0-9_]*"); //$NON-NLS-1$
 
     private final DataSource ds;
-    private boolean txActive;
+    private final TransactionRegistry registry;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final IdentityMap identityMap = new IdentityMap();
+    private final Set<String> writtenTables = new HashSet<>();
+    private final EntityCacheImpl cache;
+    private final BatchSizeTuner tuner;
+    private final CommitDispatcher dispatcher;
+    private final Bulkheads bulkheads;
+    private final List<CommittedTransaction.Write> writes = new ArrayList<>();
+    private DataSource source;
+    private volatile boolean txActive;
     private boolean persistCalled;
+    private boolean readOnly;
+    private boolean reclaimed;
+    private volatile boolean aborted;
+    private boolean leakReported;
+    private boolean writesAll;
     private int rowCountResult;
     private Connection conn;
+    private volatile Connection bound;
+    private AffinityDataSource.Binding previousBound;
+    private ConnectionState state = ConnectionState.UNCHANGED;
+    private long beginNanos;
+    private String threadName;
+    private Throwable origin;
 
     /**
      * Constructor.
@@ -77,90 +131,452 @@ public final class TransactionManagerImpl implements TransactionManager {
      */
     @Inject
     public TransactionManagerImpl(DataSource ds) {
+        this(ds, new TransactionRegistry(), new EntityCacheImpl(), new BatchSizeTuner(),
+            new CommitDispatcher(), new Bulkheads());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param registry the {@link TransactionRegistry} which tracks open transactions
+     * @param cache the shared {@link EntityCacheImpl}, which is invalidated on commit
+     * @param tuner the {@link BatchSizeTuner} which chooses the size of JDBC batches
+     * @param dispatcher the {@link CommitDispatcher} which is told of each commit
+     * @param bulkheads the {@link Bulkheads} which share connections between workload classes
+     */
+    public TransactionManagerImpl(DataSource ds, TransactionRegistry registry,
+        EntityCacheImpl cache, BatchSizeTuner tuner, CommitDispatcher dispatcher,
+        Bulkheads bulkheads) {
         this.ds = ds;
+        this.registry = Objects.requireNonNull(registry);
+        this.cache = Objects.requireNonNull(cache);
+        this.tuner = Objects.requireNonNull(tuner);
+        this.dispatcher = Objects.requireNonNull(dispatcher);
+        this.bulkheads = Objects.requireNonNull(bulkheads);
+        this.source = bulkheads.view(WorkloadClass.STANDARD, ds);
     }
 
     @Override
-    public void begin() {
-        if (this.txActive || this.conn != null) {
-            throw new IllegalStateException("Transaction already active.");
-        }
-
+    public TransactionManager setWorkloadClass(WorkloadClass workloadClass) {
+        Objects.requireNonNull(workloadClass,
+            Messages.getString("TransactionManagerImpl.error_msg_class_null")); //$NON-NLS-1$
+        this.lock.lock();
         try {
-            this.conn = this.ds.getConnection();
-        } catch (SQLException e) {
-            if (e.getCause() == null) {
-                throw new PersistenceException(e);
+            if (this.txActive) {
+                throw new IllegalStateException("Transaction already active.");
             }
-            throw new PersistenceException(e.getCause());
+            this.source = this.bulkheads.view(workloadClass, this.ds);
+        } finally {
+            this.lock.unlock();
         }
+        return this;
+    }
 
-        this.rowCountResult = 0;
-        this.txActive = true;
-        this.persistCalled = false;
+    @Override
+    public void begin() {
+        begin(Isolation.DEFAULT, false);
     }
 
     @Override
-    public void commit() {
-        if (!this.txActive) {
-            throw new IllegalStateException("No active transaction.");
-        }
+    public void begin(Isolation isolation, boolean readOnly) {
+        Objects.requireNonNull(isolation,
+            Messages.getString("TransactionManagerImpl.error_msg_isolation_null")); //$NON-NLS-1$
+        this.lock.lock();
+        try {
+            if (this.txActive || this.conn != null) {
+                throw new IllegalStateException("Transaction already active.");
+            }
+
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            try {
+                this.conn = this.source.getConnection();
+                this.state = ConnectionState.apply(this.conn, isolation, readOnly);
+                this.conn.setAutoCommit(false);
+                outcome = Outcome.SUCCESS;
+            } catch (SQLException e) {
+                outcome = Outcome.of(e);
+                closeQuietly();
+                if (e.getCause() == null) {
+                    throw new PersistenceException(e);
+                }
+                throw new PersistenceException(e.getCause());
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = OP_BEGIN;
+                    event.acquireTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
+            }
 
-        if (!this.persistCalled) {
-            throw new IllegalStateException("Nothing to commit.");
+            this.rowCountResult = 0;
+            this.txActive = true;
+            this.persistCalled = false;
+            this.readOnly = readOnly;
+            this.reclaimed = false;
+            this.aborted = false;
+            this.leakReported = false;
+            this.beginNanos = System.nanoTime();
+            this.threadName = Thread.currentThread().getName();
+            this.origin = this.registry.isLeakDetectionEnabled()
+                ? new Throwable("Transaction begun here") //$NON-NLS-1$
+                : null;
+            this.registry.register(this);
+            this.bound = this.conn;
+            this.previousBound = AffinityDataSource.bind(this.ds, this.bound, this);
+        } finally {
+            this.lock.unlock();
         }
+    }
 
+    @Override
+    public void commit() {
+        this.lock.lock();
         try {
-            this.conn.commit();
-            this.conn.setAutoCommit(true);
-            this.conn.close();
-        } catch (final SQLException e) {
-            rollback();
-            if (e.getCause() == null) {
-                throw new PersistenceException(e);
+            requireActive();
+
+            if (!this.persistCalled && !this.readOnly) {
+                throw new IllegalStateException("Nothing to commit.");
+            }
+
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            try {
+                try {
+                    this.conn.commit();
+                } catch (final SQLException e) {
+                    outcome = Outcome.of(e);
+                    rollbackAndRelease();
+                    if (e.getCause() == null) {
+                        throw new PersistenceException(e);
+                    }
+                    throw new PersistenceException(e.getCause());
+                }
+                outcome = Outcome.SUCCESS;
+                try {
+                    invalidateSharedCache();
+                    publishCommit();
+                } finally {
+                    restoreAndRelease();
+                }
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = OP_COMMIT;
+                    event.executeTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
             }
-            throw new PersistenceException(e.getCause());
         } finally {
-            this.conn = null;
+            this.lock.unlock();
         }
+    }
 
-        this.txActive = false;
+    @Override
+    public void rollback() {
+        this.lock.lock();
+        try {
+            requireActive();
+            rollbackAndRelease();
+        } finally {
+            this.lock.unlock();
+        }
     }
 
     @Override
     public Long persist(SqlStatement statement) {
-        if (!this.txActive) {
-            throw new IllegalStateException("No active transaction.");
+        this.lock.lock();
+        try {
+            requireActive();
+
+            Objects.requireNonNull(statement, "Statement cannot be null.");
+            if (statement.toString().toUpperCase().startsWith(SELECT_STR)) {
+                throw new IllegalStateException(
+                    Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
+            }
+
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            Long id = Long.valueOf(0);
+            try (PreparedStatement pstmt = this.conn.prepareStatement(statement.toString(),
+                PreparedStatement.RETURN_GENERATED_KEYS)) {
+
+                for (Map.Entry<Integer, Object> entry : statement.getParameters()
+                    .entrySet()) {
+                    pstmt.setObject(entry.getKey().intValue(), entry.getValue());
+                }
+
+                this.rowCountResult = pstmt.executeUpdate();
+
+                id = getGeneratedKey(pstmt);
+                outcome = Outcome.SUCCESS;
+            } catch (SQLException e) {
+                outcome = Outcome.of(e);
+                rollbackAndRelease();
+                if (e.getCause() == null) {
+                    throw new PersistenceException(e);
+                }
+                throw new PersistenceException(e.getCause());
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = OP_PERSIST;
+                    event.sql = SqlText.fingerprint(statement.toString());
+                    event.rowCount = this.rowCountResult;
+                    event.executeTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
+            }
+
+            written(statement.toString(), this.rowCountResult, id);
+            return id;
+        } finally {
+            this.lock.unlock();
         }
+    }
 
+    @Override
+    public int persistAll(SqlStatement statement, List<Object[]> rows) {
         Objects.requireNonNull(statement, "Statement cannot be null.");
-        if (statement.toString().toUpperCase().startsWith(SELECT_STR)) {
+        Objects.requireNonNull(rows,
+            Messages.getString("TransactionManagerImpl.error_msg_rows_null")); //$NON-NLS-1$
+        final String sql = statement.toString();
+        if (sql.toUpperCase().startsWith(SELECT_STR)) {
             throw new IllegalStateException(
                 Messages.getString("QueryImpl.error_msg_incorrect_query_type")); //$NON-NLS-1$
         }
 
-        Long id = Long.valueOf(0);
-        try (PreparedStatement pstmt = this.conn.prepareStatement(statement.toString(),
-            PreparedStatement.RETURN_GENERATED_KEYS)) {
+        this.lock.lock();
+        try {
+            requireActive();
+            if (rows.isEmpty()) {
+                this.rowCountResult = 0;
+                return 0;
+            }
 
-            for (Map.Entry<Integer, Object> entry : statement.getParameters()
-                .entrySet()) {
-                pstmt.setObject(entry.getKey().intValue(), entry.getValue());
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            int total = 0;
+            try (PreparedStatement pstmt = this.conn.prepareStatement(sql)) {
+                total = executeBatches(pstmt, sql, rows.size(), (ps, index) -> {
+                    final Object[] values = rows.get(index);
+                    for (int i = 0; i < values.length; i++) {
+                        ps.setObject(i + 1, values[i]);
+                    }
+                });
+                outcome = Outcome.SUCCESS;
+            } catch (SQLException e) {
+                outcome = Outcome.of(e);
+                rollbackAndRelease();
+                if (e.getCause() == null) {
+                    throw new PersistenceException(e);
+                }
+                throw new PersistenceException(e.getCause());
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = OP_PERSIST_ALL;
+                    event.sql = SqlText.fingerprint(sql);
+                    event.rowCount = total;
+                    event.executeTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
             }
 
-            this.rowCountResult = pstmt.executeUpdate();
+            written(sql, total, ZERO);
+            this.rowCountResult = total;
+            return total;
+        } finally {
+            this.lock.unlock();
+        }
+    }
 
-            id = getGeneratedKey(pstmt);
-        } catch (SQLException e) {
-            rollback();
-            if (e.getCause() == null) {
-                throw new PersistenceException(e);
+    @Override
+    public Long insert(Object entity) {
+        Objects.requireNonNull(entity,
+            Messages.getString("TransactionManagerImpl.error_msg_entity_null")); //$NON-NLS-1$
+        final EntityMetadata metadata = EntityMetadata.forEntity(entity);
+        return writeEntity(OP_INSERT, metadata.getInsertSql(), metadata.isKeyGenerated(),
+            (pstmt, index) -> metadata.bindInsert(pstmt, entity));
+    }
+
+    @Override
+    public int update(Object entity) {
+        Objects.requireNonNull(entity,
+            Messages.getString("TransactionManagerImpl.error_msg_entity_null")); //$NON-NLS-1$
+        final EntityMetadata metadata = EntityMetadata.forEntity(entity);
+        writeEntity(OP_UPDATE, metadata.getUpdateSql(), false,
+            (pstmt, index) -> metadata.bindUpdate(pstmt, entity));
+        return this.rowCountResult;
+    }
+
+    @Override
+    public int insertAll(Collection<?> entities) {
+        return writeEntities(entities, true);
+    }
+
+    @Override
+    public int updateAll(Collection<?> entities) {
+        return writeEntities(entities, false);
+    }
+
+    @Override
+    public int upsert(String table, List<String> keyColumns, List<Map<String, Object>> rows) {
+        Objects.requireNonNull(table,
+            Messages.getString("TransactionManagerImpl.error_msg_table_null")); //$NON-NLS-1$
+        Objects.requireNonNull(keyColumns,
+            Messages.getString("TransactionManagerImpl.error_msg_keys_null")); //$NON-NLS-1$
+        Objects.requireNonNull(rows,
+            Messages.getString("TransactionManagerImpl.error_msg_rows_null")); //$NON-NLS-1$
+
+        this.lock.lock();
+        try {
+            requireActive();
+            if (rows.isEmpty()) {
+                this.rowCountResult = 0;
+                return 0;
             }
-            throw new PersistenceException(e.getCause());
+
+            final List<String> columns = new ArrayList<>(rows.get(0).keySet());
+            validateUpsert(table, keyColumns, columns, rows);
+
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            String sql = null;
+            int total = 0;
+            try {
+                sql = Dialect.of(this.conn.getMetaData().getDatabaseProductName())
+                    .upsert(table, columns, keyColumns);
+                try (PreparedStatement pstmt = this.conn.prepareStatement(sql)) {
+                    total = executeBatches(pstmt, sql, rows.size(), (ps, index) -> {
+                        final Map<String, Object> row = rows.get(index);
+                        for (int i = 0; i < columns.size(); i++) {
+                            ps.setObject(i + 1, row.get(columns.get(i)));
+                        }
+                    });
+                }
+                outcome = Outcome.SUCCESS;
+            } catch (SQLException e) {
+                outcome = Outcome.of(e);
+                rollbackAndRelease();
+                if (e.getCause() == null) {
+                    throw new PersistenceException(e);
+                }
+                throw new PersistenceException(e.getCause());
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = OP_UPSERT;
+                    event.sql = sql == null ? null : SqlText.fingerprint(sql);
+                    event.rowCount = total;
+                    event.executeTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
+            }
+
+            written(MERGE_STR, table.toUpperCase(), total, ZERO);
+            this.rowCountResult = total;
+            return total;
+        } finally {
+            this.lock.unlock();
         }
+    }
 
-        this.persistCalled = true;
-        return id;
+    @Override
+    public Object find(Class<?> entityInterface, SqlStatement lookup, Object key) {
+        return find(new KeyLookup(entityInterface, lookup, key), true);
+    }
+
+    /**
+     * Looks up an entity through the identity map of this transaction and, if
+     * {@code shareable}, the shared cache.
+     *
+     * @param keyLookup the {@link KeyLookup}
+     * @param shareable {@code false} to neither read nor populate the shared cache
+     * @return the entity, or {@code null} if there is no such row
+     */
+    Object find(KeyLookup keyLookup, boolean shareable) {
+        final Class<?> entityInterface = keyLookup.getEntityInterface();
+        final Object key = keyLookup.getKey();
+        final String table = keyLookup.getTable();
+        final String column = keyLookup.getKeyColumn();
+
+        this.lock.lock();
+        try {
+            requireActive();
+
+            final Object cached = this.identityMap.get(table, entityInterface, column, key);
+            if (cached != null) {
+                return cached;
+            }
+
+            final boolean shared = shareable && this.cache.isEnabled() && !this.writesAll
+                && !this.writtenTables.contains(table);
+            if (shared) {
+                final Object entity = this.cache.get(entityInterface, column, key);
+                if (entity != null) {
+                    this.identityMap.put(table, entityInterface, column, key, entity);
+                    return entity;
+                }
+            }
+            final long stamp = shared ? this.cache.stamp(table) : 0;
+
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            Map<String, Object> row = null;
+            try {
+                row = keyLookup.read(this.conn);
+                outcome = Outcome.SUCCESS;
+            } catch (SQLException e) {
+                outcome = Outcome.of(e);
+                if (e.getCause() == null) {
+                    throw new PersistenceException(e);
+                }
+                throw new PersistenceException(e.getCause());
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = OP_FIND;
+                    event.sql = SqlText.fingerprint(keyLookup.getSql());
+                    event.rowCount = row == null ? 0 : 1;
+                    event.executeTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
+            }
+
+            if (row == null) {
+                return null;
+            }
+
+            final Object entity = keyLookup.map(row);
+            this.identityMap.put(table, entityInterface, column, key, entity);
+            if (shared) {
+                this.cache.put(table, entityInterface, column, key, entity, stamp);
+            }
+            return entity;
+        } finally {
+            this.lock.unlock();
+        }
     }
 
     @Override
@@ -173,6 +589,329 @@ public final class TransactionManagerImpl implements TransactionManager {
         return this.txActive;
     }
 
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            if (this.txActive) {
+                LOG.debug("Rolling back uncommitted transaction on close.");
+                rollbackAndRelease();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Rolls back the active transaction on behalf of the {@link TransactionRegistry}. If the
+     * owning thread is currently using the connection, for example because a statement is
+     * blocked, the connection is aborted instead: the owner's statement then fails, and the
+     * owner rolls back and releases the connection. Whether a blocked statement is
+     * interrupted by {@link Connection#abort} depends on the driver.
+     *
+     * @return {@code true} if the transaction was rolled back or its connection aborted
+     */
+    boolean reclaim() {
+        if (!this.lock.tryLock()) {
+            return abort();
+        }
+        try {
+            if (!this.txActive) {
+                return false;
+            }
+            rollbackAndRelease();
+            this.reclaimed = true;
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Aborts the connection of a transaction whose owner is using it. Called without the
+     * lock, so only the volatile state of the transaction is used.
+     */
+    private boolean abort() {
+        final Connection target = this.bound;
+        if (target == null || this.aborted) {
+            return false;
+        }
+        this.aborted = true;
+        // Some drivers only return from abort once the running statement has completed, so
+        // it must not hold up the sweep of the other transactions.
+        final Thread thread = new Thread(() -> {
+            try {
+                target.abort(Runnable::run);
+            } catch (SQLException e) {
+                LOG.error("Abort failed: ", e);
+            }
+        }, "persist-tx-abort"); //$NON-NLS-1$
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+
+    /**
+     * Marks the active transaction as reported by leak detection.
+     *
+     * @return {@code true} if it had not already been reported
+     */
+    boolean markLeakReported() {
+        if (this.leakReported) {
+            return false;
+        }
+        this.leakReported = true;
+        return true;
+    }
+
+    long getBeginNanos() {
+        return this.beginNanos;
+    }
+
+    String getThreadName() {
+        return this.threadName;
+    }
+
+    Throwable getOrigin() {
+        return this.origin;
+    }
+
+    private void requireActive() {
+        if (this.reclaimed || this.aborted) {
+            throw new IllegalStateException(
+                Messages.getString("TransactionManagerImpl.error_msg_reclaimed")); //$NON-NLS-1$
+        }
+        if (!this.txActive) {
+            throw new IllegalStateException("No active transaction.");
+        }
+    }
+
+    private static void validateUpsert(String table, List<String> keyColumns,
+        List<String> columns, List<Map<String, Object>> rows) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException(
+                Messages.getString("TransactionManagerImpl.error_msg_invalid_table")); //$NON-NLS-1$
+        }
+        for (String column : columns) {
+            if (!COLUMN_NAME.matcher(column).matches()) {
+                throw new IllegalArgumentException(String.format(Messages
+                    .getString("TransactionManagerImpl.error_msg_invalid_column"), //$NON-NLS-1$
+                    column));
+            }
+        }
+        if (keyColumns.isEmpty() || !columns.containsAll(keyColumns)) {
+            throw new IllegalArgumentException(
+                Messages.getString("TransactionManagerImpl.error_msg_invalid_keys")); //$NON-NLS-1$
+        }
+        final Set<String> expected = rows.get(0).keySet();
+        for (Map<String, Object> row : rows) {
+            if (!expected.equals(row.keySet())) {
+                throw new IllegalArgumentException(Messages
+                    .getString("TransactionManagerImpl.error_msg_row_columns")); //$NON-NLS-1$
+            }
+        }
+    }
+
+    /**
+     * Writes a single entity.
+     *
+     * @param operation the name of the operation, for the {@link TransactionEvent}
+     * @param sql the generated statement
+     * @param returnKey {@code true} to return the generated key
+     * @param binder binds the entity's values
+     * @return the generated key, otherwise 0
+     */
+    private Long writeEntity(String operation, String sql, boolean returnKey,
+        RowBinder binder) {
+        this.lock.lock();
+        try {
+            requireActive();
+
+            final TransactionEvent event = new TransactionEvent();
+            final long start = System.nanoTime();
+            event.begin();
+            String outcome = Outcome.FAILURE;
+            Long id = Long.valueOf(0);
+            try (PreparedStatement pstmt = returnKey
+                ? this.conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)
+                : this.conn.prepareStatement(sql)) {
+                binder.bind(pstmt, 0);
+                this.rowCountResult = pstmt.executeUpdate();
+                if (returnKey) {
+                    id = getGeneratedKey(pstmt);
+                }
+                outcome = Outcome.SUCCESS;
+            } catch (SQLException e) {
+                outcome = Outcome.of(e);
+                rollbackAndRelease();
+                if (e.getCause() == null) {
+                    throw new PersistenceException(e);
+                }
+                throw new PersistenceException(e.getCause());
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.operation = operation;
+                    event.sql = sql;
+                    event.rowCount = this.rowCountResult;
+                    event.executeTime = System.nanoTime() - start;
+                    event.outcome = outcome;
+                    event.commit();
+                }
+            }
+
+            written(sql, this.rowCountResult, id);
+            return id;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Inserts or updates entities, grouped by entity interface and written in JDBC batches.
+     *
+     * @param entities the entities
+     * @param insert {@code true} to insert, {@code false} to update
+     * @return the total row count reported by the driver
+     */
+    private int writeEntities(Collection<?> entities, boolean insert) {
+        Objects.requireNonNull(entities,
+            Messages.getString("TransactionManagerImpl.error_msg_entities_null")); //$NON-NLS-1$
+        final Map<EntityMetadata, List<Object>> groups = new LinkedHashMap<>();
+        for (Object entity : entities) {
+            Objects.requireNonNull(entity,
+                Messages.getString("TransactionManagerImpl.error_msg_entity_null")); //$NON-NLS-1$
+            final EntityMetadata metadata = EntityMetadata.forEntity(entity);
+            if (!insert) {
+                metadata.getUpdateSql();
+            }
+            groups.computeIfAbsent(metadata, key -> new ArrayList<>()).add(entity);
+        }
+
+        this.lock.lock();
+        try {
+            requireActive();
+            int total = 0;
+            for (Map.Entry<EntityMetadata, List<Object>> group : groups.entrySet()) {
+                final EntityMetadata metadata = group.getKey();
+                final List<Object> list = group.getValue();
+                final String sql = insert ? metadata.getInsertSql() : metadata.getUpdateSql();
+
+                final TransactionEvent event = new TransactionEvent();
+                final long start = System.nanoTime();
+                event.begin();
+                String outcome = Outcome.FAILURE;
+                int count = 0;
+                try (PreparedStatement pstmt = this.conn.prepareStatement(sql)) {
+                    count = executeBatches(pstmt, sql, list.size(), insert
+                        ? (ps, index) -> metadata.bindInsert(ps, list.get(index))
+                        : (ps, index) -> metadata.bindUpdate(ps, list.get(index)));
+                    outcome = Outcome.SUCCESS;
+                } catch (SQLException e) {
+                    outcome = Outcome.of(e);
+                    rollbackAndRelease();
+                    if (e.getCause() == null) {
+                        throw new PersistenceException(e);
+                    }
+                    throw new PersistenceException(e.getCause());
+                } finally {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.operation = insert ? OP_INSERT_ALL : OP_UPDATE_ALL;
+                        event.sql = sql;
+                        event.rowCount = count;
+                        event.executeTime = System.nanoTime() - start;
+                        event.outcome = outcome;
+                        event.commit();
+                    }
+                }
+                written(sql, count, ZERO);
+                total += count;
+            }
+            this.rowCountResult = total;
+            return total;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Binds and executes the rows in JDBC batches, each of the size chosen by the
+     * {@link BatchSizeTuner}, which is told how long each batch took.
+     *
+     * @param pstmt {@link PreparedStatement}
+     * @param sql the statement, which identifies it to the tuner
+     * @param rowCount the number of rows
+     * @param binder binds the values of a row to {@code pstmt}
+     * @return the total row count reported by the driver
+     * @throws SQLException if a database access error occurs
+     */
+    private int executeBatches(PreparedStatement pstmt, String sql, int rowCount,
+        RowBinder binder) throws SQLException {
+        int total = 0;
+        int index = 0;
+        while (index < rowCount) {
+            final int requested = this.tuner.batchSize(sql);
+            final int size = Math.min(requested, rowCount - index);
+            for (int i = 0; i < size; i++) {
+                binder.bind(pstmt, index + i);
+                pstmt.addBatch();
+            }
+
+            final long start = System.nanoTime();
+            try {
+                total += sum(pstmt.executeBatch());
+            } catch (SQLException e) {
+                this.tuner.record(sql, size, size == requested, System.nanoTime() - start, false);
+                throw e;
+            }
+            this.tuner.record(sql, size, size == requested, System.nanoTime() - start, true);
+            index += size;
+        }
+        return total;
+    }
+
+    /**
+     * Records a write by the designated statement.
+     *
+     * @param sql the statement
+     * @param rowCount the row count reported by the driver
+     * @param key the generated key, otherwise 0
+     */
+    private void written(String sql, int rowCount, Long key) {
+        written(SqlText.keyword(sql), SqlText.table(sql), rowCount, key);
+    }
+
+    /**
+     * Records a write to the designated table, so that it is evicted from the identity map,
+     * invalidated in the shared cache and reported to the commit listeners on commit.
+     *
+     * @param keyword the leading keyword of the statement
+     * @param table the upper-case table, or {@code null} if it is not known
+     * @param rowCount the row count reported by the driver
+     * @param key the generated key, otherwise 0
+     */
+    private void written(String keyword, String table, int rowCount, Long key) {
+        this.identityMap.persisted(keyword, table);
+        if (table == null) {
+            this.writesAll = true;
+        } else {
+            this.writtenTables.add(table);
+        }
+        if (this.dispatcher.hasListeners()) {
+            this.writes.add(new CommitRecord.WriteRecord(keyword, table, rowCount, key));
+        }
+        this.persistCalled = true;
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+
     /**
      * Returns a generated id.
      *
@@ -189,13 +928,103 @@ public final class TransactionManagerImpl implements TransactionManager {
         return Long.valueOf(0);
     }
 
-    private void rollback() {
+    private void rollbackAndRelease() {
+        final TransactionEvent event = new TransactionEvent();
+        final long start = System.nanoTime();
+        event.begin();
+        String outcome = Outcome.FAILURE;
         try {
             this.conn.rollback();
+            outcome = Outcome.SUCCESS;
+            this.conn.setAutoCommit(true);
+            this.state.restore(this.conn);
+        } catch (SQLException e) {
+            if (Outcome.SUCCESS.equals(outcome)) {
+                LOG.error("Restoring connection state failed: ", e);
+            } else {
+                outcome = Outcome.of(e);
+                LOG.error("Rollback failed: ", e);
+            }
+        } finally {
+            closeQuietly();
+            release();
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = OP_ROLLBACK;
+                event.executeTime = System.nanoTime() - start;
+                event.outcome = outcome;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Restores the state of a committed transaction's connection and releases it. The
+     * transaction has already been committed, so a failure is only logged.
+     */
+    private void restoreAndRelease() {
+        try {
+            this.conn.setAutoCommit(true);
+            this.state.restore(this.conn);
+        } catch (SQLException e) {
+            LOG.error("Restoring connection state failed: ", e);
+        } finally {
+            closeQuietly();
+            release();
+        }
+    }
+
+    private void invalidateSharedCache() {
+        if (this.writesAll) {
+            this.cache.clear();
+        } else if (!this.writtenTables.isEmpty()) {
+            this.cache.invalidate(this.writtenTables);
+        }
+    }
+
+    private void publishCommit() {
+        if (!this.writes.isEmpty() && this.dispatcher.hasListeners()) {
+            this.dispatcher.publish(
+                new CommitRecord(new ArrayList<>(this.writes), System.currentTimeMillis()));
+        }
+    }
+
+    private void release() {
+        if (this.bound != null) {
+            AffinityDataSource.unbind(this.ds, this.bound, this.previousBound);
+            this.bound = null;
+            this.previousBound = null;
+        }
+        this.state = ConnectionState.UNCHANGED;
+        this.writes.clear();
+        this.identityMap.clear();
+        this.writtenTables.clear();
+        this.writesAll = false;
+        this.conn = null;
+        this.txActive = false;
+        this.origin = null;
+        this.registry.unregister(this);
+    }
+
+    private void closeQuietly() {
+        if (this.conn == null) {
+            return;
+        }
+        try {
             this.conn.close();
-            this.conn = null;
         } catch (SQLException e) {
-            LOG.error("Rollback failed: ", e);
+            LOG.error("Close failed: ", e);
+        } finally {
+            this.conn = null;
         }
     }
+
+    /**
+     * Binds the values of a single row to a {@code PreparedStatement}.
+     */
+    @FunctionalInterface
+    private interface RowBinder {
+
+        void bind(PreparedStatement pstmt, int index) throws SQLException;
+    }
 }
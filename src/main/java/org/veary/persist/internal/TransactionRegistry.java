@@ -0,0 +1,233 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veary.persist.OpenTransaction;
+
+/**
+ * <b>Purpose:</b> tracks the open transactions of the {@code TransactionManager}s created by a
+ * single factory.
+ *
+ * <p><b>Responsibility:</b> while either threshold is set, a daemon reaper thread sweeps the
+ * open transactions. A transaction older than the leak detection threshold is logged once,
+ * together with the stack trace of its {@code begin()}; a transaction older than the maximum
+ * duration is rolled back and its connection is closed or, if a statement of the transaction
+ * is still running, its connection is aborted.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class TransactionRegistry {
+
+    private static final Logger LOG = LogManager.getLogger(TransactionRegistry.class);
+    private static final long MIN_SWEEP_MILLIS = 10;
+    private static final long MAX_SWEEP_MILLIS = 1000;
+
+    private final Set<TransactionManagerImpl> open = ConcurrentHashMap.newKeySet();
+
+    private volatile long leakDetectionThreshold;
+    private volatile long maxDuration;
+    private ScheduledExecutorService reaper;
+    private ScheduledFuture<?> sweep;
+
+    /**
+     * Sets the age, in milliseconds, after which an open transaction is reported as a
+     * possible connection leak. While set, the stack trace of each {@code begin()} is
+     * recorded.
+     *
+     * @param millis 0 to disable
+     */
+    public void setLeakDetectionThreshold(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("TransactionRegistry.error_msg_negative")); //$NON-NLS-1$
+        }
+        this.leakDetectionThreshold = millis;
+        schedule();
+    }
+
+    /**
+     * Sets the age, in milliseconds, after which an open transaction is rolled back and its
+     * connection is closed.
+     *
+     * @param millis 0 to disable
+     */
+    public void setMaxTransactionDuration(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("TransactionRegistry.error_msg_negative")); //$NON-NLS-1$
+        }
+        this.maxDuration = millis;
+        schedule();
+    }
+
+    /**
+     * Returns a snapshot of the open transactions, oldest first.
+     *
+     * @return {@code List<OpenTransaction>}. Cannot be {@code null}.
+     */
+    public List<OpenTransaction> getOpenTransactions() {
+        final long now = System.nanoTime();
+        final List<OpenTransaction> list = new ArrayList<>(this.open.size());
+        for (TransactionManagerImpl manager : this.open) {
+            final Throwable origin = manager.getOrigin();
+            list.add(new Snapshot(TimeUnit.NANOSECONDS.toMillis(now - manager.getBeginNanos()),
+                manager.getThreadName(),
+                origin == null ? new StackTraceElement[0] : origin.getStackTrace()));
+        }
+        list.sort(Comparator.comparingLong(OpenTransaction::getAgeMillis).reversed());
+        return list;
+    }
+
+    /**
+     * Disables both thresholds and stops the reaper thread. Setting a threshold afterwards
+     * starts a new one.
+     */
+    public synchronized void close() {
+        this.leakDetectionThreshold = 0;
+        this.maxDuration = 0;
+        if (this.sweep != null) {
+            this.sweep.cancel(false);
+            this.sweep = null;
+        }
+        if (this.reaper != null) {
+            this.reaper.shutdownNow();
+            this.reaper = null;
+        }
+    }
+
+    /**
+     * Tests if the stack trace of each {@code begin()} should be recorded.
+     *
+     * @return boolean
+     */
+    boolean isLeakDetectionEnabled() {
+        return this.leakDetectionThreshold > 0;
+    }
+
+    void register(TransactionManagerImpl manager) {
+        this.open.add(manager);
+    }
+
+    void unregister(TransactionManagerImpl manager) {
+        this.open.remove(manager);
+    }
+
+    /**
+     * Reports and reclaims the transactions which have exceeded the thresholds.
+     */
+    void sweep() {
+        final long now = System.nanoTime();
+        final long leak = this.leakDetectionThreshold;
+        final long max = this.maxDuration;
+        for (TransactionManagerImpl manager : this.open) {
+            final long age = TimeUnit.NANOSECONDS.toMillis(now - manager.getBeginNanos());
+            if (max > 0 && age >= max) {
+                if (manager.reclaim()) {
+                    LOG.warn(String.format(
+                        Messages.getString("TransactionRegistry.warn_msg_reclaimed"), //$NON-NLS-1$
+                        manager.getThreadName(), Long.valueOf(age)), manager.getOrigin());
+                }
+            } else if (leak > 0 && age >= leak && manager.markLeakReported()) {
+                LOG.warn(String.format(
+                    Messages.getString("TransactionRegistry.warn_msg_leak"), //$NON-NLS-1$
+                    manager.getThreadName(), Long.valueOf(age)), manager.getOrigin());
+            }
+        }
+    }
+
+    private synchronized void schedule() {
+        if (this.sweep != null) {
+            this.sweep.cancel(false);
+            this.sweep = null;
+        }
+
+        final long leak = this.leakDetectionThreshold;
+        final long max = this.maxDuration;
+        if (leak == 0 && max == 0) {
+            return;
+        }
+
+        final long shortest = leak == 0 ? max : max == 0 ? leak : Math.min(leak, max);
+        final long period = Math.max(MIN_SWEEP_MILLIS, Math.min(MAX_SWEEP_MILLIS, shortest / 4));
+        if (this.reaper == null) {
+            this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "persist-tx-reaper"); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.sweep = this.reaper.scheduleWithFixedDelay(this::sweepSafely, period, period,
+            TimeUnit.MILLISECONDS);
+    }
+
+    private void sweepSafely() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            LOG.error("Transaction sweep failed: ", e);
+        }
+    }
+
+    private static final class Snapshot implements OpenTransaction {
+
+        private final long ageMillis;
+        private final String threadName;
+        private final StackTraceElement[] stackTrace;
+
+        Snapshot(long ageMillis, String threadName, StackTraceElement[] stackTrace) {
+            this.ageMillis = ageMillis;
+            this.threadName = threadName;
+            this.stackTrace = stackTrace;
+        }
+
+        @Override
+        public long getAgeMillis() {
+            return this.ageMillis;
+        }
+
+        @Override
+        public String getThreadName() {
+            return this.threadName;
+        }
+
+        @Override
+        public StackTraceElement[] getStackTrace() {
+            return this.stackTrace.clone();
+        }
+    }
+}
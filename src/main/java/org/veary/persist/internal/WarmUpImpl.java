@@ -0,0 +1,252 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.internal;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.WarmUp;
+import org.veary.persist.exceptions.PersistenceException;
+
+/**
+ * Concrete implementation of {@link WarmUp}.
+ *
+ * @author Marc L. Veary
+ * @since 1.0
+ */
+public final class WarmUpImpl implements WarmUp {
+
+    private static final Logger LOG = LogManager.getLogger(WarmUpImpl.class);
+    private static final String SELECT_STR = "SELECT"; //$NON-NLS-1$
+
+    private final DataSource pool;
+    private final DataSource ds;
+    private final Runnable onComplete;
+    private final Map<SqlStatement, Class<?>> statements = new LinkedHashMap<>();
+    private final Set<Class<?>> entities = new LinkedHashSet<>();
+    private int connections = 1;
+    private int executions;
+
+    /**
+     * Constructor.
+     *
+     * @param ds {@link DataSource}
+     * @param onComplete invoked once the warm-up has completed
+     */
+    public WarmUpImpl(DataSource ds, Runnable onComplete) {
+        this(ds, ds, onComplete);
+    }
+
+    /**
+     * Constructor. The pool is filled directly from the designated {@code DataSource}, so
+     * that the warm-up is not refused by the concurrency limit or the bulkheads; one probe
+     * connection, and the synthetic executions, go through the same decorated
+     * {@code DataSource} as the queries of the designated manager.
+     *
+     * @param pool the underlying {@link DataSource}
+     * @param queries the {@link QueryManagerImpl} whose connection path is to be warmed
+     * @param onComplete invoked once the warm-up has completed
+     */
+    public WarmUpImpl(DataSource pool, QueryManagerImpl queries, Runnable onComplete) {
+        this(pool, queries.getDataSource(), onComplete);
+    }
+
+    private WarmUpImpl(DataSource pool, DataSource ds, Runnable onComplete) {
+        this.pool = Objects.requireNonNull(pool,
+            Messages.getString("WarmUpImpl.error_msg_ds_null")); //$NON-NLS-1$
+        this.ds = Objects.requireNonNull(ds,
+            Messages.getString("WarmUpImpl.error_msg_ds_null")); //$NON-NLS-1$
+        this.onComplete = Objects.requireNonNull(onComplete);
+    }
+
+    @Override
+    public WarmUp setConnections(int connections) {
+        if (connections < 1) {
+            throw new IllegalArgumentException(
+                Messages.getString("WarmUpImpl.error_msg_invalid_connections")); //$NON-NLS-1$
+        }
+        this.connections = connections;
+        return this;
+    }
+
+    @Override
+    public WarmUp setSyntheticExecutions(int executions) {
+        if (executions < 0) {
+            throw new IllegalArgumentException(
+                Messages.getString("WarmUpImpl.error_msg_invalid_executions")); //$NON-NLS-1$
+        }
+        this.executions = executions;
+        return this;
+    }
+
+    @Override
+    public WarmUp addStatement(SqlStatement statement) {
+        this.statements.put(Objects.requireNonNull(statement,
+            Messages.getString("WarmUpImpl.error_msg_statement_null")), null); //$NON-NLS-1$
+        return this;
+    }
+
+    @Override
+    public WarmUp addStatement(SqlStatement statement, Class<?> entityInterface) {
+        addEntity(entityInterface);
+        this.statements.put(Objects.requireNonNull(statement,
+            Messages.getString("WarmUpImpl.error_msg_statement_null")), //$NON-NLS-1$
+            entityInterface);
+        return this;
+    }
+
+    @Override
+    public WarmUp addEntity(Class<?> entityInterface) {
+        this.entities.add(Objects.requireNonNull(entityInterface,
+            Messages.getString("WarmUpImpl.error_msg_iface_null"))); //$NON-NLS-1$
+        return this;
+    }
+
+    @Override
+    public Report run() {
+        final Map<Stage, Long> timings = new EnumMap<>(Stage.class);
+        final long start = System.nanoTime();
+
+        final List<Connection> opened = new ArrayList<>(this.connections);
+        try {
+            long stageStart = System.nanoTime();
+            for (int i = 0; i < this.connections; i++) {
+                opened.add(this.pool.getConnection());
+            }
+            timings.put(Stage.CONNECTIONS, elapsedMillis(stageStart));
+
+            stageStart = System.nanoTime();
+            for (final Connection conn : opened) {
+                describe(conn);
+            }
+            close(opened);
+            opened.clear();
+            try (Connection probe = this.ds.getConnection()) {
+                describe(probe);
+            }
+            timings.put(Stage.STATEMENTS, elapsedMillis(stageStart));
+        } catch (SQLException e) {
+            if (e.getCause() == null) {
+                throw new PersistenceException(e);
+            }
+            throw new PersistenceException(e.getCause());
+        } finally {
+            close(opened);
+        }
+
+        long stageStart = System.nanoTime();
+        for (final Class<?> entityInterface : this.entities) {
+            EntityFactory.forInterface(entityInterface);
+        }
+        timings.put(Stage.ENTITIES, elapsedMillis(stageStart));
+
+        stageStart = System.nanoTime();
+        for (int i = 0; i < this.executions; i++) {
+            for (final Map.Entry<SqlStatement, Class<?>> entry : this.statements.entrySet()) {
+                execute(entry.getKey(), entry.getValue());
+            }
+        }
+        timings.put(Stage.EXECUTIONS, elapsedMillis(stageStart));
+
+        final long total = elapsedMillis(start);
+        LOG.info("Warm-up completed in {}ms: {}", Long.valueOf(total), timings); //$NON-NLS-1$
+        this.onComplete.run();
+
+        return new Report() {
+
+            @Override
+            public long getMillis(Stage stage) {
+                return timings.getOrDefault(stage, Long.valueOf(0)).longValue();
+            }
+
+            @Override
+            public long getTotalMillis() {
+                return total;
+            }
+        };
+    }
+
+    /**
+     * Prepares and describes each registered statement on the designated connection.
+     * Describing a statement makes the database parse it, and a pool with statement pooling
+     * keeps it once it is closed.
+     */
+    private void describe(Connection conn) throws SQLException {
+        for (final SqlStatement statement : this.statements.keySet()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(statement.toString())) {
+                final ResultSetMetaData md = pstmt.getMetaData();
+                LOG.trace("Prepared: {} ({} columns)", statement, //$NON-NLS-1$
+                    Integer.valueOf(md == null ? 0 : md.getColumnCount()));
+            }
+        }
+    }
+
+    /**
+     * Executes a registered statement once and maps all of its results. Statements other than
+     * SELECTs are never executed.
+     */
+    private void execute(SqlStatement statement, Class<?> entityInterface) {
+        if (!statement.toString().toUpperCase().startsWith(SELECT_STR)) {
+            return;
+        }
+
+        final List<Map<String, Object>> rows = new QueryImpl(this.ds, statement).readRows();
+        if (entityInterface != null) {
+            final EntityFactory factory = EntityFactory.forInterface(entityInterface);
+            for (final Map<String, Object> row : rows) {
+                factory.newInstance(row);
+            }
+        }
+    }
+
+    private static void close(List<Connection> connections) {
+        for (final Connection conn : connections) {
+            try {
+                conn.close();
+            } catch (SQLException e) {
+                LOG.warn("Failed to close warm-up connection: ", e); //$NON-NLS-1$
+            }
+        }
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
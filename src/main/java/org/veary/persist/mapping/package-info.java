@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+/**
+ * Annotations which map entity interfaces to tables, so that their instances can be written
+ * by {@link org.veary.persist.TransactionManager#insert(Object)} and
+ * {@link org.veary.persist.TransactionManager#update(Object)}.
+ *
+ * <p>Each public, non-static, no-argument getter ({@code getXxx()} or {@code isXxx()}) of
+ * an interface annotated with {@link org.veary.persist.mapping.Table} is a column. Its name is
+ * the property name in upper snake case ({@code getAccountId()} is {@code ACCOUNT_ID}),
+ * unless the getter is annotated with {@link org.veary.persist.mapping.Column}. The getter
+ * annotated with {@link org.veary.persist.mapping.Id} returns the key.
+ *
+ * <pre>
+ * &#64;Table("debs.account")
+ * public interface Account {
+ *
+ *     &#64;Id(generated = true)
+ *     Long getId();
+ *
+ *     &#64;Column("NAME")
+ *     String getAccountName();
+ *
+ *     static Account newInstance(Map&lt;String, Object&gt; dataMap) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ */
+package org.veary.persist.mapping;
@@ -43,6 +43,9 @@
  *
  * <li>{@code CallableManager} which handles SQL stored procedures.</li>
  *
+ * <li>{@code BulkLoader} which loads CSV files into a table using parallel, batched
+ * inserts.</li>
+ *
  * </ul>
  *
  * <p>The above managers are accessed through the {@code PersistenceManagerFactory} which is
@@ -68,6 +71,19 @@
  * with the signature: {@code static [interface_name] newInstance(Map<String, Object)} which
  * creates an instance of the class.
  *
+ * <p>The values in the {@code Map} are read with the JDBC getter suited to each column's SQL
+ * type, so they have the same Java type whichever driver is in use: {@code BIGINT} is a
+ * {@code Long}; {@code INTEGER}, {@code SMALLINT} and {@code TINYINT} an {@code Integer};
+ * {@code DOUBLE} and {@code FLOAT} a {@code Double}; {@code REAL} a {@code Float};
+ * {@code BOOLEAN} a {@code Boolean}; {@code DECIMAL} a {@code BigDecimal}; the character
+ * types a {@code String}; and {@code TIMESTAMP}, {@code DATE}, {@code TIME} and
+ * {@code TIMESTAMP WITH TIME ZONE} a {@code LocalDateTime}, {@code LocalDate},
+ * {@code LocalTime} and {@code OffsetDateTime}. Other types are as returned by
+ * {@code getObject}. SQL {@code NULL} is always {@code null}.
+ *
+ * <p>Entities returned by the {@code find} methods of the managers may be held in the
+ * factory's {@code EntityCache} and shared between threads, so they should be immutable.
+ *
  * <p>For example:
  *
  * <pre>
@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.BatchTuning;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.PersistenceException;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class BatchTuningTest {
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+
+        try (TransactionManager txManager = new PersistenceManagerFactory(this.ds)
+            .createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.tuned(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.halved(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void persistAllConvergesWithinRange() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBatchSizeRange(10, 100);
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            Assert.assertEquals(txManager.persistAll(SqlStatement.newInstance(
+                "INSERT INTO debs.tuned(id, amount) VALUES(?, ?)"), rows(1, 1000)), 1000);
+            txManager.commit();
+        }
+
+        final List<BatchTuning> tunings = factory.getBatchTunings();
+        Assert.assertEquals(tunings.size(), 1);
+        final BatchTuning tuning = tunings.get(0);
+        Assert.assertEquals(tuning.getStatement(),
+            "INSERT INTO debs.tuned(id, amount) VALUES(?, ?)");
+        Assert.assertTrue(tuning.getBatches() >= 10);
+        Assert.assertTrue(tuning.getBatchSize() >= 10 && tuning.getBatchSize() <= 100);
+        Assert.assertTrue(tuning.getNanosPerRow() > 0);
+        Assert.assertEquals(tuning.getFailures(), 0L);
+    }
+
+    @Test
+    public void failedBatchHalvesSize() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBatchSizeRange(10, 100);
+        final SqlStatement insert = SqlStatement
+            .newInstance("INSERT INTO debs.halved(id, amount) VALUES(?, ?)");
+        final List<Object[]> rows = rows(1, 99);
+        rows.add(rows.get(0));
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            Assert.assertThrows(PersistenceException.class,
+                () -> txManager.persistAll(insert, rows));
+            Assert.assertFalse(txManager.isActive());
+        }
+
+        final BatchTuning tuning = factory.getBatchTunings().get(0);
+        Assert.assertEquals(tuning.getFailures(), 1L);
+        Assert.assertEquals(tuning.getBatchSize(), 50);
+    }
+
+    @Test
+    public void invalidRangeException() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBatchSizeRange(0, 100));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBatchSizeRange(100, 10));
+        factory.setBatchSizeRange(0, 0);
+        Assert.assertTrue(factory.getBatchTunings().isEmpty());
+    }
+
+    private static List<Object[]> rows(int first, int last) {
+        final List<Object[]> rows = new ArrayList<>();
+        for (int id = first; id <= last; id++) {
+            rows.add(new Object[] { Long.valueOf(id), Long.valueOf(id * 10L) });
+        }
+        return rows;
+    }
+}
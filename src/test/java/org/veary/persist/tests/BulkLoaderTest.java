@@ -0,0 +1,187 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.BulkLoadResult;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.PersistenceException;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class BulkLoaderTest {
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+    private PersistenceManagerFactory factory;
+    private Path csv;
+
+    @BeforeClass
+    public void setUp() throws NamingException, IOException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+        this.factory = new PersistenceManagerFactory(this.ds);
+
+        final List<String> lines = new ArrayList<>();
+        lines.add("ID,NAME");
+        for (int i = 1; i <= 1000; i++) {
+            lines.add(i + ",\"ACCOUNT " + i + "\"");
+        }
+        lines.add("1001,\"unterminated");
+        lines.add("1002");
+        lines.add("500,DUPLICATE");
+        lines.add("1003,\"QUOTED \"\"NAME\"\"\"");
+        this.csv = Files.createTempFile("bulk", ".csv");
+        Files.write(this.csv, lines, StandardCharsets.UTF_8);
+    }
+
+    @AfterClass
+    public void teardown() throws IOException {
+        Files.deleteIfExists(this.csv);
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void load() {
+        final TransactionManager txManager = this.factory.createTransactionManager();
+        txManager.begin();
+        txManager.persist(SqlStatement.newInstance(
+            "CREATE TABLE IF NOT EXISTS debs.bulk(id INT PRIMARY KEY, name VARCHAR(255))"));
+        txManager.commit();
+
+        final BulkLoadResult result = this.factory.createBulkLoader()
+            .setPartitions(3)
+            .setBatchSize(50)
+            .setCommitInterval(200)
+            .setSkipHeader(true)
+            .load(this.csv, SqlStatement.newInstance("INSERT INTO debs.bulk(id, name) VALUES(?, ?)"));
+
+        Assert.assertEquals(result.getRowsLoaded(), 1001);
+        Assert.assertEquals(result.getRejectedRows().size(), 3);
+        Assert.assertEquals(result.getRejectedRows().get(0).getLineNumber(), 1002);
+        Assert.assertEquals(result.getRejectedRows().get(1).getLineNumber(), 1003);
+        Assert.assertEquals(result.getRejectedRows().get(2).getLine(), "500,DUPLICATE");
+    }
+
+    @Test
+    public void failedPartitionIsRolledBack() {
+        final TransactionManager txManager = this.factory.createTransactionManager();
+        txManager.begin();
+        txManager.persist(SqlStatement.newInstance(
+            "CREATE TABLE IF NOT EXISTS debs.bulk_failed(id INT PRIMARY KEY, name VARCHAR(255))"));
+        txManager.commit();
+
+        final AtomicInteger batches = new AtomicInteger();
+        final PersistenceManagerFactory failing = new PersistenceManagerFactory(
+            (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                    final Object result = invoke(this.ds, method, args);
+                    return result instanceof Connection
+                        ? failingConnection((Connection) result, batches)
+                        : result;
+                }));
+
+        Assert.assertThrows(PersistenceException.class, () -> failing.createBulkLoader()
+            .setPartitions(1)
+            .setBatchSize(50)
+            .setCommitInterval(10_000)
+            .setSkipHeader(true)
+            .load(this.csv,
+                SqlStatement.newInstance("INSERT INTO debs.bulk_failed(id, name) VALUES(?, ?)")));
+
+        Assert.assertEquals(this.factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT COUNT(*) FROM debs.bulk_failed"))
+            .getSingleLong(), 0L);
+    }
+
+    private static Connection failingConnection(Connection conn, AtomicInteger batches) {
+        return (Connection) Proxy.newProxyInstance(BulkLoaderTest.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                final Object result = invoke(conn, method, args);
+                if (!(result instanceof PreparedStatement)) {
+                    return result;
+                }
+                final PreparedStatement pstmt = (PreparedStatement) result;
+                return Proxy.newProxyInstance(BulkLoaderTest.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (p, m, a) -> {
+                        if ("executeBatch".equals(m.getName())
+                            && batches.incrementAndGet() == 3) {
+                            throw new IllegalStateException("Batch failed.");
+                        }
+                        return invoke(pstmt, m, a);
+                    });
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+        throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test(
+        expectedExceptions = IllegalStateException.class,
+        expectedExceptionsMessageRegExp = "Incorrect query type.")
+    public void typeException() {
+        this.factory.createBulkLoader().load(this.csv,
+            SqlStatement.newInstance("SELECT * FROM debs.bulk"));
+    }
+
+    @Test(
+        expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "Value must be greater than 0.")
+    public void invalidBatchSizeException() {
+        this.factory.createBulkLoader().setBatchSize(0);
+    }
+}
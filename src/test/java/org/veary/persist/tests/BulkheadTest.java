@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.BulkLoader;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.WorkloadClass;
+import org.veary.persist.exceptions.SaturatedException;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class BulkheadTest {
+
+    private static final SqlStatement SELECT = SqlStatement.newInstance("SELECT 1");
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void reservedConnectionsAreKeptForTheirClass() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBulkheadCapacity(2, 0);
+        factory.setBulkhead(WorkloadClass.INTERACTIVE, 1, 2);
+
+        try (TransactionManager batch = factory.createTransactionManager()
+            .setWorkloadClass(WorkloadClass.BATCH)) {
+            batch.begin();
+            Assert.assertEquals(factory.getConnectionsInUse(WorkloadClass.BATCH), 1);
+
+            final CompletionException e = Assert.expectThrows(CompletionException.class,
+                () -> CompletableFuture.supplyAsync(() -> factory.createQueryManager()
+                    .setWorkloadClass(WorkloadClass.BATCH).createQuery(SELECT).getSingleLong())
+                    .join());
+            Assert.assertTrue(e.getCause() instanceof SaturatedException);
+
+            Assert.assertEquals(CompletableFuture.supplyAsync(() -> factory.createQueryManager()
+                .setWorkloadClass(WorkloadClass.INTERACTIVE).createQuery(SELECT)
+                .getSingleLong()).join(), Long.valueOf(1));
+
+            Assert.assertThrows(IllegalStateException.class,
+                () -> batch.setWorkloadClass(WorkloadClass.INTERACTIVE));
+            batch.rollback();
+        }
+        Assert.assertEquals(factory.getConnectionsInUse(WorkloadClass.BATCH), 0);
+    }
+
+    @Test
+    public void ceilingsLimitTheirClass() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBulkheadCapacity(3, 0);
+        factory.setBulkhead(WorkloadClass.BATCH, 0, 1);
+
+        try (TransactionManager batch = factory.createTransactionManager()
+            .setWorkloadClass(WorkloadClass.BATCH)) {
+            batch.begin();
+            final CompletionException e = Assert.expectThrows(CompletionException.class,
+                () -> CompletableFuture.runAsync(() -> {
+                    try (TransactionManager other = factory.createTransactionManager()
+                        .setWorkloadClass(WorkloadClass.BATCH)) {
+                        other.begin();
+                    }
+                }).join());
+            Assert.assertTrue(e.getCause() instanceof SaturatedException);
+
+            Assert.assertEquals(CompletableFuture.supplyAsync(() -> factory.createQueryManager()
+                .createQuery(SELECT).getSingleLong()).join(), Long.valueOf(1));
+            batch.rollback();
+        }
+    }
+
+    @Test
+    public void bulkLoaderUsesBatchClass() throws IOException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBulkheadCapacity(3, 0);
+        factory.setBulkhead(WorkloadClass.BATCH, 0, 1);
+        final Path csv = Files.createTempFile("bulkhead", ".csv");
+        Files.write(csv, List.of("1", "2", "3"));
+        final SqlStatement insert = SqlStatement
+            .newInstance("MERGE INTO debs.bulkhead(id) VALUES(?)");
+
+        try (TransactionManager batch = factory.createTransactionManager()
+            .setWorkloadClass(WorkloadClass.BATCH)) {
+            batch.begin();
+            batch.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.bulkhead(id INT PRIMARY KEY)"));
+            batch.commit();
+
+            batch.begin();
+            final BulkLoader loader = factory.createBulkLoader().setPartitions(1);
+            Assert.assertThrows(SaturatedException.class, () -> loader.load(csv, insert));
+            Assert.assertEquals(loader.setWorkloadClass(WorkloadClass.STANDARD)
+                .load(csv, insert).getRowsLoaded(), 3);
+            batch.rollback();
+        } finally {
+            Files.delete(csv);
+        }
+    }
+
+    @Test
+    public void higherPriorityWaitersAreServedFirst() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBulkheadCapacity(1, 10_000);
+        final List<WorkloadClass> served = new CopyOnWriteArrayList<>();
+        final CountDownLatch begun = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        final CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (TransactionManager txManager = factory.createTransactionManager()) {
+                txManager.begin();
+                begun.countDown();
+                release.await();
+                txManager.rollback();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor);
+        Assert.assertTrue(begun.await(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<Void> batch =
+            waiter(factory, WorkloadClass.BATCH, served, executor);
+        TimeUnit.MILLISECONDS.sleep(100);
+        final CompletableFuture<Void> interactive =
+            waiter(factory, WorkloadClass.INTERACTIVE, served, executor);
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        release.countDown();
+        CompletableFuture.allOf(holder, batch, interactive).join();
+        executor.shutdown();
+        Assert.assertEquals(served, List.of(WorkloadClass.INTERACTIVE, WorkloadClass.BATCH));
+    }
+
+    @Test
+    public void invalidSharesAreRejected() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setBulkheadCapacity(4, 0);
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBulkhead(WorkloadClass.BATCH, 5, 5));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBulkhead(WorkloadClass.BATCH, 2, 1));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBulkhead(WorkloadClass.BATCH, 0, 0));
+        Assert.assertThrows(NullPointerException.class,
+            () -> factory.setBulkhead(null, 0, 1));
+        factory.setBulkhead(WorkloadClass.INTERACTIVE, 3, 4);
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBulkheadCapacity(2, 0));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setBulkheadCapacity(4, -1));
+    }
+
+    private static CompletableFuture<Void> waiter(PersistenceManagerFactory factory,
+        WorkloadClass workloadClass, List<WorkloadClass> served, ExecutorService executor) {
+        return CompletableFuture.runAsync(() -> {
+            try (TransactionManager txManager = factory.createTransactionManager()
+                .setWorkloadClass(workloadClass)) {
+                txManager.begin();
+                served.add(workloadClass);
+                TimeUnit.MILLISECONDS.sleep(20);
+                txManager.rollback();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class ColumnTypesTest {
+
+    private TomcatJNDI tomcatJndi;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.factory = new PersistenceManagerFactory(
+            (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared"));
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void valuesAreNormalisedBySqlType() {
+        final Map<String, Object> row = read("SELECT CAST(7 AS BIGINT) AS big, "
+            + "CAST(3 AS SMALLINT) AS small, CAST(1.5 AS REAL) AS real, CAST(2.5 AS DOUBLE) AS dbl, "
+            + "CAST(1.25 AS DECIMAL(5, 2)) AS dec, TRUE AS bool, 'text' AS str, "
+            + "TIMESTAMP '2020-01-02 03:04:05' AS ts, DATE '2020-01-02' AS dt, "
+            + "TIME '03:04:05' AS tm");
+
+        Assert.assertEquals(row.get("BIG"), Long.valueOf(7));
+        Assert.assertEquals(row.get("SMALL"), Integer.valueOf(3));
+        Assert.assertEquals(row.get("REAL"), Float.valueOf(1.5f));
+        Assert.assertEquals(row.get("DBL"), Double.valueOf(2.5));
+        Assert.assertEquals(row.get("DEC"), new BigDecimal("1.25"));
+        Assert.assertEquals(row.get("BOOL"), Boolean.TRUE);
+        Assert.assertEquals(row.get("STR"), "text");
+        Assert.assertEquals(row.get("TS"), LocalDateTime.of(2020, 1, 2, 3, 4, 5));
+        Assert.assertEquals(row.get("DT"), LocalDate.of(2020, 1, 2));
+        Assert.assertEquals(row.get("TM"), LocalTime.of(3, 4, 5));
+    }
+
+    @Test
+    public void nullsAndZerosAreDistinguished() {
+        final Map<String, Object> row = read("SELECT CAST(NULL AS BIGINT) AS n, "
+            + "CAST(0 AS BIGINT) AS z, CAST(NULL AS BOOLEAN) AS nb, FALSE AS f, "
+            + "CAST(NULL AS TIMESTAMP) AS nts");
+
+        Assert.assertNull(row.get("N"));
+        Assert.assertEquals(row.get("Z"), Long.valueOf(0));
+        Assert.assertNull(row.get("NB"));
+        Assert.assertEquals(row.get("F"), Boolean.FALSE);
+        Assert.assertTrue(row.containsKey("NTS"));
+        Assert.assertNull(row.get("NTS"));
+    }
+
+    private Map<String, Object> read(String sql) {
+        return ((Values) this.factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance(sql), Values.class).executeSingleResult())
+            .values();
+    }
+
+    public interface Values {
+
+        Map<String, Object> values();
+
+        static Values newInstance(Map<String, Object> dataMap) {
+            return () -> dataMap;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import java.io.File;
+import java.math.BigDecimal;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.columnar.ColumnarResult;
+import org.veary.persist.columnar.DoubleColumn;
+import org.veary.persist.columnar.IntColumn;
+import org.veary.persist.columnar.LongColumn;
+import org.veary.persist.columnar.StringColumn;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class ColumnarResultTest {
+
+    private TomcatJNDI tomcatJndi;
+    private Injector injector;
+
+    @BeforeClass
+    public void setUp() {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.injector = Guice.createInjector(new GuicePersistTestModule());
+
+        final TransactionManager txManager = this.injector
+            .getInstance(PersistenceManagerFactory.class).createTransactionManager();
+        txManager.begin();
+        txManager.persist(SqlStatement.newInstance("CREATE TABLE IF NOT EXISTS debs.metric("
+            + "id BIGINT PRIMARY KEY, hits INT, ratio DOUBLE, region VARCHAR(16))"));
+        final String[] regions = { "EU", "US", null, "EU" };
+        for (int i = 0; i < 1000; i++) {
+            final SqlStatement insert = SqlStatement
+                .newInstance("INSERT INTO debs.metric(id, hits, ratio, region) VALUES(?, ?, ?, ?)")
+                .setParameter(1, Long.valueOf(i))
+                .setParameter(2, Integer.valueOf(i % 10))
+                .setParameter(3, Double.valueOf(i / 2.0));
+            if (regions[i % 4] != null) {
+                insert.setParameter(4, regions[i % 4]);
+            } else {
+                insert.setParameter(4, "");
+            }
+            txManager.persist(insert);
+        }
+        txManager.persist(SqlStatement
+            .newInstance("UPDATE debs.metric SET region = NULL, hits = NULL WHERE region = ''"));
+        txManager.commit();
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void columnTypesAndOperations() {
+        final ColumnarResult result = this.injector.getInstance(PersistenceManagerFactory.class)
+            .createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT * FROM debs.metric ORDER BY id"))
+            .executeColumnar();
+
+        Assert.assertEquals(result.getRowCount(), 1000);
+        Assert.assertEquals(result.getColumnCount(), 4);
+        Assert.assertEquals(result.getColumnIndex("region"), 3);
+
+        final LongColumn id = result.getLongColumn("ID");
+        Assert.assertEquals(id.sum(), 499500L);
+        Assert.assertEquals(id.max().getAsLong(), 999L);
+        Assert.assertEquals(id.filter(value -> value >= 990).length, 10);
+
+        final IntColumn hits = result.getIntColumn("HITS");
+        Assert.assertEquals(hits.getNullCount(), 250);
+        Assert.assertTrue(hits.isNull(2));
+        Assert.assertNull(hits.getObject(2));
+        Assert.assertEquals(hits.min().getAsInt(), 0);
+
+        final DoubleColumn ratio = result.getDoubleColumn("RATIO");
+        Assert.assertEquals(ratio.get(3), 1.5);
+
+        final StringColumn region = result.getStringColumn("REGION");
+        Assert.assertEquals(region.getDictionary().size(), 2);
+        Assert.assertEquals(region.filterEquals("EU").length, 500);
+        Assert.assertEquals(region.filter(value -> value.startsWith("U")).length, 250);
+        Assert.assertEquals(region.getCode(2), -1);
+    }
+
+    @Test
+    public void decimalColumnsKeepTheirPrecision() {
+        final ColumnarResult result = this.injector.getInstance(PersistenceManagerFactory.class)
+            .createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT CAST(12345678901234.57 AS "
+                + "DECIMAL(16, 2)) AS price, CAST(42 AS DECIMAL(10, 0)) AS qty"))
+            .executeColumnar();
+
+        Assert.assertEquals(result.getColumn(0).getObject(0),
+            new BigDecimal("12345678901234.57"));
+        Assert.assertEquals(result.getLongColumn("QTY").get(0), 42L);
+    }
+
+    @Test
+    public void emptyResult() {
+        final ColumnarResult result = this.injector.getInstance(PersistenceManagerFactory.class)
+            .createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT * FROM debs.metric WHERE id < 0"))
+            .executeColumnar();
+
+        Assert.assertEquals(result.getRowCount(), 0);
+        Assert.assertFalse(result.getLongColumn("ID").max().isPresent());
+    }
+
+    @Test(
+        expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "No column labelled 'MISSING'.")
+    public void missingColumnException() {
+        this.injector.getInstance(PersistenceManagerFactory.class)
+            .createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT id FROM debs.metric"))
+            .executeColumnar()
+            .getColumn("MISSING");
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.CommittedTransaction;
+import org.veary.persist.OverflowPolicy;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class CommitListenerTest {
+
+    private static final SqlStatement INSERT = SqlStatement
+        .newInstance("INSERT INTO debs.commit_events(amount) VALUES(10)");
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+
+        try (TransactionManager txManager = new PersistenceManagerFactory(this.ds)
+            .createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.commit_events(id BIGINT AUTO_INCREMENT "
+                    + "PRIMARY KEY, amount BIGINT)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void commitSurvivesCleanupFailure() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(
+            (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                    final Object result = invoke(this.ds, method, args);
+                    if (!(result instanceof Connection)) {
+                        return result;
+                    }
+                    final Connection conn = (Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] { Connection.class }, (p, m, a) -> {
+                            if ("setAutoCommit".equals(m.getName())
+                                && Boolean.TRUE.equals(a[0]) && !conn.getAutoCommit()) {
+                                conn.setAutoCommit(true);
+                                throw new SQLException("Cleanup failed.");
+                            }
+                            return invoke(conn, m, a);
+                        });
+                }));
+        final BlockingQueue<CommittedTransaction> received = new LinkedBlockingQueue<>();
+        factory.addCommitListener(received::add);
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(INSERT);
+            txManager.commit();
+            Assert.assertFalse(txManager.isActive());
+        }
+        Assert.assertNotNull(received.poll(5, TimeUnit.SECONDS));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+        throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void listenersReceiveCommittedWrites() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final BlockingQueue<CommittedTransaction> received = new LinkedBlockingQueue<>();
+        factory.addCommitListener(transaction -> {
+            throw new IllegalStateException("Listener failure is only logged");
+        });
+        factory.addCommitListener(received::add);
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(INSERT);
+            txManager.rollback();
+
+            txManager.begin();
+            final Long id = txManager.persist(INSERT);
+            txManager.persist(SqlStatement.newInstance(
+                "UPDATE debs.commit_events SET amount = 20 WHERE id = ?").setParameter(1, id));
+            txManager.commit();
+
+            final CommittedTransaction transaction = received.poll(5, TimeUnit.SECONDS);
+            Assert.assertNotNull(transaction);
+            Assert.assertTrue(transaction.isComplete());
+            Assert.assertEquals(transaction.getTables().size(), 1);
+            Assert.assertTrue(transaction.getTables().contains("DEBS.COMMIT_EVENTS"));
+            Assert.assertEquals(transaction.getWrites().size(), 2);
+
+            final CommittedTransaction.Write insert = transaction.getWrites().get(0);
+            Assert.assertEquals(insert.getKind(), "INSERT");
+            Assert.assertEquals(insert.getRowCount(), 1);
+            Assert.assertEquals(insert.getGeneratedKey(), id);
+            Assert.assertEquals(transaction.getWrites().get(1).getKind(), "UPDATE");
+        }
+        Assert.assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void fullBufferDropsEvents() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setCommitEventBuffer(1, OverflowPolicy.DROP);
+        final CountDownLatch release = new CountDownLatch(1);
+        factory.addCommitListener(transaction -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertThrows(IllegalStateException.class,
+            () -> factory.setCommitEventBuffer(10, OverflowPolicy.BLOCK));
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            for (int i = 0; i < 3; i++) {
+                txManager.begin();
+                txManager.persist(INSERT);
+                txManager.commit();
+            }
+        }
+        Assert.assertTrue(factory.getDroppedCommitEvents() >= 1);
+        release.countDown();
+    }
+
+    @Test
+    public void closeReleasesBlockedCommit() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setCommitEventBuffer(1, OverflowPolicy.BLOCK);
+        final CountDownLatch release = new CountDownLatch(1);
+        factory.addCommitListener(transaction -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        final CountDownLatch committed = new CountDownLatch(1);
+        final Thread committer = new Thread(() -> {
+            try (TransactionManager txManager = factory.createTransactionManager()) {
+                for (int i = 0; i < 3; i++) {
+                    txManager.begin();
+                    txManager.persist(INSERT);
+                    txManager.commit();
+                }
+            }
+            committed.countDown();
+        });
+        committer.start();
+        Assert.assertFalse(committed.await(500, TimeUnit.MILLISECONDS));
+
+        factory.close();
+        Assert.assertTrue(committed.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    public void listenerCommitDoesNotBlock() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setCommitEventBuffer(1, OverflowPolicy.BLOCK);
+        final AtomicBoolean first = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(1);
+        factory.addCommitListener(transaction -> {
+            if (first.getAndSet(false)) {
+                try (TransactionManager txManager = factory.createTransactionManager()) {
+                    for (int i = 0; i < 3; i++) {
+                        txManager.begin();
+                        txManager.persist(INSERT);
+                        txManager.commit();
+                    }
+                }
+                done.countDown();
+            }
+        });
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(INSERT);
+            txManager.commit();
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(factory.getDroppedCommitEvents() >= 1);
+        factory.close();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.SaturatedException;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class ConcurrencyLimitTest {
+
+    private static final SqlStatement SELECT = SqlStatement.newInstance("SELECT 1");
+    private static final SqlStatement SLOW = SqlStatement
+        .newInstance("SELECT 1 WHERE PAUSE(20) IS NULL");
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+
+        try (TransactionManager txManager = new PersistenceManagerFactory(this.ds)
+            .createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE ALIAS IF NOT EXISTS PAUSE FOR \"java.lang.Thread.sleep\""));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void saturatedOperationsFailFast() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        Assert.assertEquals(factory.getConcurrencyLimit(), 0);
+        factory.setConcurrencyLimit(1, 1, 0);
+        Assert.assertEquals(factory.getConcurrencyLimit(), 1);
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            Assert.assertEquals(
+                factory.createQueryManager().createQuery(SELECT).getSingleLong(), 1L);
+
+            final CompletionException e = Assert.expectThrows(CompletionException.class,
+                () -> CompletableFuture.supplyAsync(
+                    () -> factory.createQueryManager().createQuery(SELECT).getSingleLong())
+                    .join());
+            Assert.assertTrue(e.getCause() instanceof SaturatedException);
+            Assert.assertEquals(factory.getRejectedOperations(), 1);
+            txManager.rollback();
+        }
+        Assert.assertEquals(factory.createQueryManager().createQuery(SELECT).getSingleLong(), 1L);
+    }
+
+    @Test
+    public void operationsWaitForCapacity() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setConcurrencyLimit(1, 1, 10_000);
+        final CountDownLatch begun = new CountDownLatch(1);
+
+        final CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (TransactionManager txManager = factory.createTransactionManager()) {
+                txManager.begin();
+                begun.countDown();
+                TimeUnit.MILLISECONDS.sleep(100);
+                txManager.rollback();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Assert.assertTrue(begun.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(factory.createQueryManager().createQuery(SELECT).getSingleLong(), 1L);
+        holder.join();
+        Assert.assertEquals(factory.getRejectedOperations(), 0);
+    }
+
+    @Test
+    public void limitShrinksWhenLatencyRises() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setConcurrencyLimit(2, 50, 1000);
+        final int initial = factory.getConcurrencyLimit();
+        Assert.assertEquals(initial, 20);
+
+        for (int i = 0; i < 200; i++) {
+            factory.createQueryManager().createQuery(SELECT).getSingleLong();
+        }
+        final int steady = factory.getConcurrencyLimit();
+        Assert.assertTrue(steady <= initial);
+
+        for (int i = 0; i < 10; i++) {
+            try (TransactionManager txManager = factory.createTransactionManager()) {
+                txManager.begin();
+                TimeUnit.MILLISECONDS.sleep(20);
+                txManager.rollback();
+            }
+        }
+        Assert.assertEquals(factory.getConcurrencyLimit(), steady);
+
+        for (int i = 0; i < 10; i++) {
+            factory.createQueryManager().createQuery(SLOW).getSingleLong();
+        }
+        final int limit = factory.getConcurrencyLimit();
+        Assert.assertTrue(limit < initial && limit >= 2, String.valueOf(limit));
+    }
+
+    @Test
+    public void invalidLimitsAreRejected() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setConcurrencyLimit(0, 10, 0));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setConcurrencyLimit(10, 5, 0));
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> factory.setConcurrencyLimit(1, 5, -1));
+        factory.setConcurrencyLimit(0, 0, 0);
+        Assert.assertEquals(factory.getConcurrencyLimit(), 0);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.QueryManager;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class ConnectionAffinityTest {
+
+    private static final SqlStatement COUNT = SqlStatement
+        .newInstance("SELECT COUNT(*) FROM debs.affinity");
+
+    private final AtomicInteger acquired = new AtomicInteger();
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        final DataSource shared = (DataSource) new InitialContext()
+            .lookup("java:/comp/env/jdbc/shared");
+        this.ds = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+            new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                if ("getConnection".equals(method.getName())) {
+                    this.acquired.incrementAndGet();
+                }
+                try {
+                    return method.invoke(shared, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+
+        try (TransactionManager txManager = new PersistenceManagerFactory(this.ds)
+            .createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.affinity(id BIGINT PRIMARY KEY)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void queriesReuseTheTransactionConnection() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final QueryManager queryManager = factory.createQueryManager();
+        final long before = count(queryManager);
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            this.acquired.set(0);
+            txManager.begin();
+            txManager.persist(
+                SqlStatement.newInstance("INSERT INTO debs.affinity(id) VALUES(1)"));
+
+            Assert.assertEquals(count(queryManager), before + 1);
+            Assert.assertEquals(count(factory.createQueryManager().setReadOnly(true)),
+                before + 1);
+            Assert.assertEquals(this.acquired.get(), 1);
+
+            txManager.persist(
+                SqlStatement.newInstance("INSERT INTO debs.affinity(id) VALUES(2)"));
+            txManager.rollback();
+        }
+
+        this.acquired.set(0);
+        Assert.assertEquals(count(queryManager), before);
+        Assert.assertEquals(this.acquired.get(), 1);
+    }
+
+    @Test
+    public void nestedTransactionsRestoreTheOuterConnection() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final QueryManager queryManager = factory.createQueryManager();
+        final long before = count(queryManager);
+
+        try (TransactionManager outer = factory.createTransactionManager();
+            TransactionManager inner = factory.createTransactionManager()) {
+            outer.begin();
+            outer.persist(SqlStatement.newInstance("INSERT INTO debs.affinity(id) VALUES(3)"));
+
+            inner.begin();
+            Assert.assertEquals(count(queryManager), before);
+            inner.rollback();
+
+            Assert.assertEquals(count(queryManager), before + 1);
+            outer.rollback();
+        }
+        Assert.assertEquals(count(queryManager), before);
+    }
+
+    private static long count(QueryManager queryManager) {
+        return queryManager.createQuery(COUNT).getSingleLong();
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.veary.persist.Isolation;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class ConnectionStateTest {
+
+    private final List<String> calls = new ArrayList<>();
+    private TomcatJNDI tomcatJndi;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        final DataSource ds = (DataSource) new InitialContext()
+            .lookup("java:/comp/env/jdbc/shared");
+        this.factory = new PersistenceManagerFactory(recording(ds));
+
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.state(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.persist(SqlStatement.newInstance("MERGE INTO debs.state VALUES(1, 10)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @BeforeMethod
+    public void clearCalls() {
+        this.calls.clear();
+    }
+
+    @Test
+    public void isolationAndReadOnlyAppliedAndRestored() {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin(Isolation.SERIALIZABLE, true);
+            txManager.rollback();
+        }
+        Assert.assertEquals(this.calls, List.of(
+            "setTransactionIsolation(" + Connection.TRANSACTION_SERIALIZABLE + ")",
+            "setReadOnly(true)", "setReadOnly(false)",
+            "setTransactionIsolation(" + Connection.TRANSACTION_READ_COMMITTED + ")"));
+    }
+
+    @Test
+    public void readOnlyTransactionCommitsWithoutWrites() {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin(Isolation.READ_COMMITTED, true);
+            final PartitionedQueryTest.Entry entry = (PartitionedQueryTest.Entry) txManager
+                .find(PartitionedQueryTest.Entry.class,
+                    SqlStatement.newInstance("SELECT * FROM debs.state WHERE id = ?"),
+                    Long.valueOf(1));
+            Assert.assertEquals(entry.getAmount(), Long.valueOf(10));
+            txManager.commit();
+            Assert.assertFalse(txManager.isActive());
+        }
+        Assert.assertEquals(this.calls, List.of("setReadOnly(true)", "setReadOnly(false)"));
+    }
+
+    @Test
+    public void defaultBeginLeavesConnectionUnchanged() {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.state(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.commit();
+        }
+        Assert.assertTrue(this.calls.isEmpty());
+    }
+
+    @Test
+    public void readOnlyQueryManager() {
+        Assert.assertEquals(this.factory.createQueryManager().setReadOnly(true)
+            .createQuery(SqlStatement.newInstance("SELECT 1")).getSingleLong(), 1L);
+        Assert.assertEquals(this.calls, List.of("setReadOnly(true)", "setReadOnly(false)"));
+    }
+
+    private DataSource recording(DataSource ds) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                final Object result = invoke(ds, method, args);
+                if (!(result instanceof Connection)) {
+                    return result;
+                }
+                final Connection conn = (Connection) result;
+                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Connection.class }, (p, m, a) -> {
+                        if (m.getName().startsWith("set") && !"setAutoCommit".equals(m.getName())) {
+                            this.calls.add(m.getName() + "(" + a[0] + ")");
+                        }
+                        return invoke(conn, m, a);
+                    });
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+        throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
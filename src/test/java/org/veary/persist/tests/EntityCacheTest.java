@@ -0,0 +1,185 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.EntityCache;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.QueryManager;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class EntityCacheTest {
+
+    private static final SqlStatement BY_ID = SqlStatement
+        .newInstance("SELECT * FROM debs.currency WHERE id = ?");
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+
+        try (TransactionManager txManager = new PersistenceManagerFactory(this.ds)
+            .createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.currency(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.persist(SqlStatement.newInstance(
+                "MERGE INTO debs.currency SELECT X, X * 10 FROM SYSTEM_RANGE(1, 200)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void hitsReturnCachedInstance() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final EntityCache cache = factory.getEntityCache().setMaximumSize(100);
+        final QueryManager manager = factory.createQueryManager();
+
+        final Object first = manager.find(PartitionedQueryTest.Entry.class, BY_ID,
+            Long.valueOf(1));
+        Assert.assertSame(manager.find(PartitionedQueryTest.Entry.class, BY_ID,
+            Long.valueOf(1)), first);
+        Assert.assertEquals(cache.getHitCount(), 1L);
+        Assert.assertEquals(cache.getMissCount(), 1L);
+        Assert.assertEquals(cache.getHitRatio(), 0.5);
+
+        cache.evict(PartitionedQueryTest.Entry.class, Long.valueOf(1));
+        Assert.assertEquals(cache.size(), 0L);
+    }
+
+    @Test
+    public void commitInvalidatesWrittenTables() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.getEntityCache().setMaximumSize(100);
+        final QueryManager manager = factory.createQueryManager();
+        Assert.assertEquals(((PartitionedQueryTest.Entry) manager.find(
+            PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(2))).getAmount(),
+            Long.valueOf(20));
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "UPDATE debs.currency SET amount = 21 WHERE id = 2"));
+            Assert.assertEquals(((PartitionedQueryTest.Entry) txManager.find(
+                PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(2))).getAmount(),
+                Long.valueOf(21));
+            Assert.assertEquals(((PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(2))).getAmount(),
+                Long.valueOf(21));
+            txManager.commit();
+        }
+
+        Assert.assertEquals(((PartitionedQueryTest.Entry) manager.find(
+            PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(2))).getAmount(),
+            Long.valueOf(21));
+    }
+
+    @Test
+    public void uncommittedRowsAreNotShared() throws Exception {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final EntityCache cache = factory.getEntityCache().setMaximumSize(100);
+        final QueryManager manager = factory.createQueryManager();
+
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "UPDATE debs.currency SET amount = 41 WHERE id = 4"));
+            Assert.assertEquals(((PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(4))).getAmount(),
+                Long.valueOf(41));
+            txManager.rollback();
+        }
+        Assert.assertEquals(cache.size(), 0L);
+
+        final PartitionedQueryTest.Entry entry = CompletableFuture
+            .supplyAsync(() -> (PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(4)))
+            .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(entry.getAmount(), Long.valueOf(40));
+    }
+
+    @Test
+    public void timeToLiveExpires() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final EntityCache cache = factory.getEntityCache().setMaximumSize(100)
+            .setTimeToLive(PartitionedQueryTest.Entry.class, 1);
+        final QueryManager manager = factory.createQueryManager();
+
+        manager.find(PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(3));
+        Thread.sleep(20);
+        manager.find(PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(3));
+        Assert.assertEquals(cache.getHitCount(), 0L);
+        Assert.assertEquals(cache.getMissCount(), 2L);
+    }
+
+    @Test
+    public void frequentEntriesSurviveScan() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        final EntityCache cache = factory.getEntityCache().setMaximumSize(20);
+        final QueryManager manager = factory.createQueryManager();
+
+        for (int i = 0; i < 10; i++) {
+            for (long id = 1; id <= 5; id++) {
+                manager.find(PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(id));
+            }
+        }
+        for (long id = 6; id <= 200; id++) {
+            manager.find(PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(id));
+        }
+        Assert.assertTrue(cache.size() <= 20);
+        Assert.assertTrue(cache.getEvictionCount() > 0);
+
+        final long hits = cache.getHitCount();
+        for (long id = 1; id <= 5; id++) {
+            manager.find(PartitionedQueryTest.Entry.class, BY_ID, Long.valueOf(id));
+        }
+        Assert.assertEquals(cache.getHitCount() - hits, 5L);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.mapping.Column;
+import org.veary.persist.mapping.Id;
+import org.veary.persist.mapping.Table;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class EntityPersistTest {
+
+    private TomcatJNDI tomcatJndi;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.factory = new PersistenceManagerFactory(
+            (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared"));
+
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.entity_account(id BIGINT PRIMARY KEY, "
+                    + "name VARCHAR(40), active BOOLEAN)"));
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.entity_ledger(id BIGINT AUTO_INCREMENT "
+                    + "PRIMARY KEY, account_id BIGINT, amount BIGINT)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void insertReturnsGeneratedKey() {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            final Long first = txManager.insert(Ledger.of(Long.valueOf(1), Long.valueOf(10)));
+            final Long second = txManager.insert(Ledger.of(Long.valueOf(1), Long.valueOf(20)));
+            txManager.commit();
+            Assert.assertTrue(first.longValue() > 0);
+            Assert.assertEquals(second.longValue(), first.longValue() + 1);
+        }
+    }
+
+    @Test
+    public void insertAllBatchesPerTableAndUpdateWritesColumns() {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            Assert.assertEquals(txManager.insertAll(List.of(
+                Account.of(Long.valueOf(100), "CASH", Boolean.TRUE),
+                Ledger.of(Long.valueOf(100), Long.valueOf(5)),
+                Account.of(Long.valueOf(101), "BANK", Boolean.TRUE),
+                Ledger.of(Long.valueOf(101), Long.valueOf(6)))), 4);
+            Assert.assertEquals(txManager.update(
+                Account.of(Long.valueOf(100), "PETTY CASH", Boolean.FALSE)), 1);
+            Assert.assertEquals(txManager.updateAll(List.of(
+                Account.of(Long.valueOf(101), "SAVINGS", Boolean.TRUE))), 1);
+            txManager.commit();
+        }
+
+        final Account account = (Account) this.factory.createQueryManager().createQuery(
+            SqlStatement.newInstance("SELECT * FROM debs.entity_account WHERE id = 100"),
+            Account.class).executeSingleResult();
+        Assert.assertEquals(account.getAccountName(), "PETTY CASH");
+        Assert.assertEquals(account.isActive(), Boolean.FALSE);
+        Assert.assertEquals(this.factory.createQueryManager().createQuery(SqlStatement
+            .newInstance("SELECT COUNT(*) FROM debs.entity_ledger WHERE account_id >= 100"))
+            .getSingleLong(), 2L);
+    }
+
+    @Test
+    public void unmappedEntityException() {
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            Assert.assertThrows(IllegalArgumentException.class,
+                () -> txManager.insert("not an entity"));
+            Assert.assertThrows(IllegalStateException.class,
+                () -> txManager.update((Amount) () -> Long.valueOf(1)));
+            Assert.assertTrue(txManager.isActive());
+        }
+    }
+
+    @Table("debs.entity_account")
+    public interface Account {
+
+        @Id
+        Long getId();
+
+        @Column("NAME")
+        String getAccountName();
+
+        Boolean isActive();
+
+        static Account of(Long id, String name, Boolean active) {
+            return new Account() {
+
+                @Override
+                public Long getId() {
+                    return id;
+                }
+
+                @Override
+                public String getAccountName() {
+                    return name;
+                }
+
+                @Override
+                public Boolean isActive() {
+                    return active;
+                }
+            };
+        }
+
+        static Account newInstance(Map<String, Object> dataMap) {
+            return of((Long) dataMap.get("ID"), (String) dataMap.get("NAME"),
+                (Boolean) dataMap.get("ACTIVE"));
+        }
+    }
+
+    @Table("debs.entity_ledger")
+    public interface Ledger {
+
+        @Id(generated = true)
+        Long getId();
+
+        Long getAccountId();
+
+        Long getAmount();
+
+        static Ledger of(Long accountId, Long amount) {
+            return new Ledger() {
+
+                @Override
+                public Long getId() {
+                    return null;
+                }
+
+                @Override
+                public Long getAccountId() {
+                    return accountId;
+                }
+
+                @Override
+                public Long getAmount() {
+                    return amount;
+                }
+            };
+        }
+    }
+
+    @Table("debs.entity_ledger")
+    public interface Amount {
+
+        Long getAmount();
+    }
+}
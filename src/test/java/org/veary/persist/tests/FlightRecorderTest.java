@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class FlightRecorderTest {
+
+    private TomcatJNDI tomcatJndi;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.factory = new PersistenceManagerFactory(
+            (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared"));
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void queryAndTransactionEvents() throws IOException {
+        final Path file = Files.createTempFile("persist", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.veary.persist.Query").withThreshold(Duration.ZERO);
+            recording.enable("org.veary.persist.Transaction")
+                .withThreshold(Duration.ZERO);
+            recording.start();
+
+            final TransactionManager txManager = this.factory.createTransactionManager();
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.jfr(id BIGINT PRIMARY KEY, name VARCHAR(20))"));
+            txManager.persist(SqlStatement.newInstance("MERGE INTO debs.jfr VALUES(1, 'secret')"));
+            txManager.commit();
+
+            this.factory.createQueryManager()
+                .createQuery(SqlStatement.newInstance("SELECT COUNT(*) FROM debs.jfr"))
+                .getSingleLong();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        try {
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            final List<RecordedEvent> queries = events.stream()
+                .filter(e -> "org.veary.persist.Query".equals(e.getEventType().getName()))
+                .collect(Collectors.toList());
+            final List<String> operations = events.stream()
+                .filter(e -> "org.veary.persist.Transaction".equals(e.getEventType().getName()))
+                .map(e -> e.getString("operation"))
+                .collect(Collectors.toList());
+
+            Assert.assertEquals(queries.size(), 1);
+            Assert.assertEquals(queries.get(0).getLong("rowCount"), 1L);
+            Assert.assertEquals(queries.get(0).getString("outcome"), "SUCCESS");
+            Assert.assertTrue(operations.contains("begin"));
+            Assert.assertTrue(operations.contains("commit"));
+            Assert.assertTrue(events.stream()
+                .filter(e -> "persist".equals(
+                    e.hasField("operation") ? e.getString("operation") : null))
+                .noneMatch(e -> e.getString("sql").contains("secret")));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
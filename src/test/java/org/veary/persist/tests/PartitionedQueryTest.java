@@ -0,0 +1,166 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PartitionedQuery;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class PartitionedQueryTest {
+
+    private TomcatJNDI tomcatJndi;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.factory = new PersistenceManagerFactory(
+            (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared"));
+
+        final TransactionManager txManager = this.factory.createTransactionManager();
+        txManager.begin();
+        txManager.persist(SqlStatement.newInstance(
+            "CREATE TABLE IF NOT EXISTS debs.ledger(id BIGINT PRIMARY KEY, amount BIGINT)"));
+        for (long i = 1; i <= 100; i++) {
+            txManager.persist(SqlStatement.newInstance("MERGE INTO debs.ledger VALUES(?, ?)")
+                .setParameter(1, Long.valueOf(i)).setParameter(2, Long.valueOf(i * 10)));
+        }
+        txManager.commit();
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void rangePartitionsMerged() {
+        final PartitionedQuery query = this.factory.createQueryManager().createPartitionedQuery(
+            SqlStatement.newInstance("SELECT id, amount FROM debs.ledger WHERE amount > ?")
+                .setParameter(1, Long.valueOf(100)),
+            Entry.class);
+
+        final List<Object> list = query.byRange("ID", 0, 101, 4).orderBy("ID").execute()
+            .getResultList(Comparator.comparing(o -> ((Entry) o).getId()));
+        Assert.assertEquals(list.size(), 90);
+        for (int i = 0; i < list.size(); i++) {
+            Assert.assertEquals(((Entry) list.get(i)).getId(), Long.valueOf(i + 11));
+        }
+    }
+
+    @Test
+    public void hashPartitionsStreamed() {
+        final PartitionedQuery query = this.factory.createQueryManager().createPartitionedQuery(
+            SqlStatement.newInstance("SELECT * FROM debs.ledger"), Entry.class);
+
+        final List<Long> ids = query.byHash("ID", 3).execute().getResultStream()
+            .map(o -> ((Entry) o).getId()).sorted().collect(Collectors.toList());
+        Assert.assertEquals(ids.size(), 100);
+        Assert.assertEquals(ids.get(99), Long.valueOf(100));
+    }
+
+    @Test
+    public void orderedPartitionsMerged() {
+        final PartitionedQuery query = this.factory.createQueryManager().createPartitionedQuery(
+            SqlStatement.newInstance("SELECT * FROM debs.ledger"), Entry.class);
+        Assert.assertThrows(IllegalArgumentException.class,
+            () -> query.orderBy("id; DROP TABLE debs.ledger"));
+
+        final List<Object> list = query.byHash("ID", 3).orderBy("id DESC").execute()
+            .getResultList(Comparator.comparing(o -> ((Entry) o).getId(),
+                Comparator.reverseOrder()));
+        Assert.assertEquals(list.size(), 100);
+        for (int i = 0; i < list.size(); i++) {
+            Assert.assertEquals(((Entry) list.get(i)).getId(), Long.valueOf(100 - i));
+        }
+    }
+
+    @Test
+    public void hashPartitionsIncludeNullKeys() {
+        final PartitionedQuery query = this.factory.createQueryManager().createPartitionedQuery(
+            SqlStatement.newInstance("SELECT id, CASE WHEN MOD(id, 10) = 0 THEN NULL "
+                + "ELSE amount END AS amount FROM debs.ledger"),
+            Entry.class);
+
+        final List<Object> list = query.byHash("AMOUNT", 3).execute()
+            .getResultList(Comparator.comparing(o -> ((Entry) o).getId()));
+        Assert.assertEquals(list.size(), 100);
+        Assert.assertEquals(list.stream().filter(o -> ((Entry) o).getAmount() == null).count(),
+            10);
+        Assert.assertEquals(((Entry) list.get(99)).getId(), Long.valueOf(100));
+    }
+
+    @Test(
+        expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "Partitioning column must be a simple column name.")
+    public void invalidColumnException() {
+        this.factory.createQueryManager()
+            .createPartitionedQuery(SqlStatement.newInstance("SELECT * FROM debs.ledger"),
+                Entry.class)
+            .byHash("ID; DROP TABLE debs.ledger", 2);
+    }
+
+    public interface Entry {
+
+        Long getId();
+
+        Long getAmount();
+
+        static Entry newInstance(Map<String, Object> dataMap) {
+            return new Entry() {
+
+                @Override
+                public Long getId() {
+                    return (Long) dataMap.get("ID");
+                }
+
+                @Override
+                public Long getAmount() {
+                    return (Long) dataMap.get("AMOUNT");
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.QueryBatch;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.PersistenceException;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class QueryBatchTest {
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+        this.factory = new PersistenceManagerFactory(this.ds);
+
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.page(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.persist(SqlStatement.newInstance(
+                "MERGE INTO debs.page SELECT X, X * 10 FROM SYSTEM_RANGE(1, 10)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void executesAllQueries() {
+        final QueryBatch batch = this.factory.createQueryManager().createQueryBatch()
+            .add(SqlStatement.newInstance("SELECT * FROM debs.page WHERE id <= ?")
+                .setParameter(1, Long.valueOf(3)), PartitionedQueryTest.Entry.class)
+            .add(SqlStatement.newInstance("SELECT * FROM debs.page WHERE amount = ?")
+                .setParameter(1, Long.valueOf(100)), PartitionedQueryTest.Entry.class)
+            .execute();
+
+        Assert.assertEquals(batch.size(), 2);
+        Assert.assertEquals(batch.getResultList(0).size(), 3);
+        final List<Object> second = batch.getResultList(1);
+        Assert.assertEquals(second.size(), 1);
+        Assert.assertEquals(((PartitionedQueryTest.Entry) second.get(0)).getId(),
+            Long.valueOf(10));
+    }
+
+    @Test(
+        expectedExceptions = PersistenceException.class,
+        expectedExceptionsMessageRegExp = "Invalid method call sequence.")
+    public void resultBeforeExecuteException() {
+        this.factory.createQueryManager().createQueryBatch()
+            .add(SqlStatement.newInstance("SELECT * FROM debs.page"),
+                PartitionedQueryTest.Entry.class)
+            .getResultList(0);
+    }
+
+    @Test
+    public void transactionIsNotCombined() {
+        final List<String> prepared = Collections.synchronizedList(new ArrayList<>());
+        final PersistenceManagerFactory multiResult = new PersistenceManagerFactory(
+            (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { DataSource.class },
+                (proxy, method, args) -> "getConnection".equals(method.getName())
+                    ? multiResultConnection((Connection) invoke(this.ds, method, args),
+                        prepared)
+                    : invoke(this.ds, method, args)));
+
+        try (TransactionManager txManager = multiResult.createTransactionManager()) {
+            txManager.begin();
+            final QueryBatch batch = multiResult.createQueryManager().createQueryBatch()
+                .add(SqlStatement.newInstance("SELECT * FROM debs.page WHERE id = 1"),
+                    PartitionedQueryTest.Entry.class)
+                .add(SqlStatement.newInstance("SELECT * FROM debs.page WHERE id = 2"),
+                    PartitionedQueryTest.Entry.class)
+                .execute();
+            Assert.assertEquals(batch.getResultList(1).size(), 1);
+            txManager.rollback();
+        }
+
+        for (String sql : prepared) {
+            Assert.assertFalse(sql.contains(";"), sql);
+        }
+    }
+
+    private static Connection multiResultConnection(Connection conn, List<String> prepared) {
+        return (Connection) Proxy.newProxyInstance(QueryBatchTest.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                if ("getMetaData".equals(method.getName())) {
+                    final DatabaseMetaData metaData = conn.getMetaData();
+                    return Proxy.newProxyInstance(QueryBatchTest.class.getClassLoader(),
+                        new Class<?>[] { DatabaseMetaData.class },
+                        (p, m, a) -> "supportsMultipleResultSets".equals(m.getName())
+                            ? Boolean.TRUE
+                            : invoke(metaData, m, a));
+                }
+                if ("prepareStatement".equals(method.getName())) {
+                    prepared.add((String) args[0]);
+                }
+                return invoke(conn, method, args);
+            });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args)
+        throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
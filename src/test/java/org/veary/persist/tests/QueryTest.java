@@ -30,6 +30,7 @@ import com.google.inject.Injector;
 import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
@@ -40,6 +41,7 @@ import org.veary.persist.Query;
 import org.veary.persist.QueryManager;
 import org.veary.persist.SqlStatement;
 import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.NonUniqueResultException;
 
 import hthurow.tomcatjndi.TomcatJNDI;
 
@@ -130,6 +132,99 @@ public class QueryTest {
         Assert.assertTrue(Account.class.isInstance(list.get(0)));
     }
 
+    @Test
+    public void resultsListMapsOnAccess() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        final QueryManager manager = factory.createQueryManager();
+        Assert.assertNotNull(manager);
+
+        SqlStatement statement = SqlStatement.newInstance("SELECT * FROM DEBS.ACCOUNT");
+
+        CountingAccount.CREATED.set(0);
+        List<Object> list = manager.createQuery(statement, CountingAccount.class).execute()
+            .getResultList();
+        Assert.assertTrue(list.size() == 2);
+        Assert.assertEquals(CountingAccount.CREATED.get(), 0);
+
+        Object first = list.get(0);
+        Assert.assertSame(list.get(0), first);
+        Assert.assertEquals(CountingAccount.CREATED.get(), 1);
+    }
+
+    @Test
+    public void scalarResults() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        final QueryManager manager = factory.createQueryManager();
+
+        Assert.assertEquals(manager.createQuery(
+            SqlStatement.newInstance("SELECT COUNT(*) FROM DEBS.ACCOUNT")).getSingleLong(), 2L);
+        Assert.assertEquals(manager.createQuery(
+            SqlStatement.newInstance("SELECT COUNT(*) FROM DEBS.ACCOUNT")).getSingleInt(), 2);
+        Assert.assertEquals(manager.createQuery(
+            SqlStatement.newInstance("SELECT NAME FROM DEBS.ACCOUNT WHERE ID=?")
+                .setParameter(1, this.id)).getSingleString(), "CASH");
+        Assert.assertEquals(manager.createQuery(
+            SqlStatement.newInstance("SELECT ID FROM DEBS.ACCOUNT")).getLongArray().length, 2);
+        Assert.assertEquals(manager.createQuery(
+            SqlStatement.newInstance("SELECT ID FROM DEBS.ACCOUNT")).getLongStream().count(), 2);
+        Assert.assertEquals(manager.createQuery(
+            SqlStatement.newInstance("SELECT NAME FROM DEBS.ACCOUNT ORDER BY NAME"))
+            .getStringList(), List.of("CASH", "EXPENSE"));
+    }
+
+    @Test(expectedExceptions = NonUniqueResultException.class)
+    public void scalarNonUniqueException() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT NAME FROM DEBS.ACCOUNT"))
+            .getSingleString();
+    }
+
+    @Test
+    public void existsAndExecuteSingleResult() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        final QueryManager manager = factory.createQueryManager();
+
+        Assert.assertTrue(manager
+            .createQuery(SqlStatement.newInstance("SELECT * FROM DEBS.ACCOUNT")).exists());
+        Assert.assertFalse(manager.createQuery(
+            SqlStatement.newInstance("SELECT * FROM DEBS.ACCOUNT WHERE NAME=?")
+                .setParameter(1, "NONE")).exists());
+
+        SqlStatement statement = SqlStatement
+            .newInstance("SELECT * FROM DEBS.ACCOUNT WHERE ID=?");
+        statement.setParameter(1, this.id);
+        Account account = (Account) manager.createQuery(statement, Account.class)
+            .executeSingleResult();
+        Assert.assertEquals(account.getName(), "CASH");
+    }
+
+    @Test(
+        expectedExceptions = NonUniqueResultException.class,
+        expectedExceptionsMessageRegExp = "Query returned too many results.")
+    public void executeSingleResultNonUniqueException() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT * FROM DEBS.ACCOUNT"), Account.class)
+            .executeSingleResult();
+    }
+
+    public interface CountingAccount {
+
+        AtomicInteger CREATED = new AtomicInteger();
+
+        static CountingAccount newInstance(Map<String, Object> dataMap) {
+            CREATED.incrementAndGet();
+            return new CountingAccount() {
+            };
+        }
+    }
+
     public interface Account {
 
         Long getId();
@@ -0,0 +1,160 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class ResultPublisherTest {
+
+    private TomcatJNDI tomcatJndi;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.factory = new PersistenceManagerFactory(
+            (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared"));
+
+        try (TransactionManager txManager = this.factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.stream(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            txManager.persist(SqlStatement.newInstance(
+                "MERGE INTO debs.stream SELECT X, X FROM SYSTEM_RANGE(1, 50)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void emitsRowsOnDemand() throws Exception {
+        final Flow.Publisher<Object> publisher = this.factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT * FROM debs.stream ORDER BY id"),
+                PartitionedQueryTest.Entry.class)
+            .getResultPublisher();
+
+        final List<Object> received = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> completed = new CompletableFuture<>();
+        publisher.subscribe(new Flow.Subscriber<Object>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                this.subscription = s;
+                s.request(3);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                received.add(item);
+                if (received.size() % 3 == 0) {
+                    this.subscription.request(3);
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(null);
+            }
+        });
+
+        completed.get(10, TimeUnit.SECONDS);
+        Assert.assertEquals(received.size(), 50);
+        Assert.assertEquals(((PartitionedQueryTest.Entry) received.get(49)).getId(),
+            Long.valueOf(50));
+    }
+
+    @Test
+    public void cancelStopsEmission() throws Exception {
+        final Flow.Publisher<Object> publisher = this.factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT * FROM debs.stream"),
+                PartitionedQueryTest.Entry.class)
+            .getResultPublisher(Runnable::run);
+
+        final List<Object> received = new CopyOnWriteArrayList<>();
+        final List<String> terminal = new CopyOnWriteArrayList<>();
+        publisher.subscribe(new Flow.Subscriber<Object>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription s) {
+                this.subscription = s;
+                s.request(10);
+            }
+
+            @Override
+            public void onNext(Object item) {
+                received.add(item);
+                if (received.size() == 2) {
+                    this.subscription.cancel();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                terminal.add("error");
+            }
+
+            @Override
+            public void onComplete() {
+                terminal.add("complete");
+            }
+        });
+
+        Assert.assertEquals(received.size(), 2);
+        Assert.assertTrue(terminal.isEmpty());
+    }
+}
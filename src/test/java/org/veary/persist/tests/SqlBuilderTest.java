@@ -24,9 +24,14 @@
 
 package org.veary.persist.tests;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import org.testng.Assert;
 import org.testng.annotations.Test;
 import org.veary.persist.SqlBuilder;
+import org.veary.persist.SqlStatement;
 
 public class SqlBuilderTest {
 
@@ -49,4 +54,80 @@ public class SqlBuilderTest {
         SqlBuilder builder = SqlBuilder.newInstance("TEST");
         Assert.assertEquals(builder.toString(), "TEST");
     }
+
+    @Test
+    public void selectWithBucketedInList() {
+        final SqlStatement statement = SqlBuilder.select("id", "name")
+            .from("debs.account")
+            .where("name LIKE ?", "C%")
+            .whereIn("id", Arrays.asList(Long.valueOf(1), Long.valueOf(2), Long.valueOf(3)))
+            .orderBy("id")
+            .toStatement();
+
+        Assert.assertEquals(statement.toString(), "SELECT id, name FROM debs.account "
+            + "WHERE name LIKE ? AND id IN (?, ?, ?, ?) ORDER BY id");
+        Assert.assertEquals(statement.getParameters().size(), 5);
+        Assert.assertEquals(statement.getParameters().get(Integer.valueOf(5)), Long.valueOf(3));
+    }
+
+    @Test
+    public void sameShapeSharesSql() {
+        final String three = SqlBuilder.select("*").from("debs.account")
+            .whereIn("id", Arrays.asList("a", "b", "c")).toString();
+        final String four = SqlBuilder.select("*").from("debs.account")
+            .whereIn("id", Arrays.asList("a", "b", "c", "d")).toString();
+        Assert.assertSame(three, four);
+
+        final List<Object> none = Collections.emptyList();
+        Assert.assertEquals(SqlBuilder.deleteFrom("debs.account").whereIn("id", none).toString(),
+            "DELETE FROM debs.account WHERE 1 = 0");
+    }
+
+    @Test
+    public void insertAndUpdate() {
+        final SqlStatement insert = SqlBuilder.insertInto("debs.account")
+            .value("id", Long.valueOf(1))
+            .value("name", "CASH")
+            .toStatement();
+        Assert.assertEquals(insert.toString(),
+            "INSERT INTO debs.account (id, name) VALUES (?, ?)");
+        Assert.assertEquals(insert.getParameters().get(Integer.valueOf(2)), "CASH");
+
+        final SqlStatement update = SqlBuilder.update("debs.account")
+            .set("name", "BANK")
+            .where("id = ?", Long.valueOf(1))
+            .toStatement();
+        Assert.assertEquals(update.toString(), "UPDATE debs.account SET name = ? WHERE id = ?");
+        Assert.assertEquals(update.getParameters().get(Integer.valueOf(2)), Long.valueOf(1));
+    }
+
+    @Test(
+        expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "IN list must not have more than 1024 values.")
+    public void inListTooLargeException() {
+        SqlBuilder.deleteFrom("debs.account").whereIn("id", Arrays.asList(new Long[1025]));
+    }
+
+    @Test
+    public void quotedPlaceholdersAreNotParameters() {
+        final SqlStatement statement = SqlBuilder.select("*").from("debs.account")
+            .where("name <> '?' AND id = ? /* ? */", Long.valueOf(1))
+            .toStatement();
+        Assert.assertEquals(statement.getParameters().size(), 1);
+    }
+
+    @Test
+    public void nullValuesRejected() {
+        final SqlBuilder.Insert insert = SqlBuilder.insertInto("debs.account");
+        Assert.assertThrows(NullPointerException.class, () -> insert.value("name", null));
+        final SqlBuilder.Update update = SqlBuilder.update("debs.account");
+        Assert.assertThrows(NullPointerException.class, () -> update.set("name", null));
+        Assert.assertThrows(NullPointerException.class,
+            () -> update.where("name = ?", (Object[]) null));
+        Assert.assertThrows(NullPointerException.class,
+            () -> update.whereIn("id", Arrays.asList(Long.valueOf(1), null)));
+
+        Assert.assertEquals(update.set("name", "CASH").where("closed IS NULL").toString(),
+            "UPDATE debs.account SET name = ? WHERE closed IS NULL");
+    }
 }
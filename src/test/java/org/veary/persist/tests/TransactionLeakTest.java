@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.OpenTransaction;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.exceptions.PersistenceException;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class TransactionLeakTest {
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+
+        try (TransactionManager txManager = new PersistenceManagerFactory(this.ds)
+            .createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.leak(id BIGINT PRIMARY KEY)"));
+            txManager.commit();
+        }
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void closeRollsBackUncommitted() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            txManager.persist(SqlStatement.newInstance("INSERT INTO debs.leak VALUES(1)"));
+            Assert.assertEquals(factory.getOpenTransactions().size(), 1);
+        }
+
+        Assert.assertTrue(factory.getOpenTransactions().isEmpty());
+        Assert.assertFalse(factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT id FROM debs.leak WHERE id = 1"))
+            .exists());
+    }
+
+    @Test
+    public void openTransactionRecordsStackTrace() {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setLeakDetectionThreshold(60000);
+        try (TransactionManager txManager = factory.createTransactionManager()) {
+            txManager.begin();
+            final OpenTransaction open = factory.getOpenTransactions().get(0);
+            Assert.assertEquals(open.getThreadName(), Thread.currentThread().getName());
+            Assert.assertTrue(open.getAgeMillis() >= 0);
+            Assert.assertTrue(open.getStackTrace().length > 0);
+        } finally {
+            factory.setLeakDetectionThreshold(0);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class,
+        expectedExceptionsMessageRegExp = "Transaction was rolled back after exceeding the maximum duration.")
+    public void maxDurationReclaimsConnection() throws InterruptedException {
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(this.ds);
+        factory.setMaxTransactionDuration(50);
+        final TransactionManager txManager = factory.createTransactionManager();
+        txManager.begin();
+        txManager.persist(SqlStatement.newInstance("INSERT INTO debs.leak VALUES(2)"));
+
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (txManager.isActive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        factory.setMaxTransactionDuration(0);
+
+        Assert.assertFalse(txManager.isActive());
+        Assert.assertTrue(factory.getOpenTransactions().isEmpty());
+        txManager.commit();
+    }
+
+    @Test
+    public void maxDurationAbortsBlockedStatement() throws InterruptedException {
+        final CountDownLatch aborted = new CountDownLatch(1);
+        final PersistenceManagerFactory factory = new PersistenceManagerFactory(
+            (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[] { DataSource.class }, (proxy, method, args) -> {
+                    final Object result = invoke(method, this.ds, args);
+                    return result instanceof Connection
+                        ? blocking((Connection) result, aborted)
+                        : result;
+                }));
+        final TransactionManager txManager = factory.createTransactionManager();
+        txManager.begin();
+
+        final CompletableFuture<Long> stuck = CompletableFuture.supplyAsync(() -> txManager
+            .persist(SqlStatement.newInstance("INSERT INTO debs.leak VALUES(3) /* stuck */")));
+        factory.setMaxTransactionDuration(50);
+        try {
+            Assert.assertTrue(aborted.await(5, TimeUnit.SECONDS));
+            final CompletionException e = Assert.expectThrows(CompletionException.class,
+                stuck::join);
+            Assert.assertTrue(e.getCause() instanceof PersistenceException);
+            Assert.assertFalse(txManager.isActive());
+            Assert.assertThrows(IllegalStateException.class, txManager::commit);
+        } finally {
+            factory.close();
+        }
+        Assert.assertTrue(factory.getOpenTransactions().isEmpty());
+    }
+
+    /**
+     * Returns a connection whose statements marked {@code stuck} block until it is aborted.
+     */
+    private static Connection blocking(Connection conn, CountDownLatch aborted) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                if ("abort".equals(method.getName())) {
+                    aborted.countDown();
+                    return null;
+                }
+                final Object result = invoke(method, conn, args);
+                if (!(result instanceof PreparedStatement)
+                    || !((String) args[0]).contains("stuck")) {
+                    return result;
+                }
+                return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class }, (stmt, call, params) -> {
+                        if ("executeUpdate".equals(call.getName())) {
+                            if (aborted.await(10, TimeUnit.SECONDS)) {
+                                throw new SQLException("Connection aborted.");
+                            }
+                        }
+                        return invoke(call, result, params);
+                    });
+            });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args)
+        throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -28,12 +28,18 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.testng.Assert;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.QueryManager;
 import org.veary.persist.SqlStatement;
 import org.veary.persist.TransactionManager;
 
@@ -159,4 +165,136 @@ public class TransactionManagerTest {
         SqlStatement find = SqlStatement.newInstance("SELECT * FROM debs.account");
         manager.persist(find);
     }
+
+    @Test
+    public void findUsesIdentityMap() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        try (TransactionManager manager = factory.createTransactionManager()) {
+            manager.begin();
+            manager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.posting(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            manager.persist(SqlStatement.newInstance("INSERT INTO debs.posting VALUES(1, 10)"));
+
+            final SqlStatement byId = SqlStatement
+                .newInstance("SELECT * FROM debs.posting WHERE id = ?");
+            final Object first = manager.find(PartitionedQueryTest.Entry.class, byId,
+                Long.valueOf(1));
+            Assert.assertSame(manager.find(PartitionedQueryTest.Entry.class, byId,
+                Long.valueOf(1)), first);
+            Assert.assertNull(manager.find(PartitionedQueryTest.Entry.class, byId,
+                Long.valueOf(2)));
+
+            manager.persist(SqlStatement.newInstance(
+                "UPDATE debs.posting SET amount = 20 WHERE id = 1"));
+            final PartitionedQueryTest.Entry updated = (PartitionedQueryTest.Entry) manager
+                .find(PartitionedQueryTest.Entry.class, byId, Long.valueOf(1));
+            Assert.assertNotSame(updated, first);
+            Assert.assertEquals(updated.getAmount(), Long.valueOf(20));
+            manager.commit();
+        }
+    }
+
+    @Test
+    public void findDistinguishesKeyColumns() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        try (TransactionManager manager = factory.createTransactionManager()) {
+            manager.begin();
+            manager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.lookup(id BIGINT PRIMARY KEY, amount BIGINT)"));
+            manager.persist(SqlStatement.newInstance("MERGE INTO debs.lookup VALUES(1, 2)"));
+            manager.persist(SqlStatement.newInstance("MERGE INTO debs.lookup VALUES(2, 1)"));
+
+            final PartitionedQueryTest.Entry byId = (PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class,
+                SqlStatement.newInstance("SELECT * FROM debs.lookup WHERE id = ?"),
+                Long.valueOf(1));
+            final PartitionedQueryTest.Entry byAmount = (PartitionedQueryTest.Entry) manager
+                .find(PartitionedQueryTest.Entry.class,
+                    SqlStatement.newInstance("SELECT * FROM debs.lookup WHERE amount = ?"),
+                    Long.valueOf(1));
+            Assert.assertEquals(byId.getId(), Long.valueOf(1));
+            Assert.assertEquals(byAmount.getId(), Long.valueOf(2));
+
+            manager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.lookup_other(id BIGINT PRIMARY KEY, "
+                    + "amount BIGINT)"));
+            manager.persist(SqlStatement.newInstance("MERGE INTO debs.lookup_other VALUES(1, 9)"));
+            final PartitionedQueryTest.Entry other = (PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class,
+                SqlStatement.newInstance("SELECT * FROM debs.lookup_other o WHERE o.id = ?"),
+                Long.valueOf(1));
+            Assert.assertEquals(other.getAmount(), Long.valueOf(9));
+            manager.commit();
+        }
+    }
+
+    @Test
+    public void findRequiresSingleKeyCondition() {
+        final QueryManager manager = this.injector.getInstance(PersistenceManagerFactory.class)
+            .createQueryManager();
+        for (String sql : new String[] {
+            "SELECT * FROM debs.lookup WHERE id = ? OR amount = ?",
+            "SELECT * FROM debs.lookup WHERE id = ? AND amount = 1",
+            "SELECT * FROM debs.lookup WHERE amount = 1 AND id = ?",
+            "SELECT l.* FROM debs.lookup l JOIN debs.lookup_other o ON o.id = l.id WHERE l.id = ?",
+            "SELECT * FROM debs.lookup l WHERE o.id = ?" }) {
+            Assert.assertThrows(IllegalArgumentException.class,
+                () -> manager.find(PartitionedQueryTest.Entry.class,
+                    SqlStatement.newInstance(sql), Long.valueOf(1)));
+        }
+    }
+
+    @Test
+    public void upsertInsertsAndUpdates() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        try (TransactionManager manager = factory.createTransactionManager()) {
+            manager.begin();
+            manager.persist(SqlStatement.newInstance(
+                "CREATE TABLE IF NOT EXISTS debs.balance(id BIGINT PRIMARY KEY, amount BIGINT)"));
+
+            final List<Map<String, Object>> rows = new ArrayList<>();
+            for (long id = 1; id <= 3; id++) {
+                rows.add(balance(id, id * 10));
+            }
+            Assert.assertEquals(manager.upsert("debs.balance", Arrays.asList("ID"), rows), 3);
+
+            Assert.assertEquals(manager.upsert("debs.balance", Arrays.asList("ID"),
+                Arrays.asList(balance(3, 33), balance(4, 40))), 2);
+            Assert.assertEquals(manager.getRowCount(), 2);
+
+            final SqlStatement byId = SqlStatement
+                .newInstance("SELECT * FROM debs.balance WHERE id = ?");
+            Assert.assertEquals(((PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class, byId, Long.valueOf(3))).getAmount(),
+                Long.valueOf(33));
+            Assert.assertEquals(((PartitionedQueryTest.Entry) manager.find(
+                PartitionedQueryTest.Entry.class, byId, Long.valueOf(4))).getAmount(),
+                Long.valueOf(40));
+            manager.commit();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+        expectedExceptionsMessageRegExp = "Invalid column name 'AMOUNT; DROP TABLE x'.")
+    public void upsertInvalidColumnException() {
+        final PersistenceManagerFactory factory = this.injector
+            .getInstance(PersistenceManagerFactory.class);
+        try (TransactionManager manager = factory.createTransactionManager()) {
+            manager.begin();
+            final Map<String, Object> row = new HashMap<>();
+            row.put("ID", Long.valueOf(1));
+            row.put("AMOUNT; DROP TABLE x", Long.valueOf(1));
+            manager.upsert("debs.balance", Arrays.asList("ID"), Arrays.asList(row));
+        }
+    }
+
+    private static Map<String, Object> balance(long id, long amount) {
+        final Map<String, Object> row = new HashMap<>();
+        row.put("ID", Long.valueOf(id));
+        row.put("AMOUNT", Long.valueOf(amount));
+        return row;
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2019 ColonelBlimp
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.veary.persist.tests;
+
+import java.io.File;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.veary.persist.PersistenceManagerFactory;
+import org.veary.persist.SqlStatement;
+import org.veary.persist.TransactionManager;
+import org.veary.persist.WarmUp;
+
+import hthurow.tomcatjndi.TomcatJNDI;
+
+public class WarmUpTest {
+
+    private TomcatJNDI tomcatJndi;
+    private DataSource ds;
+    private PersistenceManagerFactory factory;
+
+    @BeforeClass
+    public void setUp() throws NamingException {
+        final File contextXml = new File("src/test/resources/context.xml");
+        this.tomcatJndi = new TomcatJNDI();
+        this.tomcatJndi.processContextXml(contextXml);
+        this.tomcatJndi.start();
+        this.ds = (DataSource) new InitialContext().lookup("java:/comp/env/jdbc/shared");
+        this.factory = new PersistenceManagerFactory(this.ds);
+
+        final TransactionManager txManager = this.factory.createTransactionManager();
+        txManager.begin();
+        txManager.persist(SqlStatement.newInstance(
+            "CREATE TABLE IF NOT EXISTS debs.warm(id BIGINT PRIMARY KEY, amount BIGINT)"));
+        txManager.persist(SqlStatement.newInstance("MERGE INTO debs.warm VALUES(1, 10)"));
+        txManager.commit();
+    }
+
+    @AfterClass
+    public void teardown() {
+        this.tomcatJndi.tearDown();
+    }
+
+    @Test
+    public void warmUp() {
+        Assert.assertFalse(this.factory.isWarmedUp());
+
+        final WarmUp.Report report = this.factory.createWarmUp()
+            .setConnections(3)
+            .setSyntheticExecutions(5)
+            .addStatement(SqlStatement.newInstance("SELECT * FROM debs.warm WHERE id = ?")
+                .setParameter(1, Long.valueOf(1)), PartitionedQueryTest.Entry.class)
+            .addStatement(SqlStatement.newInstance("DELETE FROM debs.warm WHERE id = ?")
+                .setParameter(1, Long.valueOf(1)))
+            .run();
+
+        Assert.assertTrue(this.factory.isWarmedUp());
+        Assert.assertTrue(report.getTotalMillis() >= report.getMillis(WarmUp.Stage.CONNECTIONS));
+        Assert.assertEquals(this.factory.createQueryManager()
+            .createQuery(SqlStatement.newInstance("SELECT COUNT(*) FROM debs.warm"))
+            .getSingleLong(), 1L);
+    }
+
+    @Test
+    public void connectionsAreNotLimited() {
+        final PersistenceManagerFactory limited = new PersistenceManagerFactory(this.ds);
+        limited.setConcurrencyLimit(1, 1, 0);
+        limited.setBulkheadCapacity(1, 0);
+
+        limited.createWarmUp()
+            .setConnections(3)
+            .addStatement(SqlStatement.newInstance("SELECT * FROM debs.warm"))
+            .setSyntheticExecutions(1)
+            .run();
+        Assert.assertTrue(limited.isWarmedUp());
+    }
+}